@@ -0,0 +1,48 @@
+package projects.dao;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.entity.Project;
+
+/**
+ * compares the PER_TABLE and SINGLE_QUERY load modes of fetchProjectById end to end against an
+ * embedded MySQL-mode database
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregateLoadBenchmark {
+  @Param({"PER_TABLE", "SINGLE_QUERY"})
+  public AggregateLoadMode loadMode;
+
+  private final ProjectDao projectDao = new ProjectDao();
+  private int[] ids;
+
+  @Setup
+  public void setUp() {
+    List<Integer> projectIds = BenchmarkDatabase.create("aggregate", 1_000);
+    ids = projectIds.stream().mapToInt(Integer::intValue).toArray();
+    projectDao.setLoadMode(loadMode);
+  }
+
+  @Benchmark
+  public Optional<Project> fetchProjectById() {
+    return projectDao.fetchProjectById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+  }
+}
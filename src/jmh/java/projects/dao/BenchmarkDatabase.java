@@ -0,0 +1,81 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import projects.exception.DbException;
+
+/**
+ * builds an embedded projects database for the DAO benchmarks and points DbConnection at it
+ */
+class BenchmarkDatabase {
+  static final int CHILDREN_PER_PROJECT = 5;
+
+  /**
+   * creates the schema in the named in-memory database and adds generated projects with
+   * CHILDREN_PER_PROJECT materials and steps and one category each
+   * @param name
+   * @param projects number of projects to add to the three sample projects
+   * @return the IDs of all projects
+   */
+  static List<Integer> create(String name, int projects) {
+    PoolConfig config = EmbeddedDatabase.create(name);
+    config.setMinIdle(1);
+    DbConnection.configure(config);
+
+    try(Connection conn = DbConnection.getConnection()) {
+      conn.setAutoCommit(false);
+      try(PreparedStatement project = conn.prepareStatement("INSERT INTO project"
+          + " (project_id, project_name, estimated_hours, actual_hours, difficulty, notes)"
+          + " VALUES (?, ?, 4, 6, ?, ?)");
+          PreparedStatement material = conn.prepareStatement("INSERT INTO material"
+              + " (project_id, material_name, num_required, cost) VALUES (?, ?, ?, ?)");
+          PreparedStatement step = conn.prepareStatement("INSERT INTO step"
+              + " (project_id, step_text, step_order) VALUES (?, ?, ?)");
+          PreparedStatement category = conn.prepareStatement("INSERT INTO project_category"
+              + " (project_id, category_id) VALUES (?, ?)")) {
+        for(int projectId = 4; projectId < projects + 4; projectId++) {
+          project.setInt(1, projectId);
+          project.setString(2, "project " + projectId);
+          project.setInt(3, projectId % 5 + 1);
+          project.setString(4, "notes for project " + projectId);
+          project.addBatch();
+          for(int child = 1; child <= CHILDREN_PER_PROJECT; child++) {
+            material.setInt(1, projectId);
+            material.setString(2, "material " + child);
+            material.setInt(3, child);
+            material.setBigDecimal(4, new BigDecimal("1.99"));
+            material.addBatch();
+            step.setInt(1, projectId);
+            step.setString(2, "step " + child + " of project " + projectId);
+            step.setInt(3, child);
+            step.addBatch();
+          }
+          category.setInt(1, projectId);
+          category.setInt(2, projectId % 3 + 1);
+          category.addBatch();
+        }
+        project.executeBatch();
+        material.executeBatch();
+        step.executeBatch();
+        category.executeBatch();
+      }
+      conn.commit();
+
+      List<Integer> ids = new ArrayList<>();
+      try(PreparedStatement stmt = conn.prepareStatement("SELECT project_id FROM project");
+          ResultSet rs = stmt.executeQuery()) {
+        while(rs.next()) {
+          ids.add(rs.getInt(1));
+        }
+      }
+      return ids;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+}
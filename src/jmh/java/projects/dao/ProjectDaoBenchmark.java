@@ -0,0 +1,76 @@
+package projects.dao;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.entity.Category;
+import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectSummaryPage;
+
+/**
+ * measures the ProjectDao listing and batch fetch calls end to end against an embedded MySQL-mode
+ * database
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectDaoBenchmark {
+  @Param({"1000", "10000"})
+  public int projects;
+
+  private final ProjectDao projectDao = new ProjectDao();
+  private List<Integer> firstHundredIds;
+
+  @Setup
+  public void setUp() {
+    List<Integer> ids = BenchmarkDatabase.create("dao", projects);
+    firstHundredIds = ids.subList(0, Math.min(100, ids.size()));
+  }
+
+  @Benchmark
+  public List<Project> fetchAllProjects() {
+    return projectDao.fetchAllProjects();
+  }
+
+  @Benchmark
+  public ProjectPage fetchProjectPage() {
+    return projectDao.fetchProjectPage(null, 20);
+  }
+
+  @Benchmark
+  public List<ProjectSummary> fetchProjectSummaries() {
+    return projectDao.fetchProjectSummaries(EnumSet.of(SummaryColumn.PROJECT_NAME), null);
+  }
+
+  @Benchmark
+  public ProjectSummaryPage fetchProjectSummaryPage() {
+    return projectDao.fetchProjectSummaryPage(Set.of(), null, null, 20);
+  }
+
+  @Benchmark
+  public List<Project> fetchProjectsByIds() {
+    return projectDao.fetchProjectsByIds(firstHundredIds);
+  }
+
+  @Benchmark
+  public List<Category> fetchAllCategories() {
+    return projectDao.fetchAllCategories();
+  }
+}
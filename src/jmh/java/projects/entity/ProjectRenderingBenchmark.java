@@ -0,0 +1,71 @@
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures rendering a project aggregate with Project.toString, which the CLI does every time it
+ * prints the menu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProjectRenderingBenchmark {
+  /**
+   * number of materials, steps and categories each
+   */
+  @Param({"0", "10", "100"})
+  public int children;
+
+  private Project project;
+
+  @Setup
+  public void setUp() {
+    project = new Project();
+    project.setProjectId(1);
+    project.setProjectName("knit a stripey hat");
+    project.setEstimatedHours(new BigDecimal("4.00"));
+    project.setActualHours(new BigDecimal("6.00"));
+    project.setDifficulty(1);
+    project.setNotes("use leftover yarn from your stash");
+
+    for (int i = 1; i <= children; i++) {
+      Material material = new Material();
+      material.setMaterialId(i);
+      material.setMaterialName("ball of yarn " + i);
+      material.setNumRequired(i);
+      material.setCost(new BigDecimal("3.99"));
+      project.getMaterials().add(material);
+
+      Step step = new Step();
+      step.setStepId(i);
+      step.setStepOrder(i);
+      step.setStepText("knit with the two strands together until you run out or get bored " + i);
+      project.getSteps().add(step);
+
+      Category category = new Category();
+      category.setCategoryId(i);
+      category.setCategoryName("fiber arts " + i);
+      project.getCategories().add(category);
+    }
+  }
+
+  @Benchmark
+  public String render() {
+    return project.toString();
+  }
+}
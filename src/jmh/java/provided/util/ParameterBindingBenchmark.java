@@ -0,0 +1,83 @@
+package provided.util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DaoBase#setParameter} binding the five parameters of a project insert, against
+ * binding the same values with the typed JDBC setters directly. The statement belongs to an
+ * in-memory H2 database, so binding never touches the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterBindingBenchmark {
+  private final DaoBase dao = new DaoBase() {};
+  private final String name = "knit a stripey hat";
+  private final BigDecimal estimatedHours = new BigDecimal("4.00");
+  private final BigDecimal actualHours = new BigDecimal("6.00");
+  private final Integer difficulty = 1;
+  private final String notes = "use leftover yarn from your stash";
+  private Connection conn;
+  private PreparedStatement stmt;
+
+  @Setup
+  public void setUp() throws SQLException {
+    conn = DriverManager.getConnection("jdbc:h2:mem:binding;MODE=MySQL", "sa", "");
+    stmt = conn.prepareStatement("SELECT ?, ?, ?, ?, ?");
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    stmt.close();
+    conn.close();
+  }
+
+  @Benchmark
+  public PreparedStatement setParameter() throws SQLException {
+    dao.setParameter(stmt, 1, name, String.class);
+    dao.setParameter(stmt, 2, estimatedHours, BigDecimal.class);
+    dao.setParameter(stmt, 3, actualHours, BigDecimal.class);
+    dao.setParameter(stmt, 4, difficulty, Integer.class);
+    dao.setParameter(stmt, 5, notes, String.class);
+    return stmt;
+  }
+
+  @Benchmark
+  public PreparedStatement setParameterWithNulls() throws SQLException {
+    dao.setParameter(stmt, 1, name, String.class);
+    dao.setParameter(stmt, 2, null, BigDecimal.class);
+    dao.setParameter(stmt, 3, null, BigDecimal.class);
+    dao.setParameter(stmt, 4, null, Integer.class);
+    dao.setParameter(stmt, 5, null, String.class);
+    return stmt;
+  }
+
+  @Benchmark
+  public PreparedStatement typedSetters() throws SQLException {
+    stmt.setString(1, name);
+    stmt.setBigDecimal(2, estimatedHours);
+    stmt.setBigDecimal(3, actualHours);
+    stmt.setInt(4, difficulty);
+    stmt.setString(5, notes);
+    return stmt;
+  }
+}
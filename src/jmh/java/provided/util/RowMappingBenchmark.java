@@ -0,0 +1,137 @@
+package provided.util;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import projects.entity.Project;
+
+/**
+ * Measures row mapping over an in-memory result set, comparing {@link DaoBase#extract} on every row
+ * with a {@link RowMapper} bound once per result set. The "project" shape has the columns of the
+ * project table; the "wide" shape has 24 columns of mixed types.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMappingBenchmark {
+  private static final int WIDE_GROUP = 8;
+
+  @Param({"1", "100", "10000"})
+  public int rows;
+
+  @Param({"project", "wide"})
+  public String shape;
+
+  private final DaoBase dao = new DaoBase() {};
+  private SimpleResultSet rs;
+  private Class<?> classType;
+
+  @Setup
+  public void setUp() {
+    rs = new SimpleResultSet();
+    rs.setAutoClose(false);
+
+    if("project".equals(shape)) {
+      classType = Project.class;
+      rs.addColumn("project_id", Types.INTEGER, 10, 0);
+      rs.addColumn("project_name", Types.VARCHAR, 128, 0);
+      rs.addColumn("estimated_hours", Types.DECIMAL, 7, 2);
+      rs.addColumn("actual_hours", Types.DECIMAL, 7, 2);
+      rs.addColumn("difficulty", Types.INTEGER, 10, 0);
+      rs.addColumn("notes", Types.VARCHAR, 65535, 0);
+
+      for(int row = 0; row < rows; row++) {
+        rs.addRow(row, "project " + row, new BigDecimal("4.50"), new BigDecimal("6.25"), row % 5,
+            "notes for project " + row);
+      }
+    }
+    else {
+      classType = WideEntity.class;
+
+      for(int i = 1; i <= WIDE_GROUP; i++) {
+        rs.addColumn("int_value" + i, Types.INTEGER, 10, 0);
+        rs.addColumn("text_value" + i, Types.VARCHAR, 128, 0);
+        rs.addColumn("decimal_value" + i, Types.DECIMAL, 7, 2);
+      }
+
+      for(int row = 0; row < rows; row++) {
+        Object[] values = new Object[WIDE_GROUP * 3];
+
+        for(int i = 0; i < WIDE_GROUP; i++) {
+          values[i * 3] = row + i;
+          values[i * 3 + 1] = "text " + row;
+          values[i * 3 + 2] = BigDecimal.valueOf(row, 2);
+        }
+
+        rs.addRow(values);
+      }
+    }
+  }
+
+  @Benchmark
+  public void extractEveryRow(Blackhole bh) throws SQLException {
+    rs.beforeFirst();
+
+    while(rs.next()) {
+      bh.consume(dao.extract(rs, classType));
+    }
+  }
+
+  @Benchmark
+  public void rowMapper(Blackhole bh) throws SQLException {
+    rs.beforeFirst();
+    RowMapper<?> mapper = RowMapper.forResultSet(rs, classType);
+
+    while(rs.next()) {
+      bh.consume(mapper.map(rs));
+    }
+  }
+
+  /**
+   * A 24-column entity for the wide result set. The fields are only written by the mapper.
+   */
+  @SuppressWarnings("unused")
+  public static class WideEntity {
+    private Integer intValue1;
+    private Integer intValue2;
+    private Integer intValue3;
+    private Integer intValue4;
+    private Integer intValue5;
+    private Integer intValue6;
+    private Integer intValue7;
+    private Integer intValue8;
+    private String textValue1;
+    private String textValue2;
+    private String textValue3;
+    private String textValue4;
+    private String textValue5;
+    private String textValue6;
+    private String textValue7;
+    private String textValue8;
+    private BigDecimal decimalValue1;
+    private BigDecimal decimalValue2;
+    private BigDecimal decimalValue3;
+    private BigDecimal decimalValue4;
+    private BigDecimal decimalValue5;
+    private BigDecimal decimalValue6;
+    private BigDecimal decimalValue7;
+    private BigDecimal decimalValue8;
+  }
+}
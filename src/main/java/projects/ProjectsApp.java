@@ -1,15 +1,22 @@
 package projects;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.Set;
+import projects.bulk.CatalogFormat;
+import projects.bulk.ImportConfig;
 import projects.entity.Category;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectSummaryPage;
 import projects.exception.DbException;
+import projects.metrics.PrometheusExporter;
 import projects.service.ProjectService;
+import projects.service.ProjectSession;
 /**
  * user interface for the projects database
  */
@@ -22,15 +29,19 @@ public class ProjectsApp {
       "4) Update project details",
       "5) Delete a project",
       "6) Add category to project",
-      "7) Add material to project"
+      "7) Add material to project",
+      "8) Export all projects",
+      "9) Import projects"
       
       );
   // @formatter:on
+  private static final int PAGE_SIZE = 20;
   private Scanner scanner = new Scanner(System.in);
   ProjectService projectService = new ProjectService();
   Project curProject;
   
   public static void main(String[] args) {
+    PrometheusExporter.start();
     new ProjectsApp().processUserSelections();
   }
   
@@ -68,6 +79,12 @@ public class ProjectsApp {
           case 7:
             addMaterialToProject();
             break;
+          case 8:
+            exportProjects();
+            break;
+          case 9:
+            importProjects();
+            break;
           
           default:
             System.out.println("\n" + selection + " is not a valid selection.");
@@ -94,8 +111,11 @@ public class ProjectsApp {
     material.setMaterialName(materialName);
     material.setNumRequired(numRequired);
     material.setCost(cost);
-    projectService.addMaterialToProject(curProject.getProjectId(), material);
-    curProject = projectService.fetchProjectById(curProject.getProjectId());
+    try(ProjectSession session = projectService.openSession()) {
+      session.addMaterialToProject(projectId, material);
+      curProject = session.fetchProjectById(projectId);
+      session.commit();
+    }
     System.out.println("You have entered the material \"" + materialName + "\" to the project " + curProject.getProjectName());
 
   }
@@ -112,13 +132,15 @@ public class ProjectsApp {
     System.out.println("The current categories are:" + listCategories() + "but you can name new categories too!");
     categoryName = getStringInput("Enter the category you would like to add to the project");
       
-    if(Objects.nonNull(categoryName)) {
-      projectService.addCategoryToProject(curProject.getProjectId(), categoryName);
-    } else {
+    if(Objects.isNull(categoryName)) {
       return;
     }
+    try(ProjectSession session = projectService.openSession()) {
+      session.addCategoryToProject(curProject.getProjectId(), categoryName);
+      curProject = session.fetchProjectById(curProject.getProjectId());
+      session.commit();
+    }
     System.out.println("You have entered the category \"" + categoryName + "\" to the project " + curProject.getProjectName());
-    curProject = projectService.fetchProjectById(curProject.getProjectId());
   }
   /**
    * assembles category names to be printed
@@ -196,14 +218,52 @@ public class ProjectsApp {
       System.out.println("Invalid project selected.");
     }    
   }
+  /**
+   * writes all projects, with their materials, steps and categories, to a file
+   */
+  private void exportProjects() {
+    String fileName = getStringInput("Enter the file to export to");
+    if(Objects.isNull(fileName)) {
+      System.out.println("\nNo file was entered.");
+      return;
+    }
+    String formatName = getStringInput("Enter the format (ndjson or csv) [ndjson]");
+    CatalogFormat format = Objects.isNull(formatName) ? CatalogFormat.NDJSON : CatalogFormat.fromName(formatName);
+    boolean gzip = "y".equalsIgnoreCase(getStringInput("Compress with gzip (y/n) [n]"));
+
+    long exported = projectService.exportCatalog(Path.of(fileName), format, gzip);
+    System.out.println("Exported " + exported + " projects to " + fileName);
+  }
+  /**
+   * loads projects, with their materials, steps and categories, from a file
+   */
+  private void importProjects() {
+    String fileName = getStringInput("Enter the file to import from");
+    if(Objects.isNull(fileName)) {
+      System.out.println("\nNo file was entered.");
+      return;
+    }
+    ImportConfig config = new ImportConfig();
+    config.setFile(Path.of(fileName));
+    String formatName = getStringInput("Enter the format (ndjson or csv) [" + config.getFormat().name().toLowerCase() + "]");
+    if(Objects.nonNull(formatName)) {
+      config.setFormat(CatalogFormat.fromName(formatName));
+    }
+
+    System.out.println(projectService.importCatalog(config));
+  }
   /**
    * prints a list of all projects 
    */
   private void listProjects() {
-    List<Project> projects = projectService.fetchAllProjects();
     System.out.println("\nProjects:");
-    
-    projects.forEach(project -> System.out.println("      " + project.getProjectId() + ": " + project.getProjectName()));
+    String pageToken = null;
+    do {
+      ProjectSummaryPage page = projectService.fetchProjectSummaryPage(Set.of(), null, pageToken, PAGE_SIZE);
+      page.getSummaries().forEach(summary -> System.out.println("      " + summary));
+      pageToken = page.getNextPageToken();
+    } while(Objects.nonNull(pageToken)
+        && Objects.isNull(getStringInput("Press Enter to see more projects, or enter q to stop listing")));
   }
   /**
    * collects user input to create a new project and displays the project's details
@@ -0,0 +1,88 @@
+package projects.bulk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+import projects.exception.DbException;
+
+/**
+ * writes the whole project catalog, every project with its materials, steps and categories, to a
+ * file or stream. Projects are read through ProjectDao.streamAllProjectAggregates and written as
+ * they arrive, so memory use does not grow with the size of the catalog
+ */
+public class CatalogExporter {
+  private static final int FETCH_SIZE = 1_000;
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  private final ProjectDao projectDao;
+
+  public CatalogExporter(ProjectDao projectDao) {
+    this.projectDao = projectDao;
+  }
+
+  /**
+   * exports the catalog to a file, replacing it if it exists
+   * @param file
+   * @param format
+   * @param gzip true to gzip the output on a separate thread
+   * @return the number of projects exported
+   * @throws DbException
+   */
+  public long export(Path file, CatalogFormat format, boolean gzip) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      return export(Channels.newOutputStream(channel), format, gzip);
+    } catch (IOException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * exports the catalog to a stream. The stream is flushed but not closed, with or without gzip
+   * @param out
+   * @param format
+   * @param gzip true to gzip the output on a separate thread
+   * @return the number of projects exported
+   * @throws DbException
+   */
+  public long export(OutputStream out, CatalogFormat format, boolean gzip) {
+    long exported = 0;
+    GzipPipeOutputStream pipe = gzip ? new GzipPipeOutputStream(out) : null;
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(gzip ? pipe : out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+    try (Stream<Project> projects = projectDao.streamAllProjectAggregates(FETCH_SIZE)) {
+      format.writeHeader(writer);
+      Iterator<Project> iterator = projects.iterator();
+      while (iterator.hasNext()) {
+        format.write(iterator.next(), writer);
+        exported++;
+      }
+      writer.flush();
+      if (gzip) {
+        pipe.close();
+      }
+      return exported;
+    } catch (IOException e) {
+      throw new DbException(e);
+    } catch (UncheckedIOException e) {
+      throw new DbException(e.getCause());
+    } finally {
+      if (gzip) {
+        /* stops the compressor thread if the export failed before the pipe was closed */
+        pipe.abort();
+      }
+    }
+  }
+}
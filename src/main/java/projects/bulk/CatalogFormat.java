@@ -0,0 +1,419 @@
+package projects.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * file formats for exporting and importing the project catalog. Records written by one format can
+ * be read back by it
+ */
+public enum CatalogFormat {
+  /**
+   * one JSON object per line for each project, with its materials, steps and categories as nested
+   * arrays
+   */
+  NDJSON {
+    @Override
+    void writeHeader(Writer out) {
+    }
+
+    @Override
+    void write(Project project, Writer out) throws IOException {
+      out.write("{\"projectId\":");
+      writeNumber(out, project.getProjectId());
+      out.write(",\"projectName\":");
+      writeJsonString(out, project.getProjectName());
+      out.write(",\"estimatedHours\":");
+      writeNumber(out, project.getEstimatedHours());
+      out.write(",\"actualHours\":");
+      writeNumber(out, project.getActualHours());
+      out.write(",\"difficulty\":");
+      writeNumber(out, project.getDifficulty());
+      out.write(",\"notes\":");
+      writeJsonString(out, project.getNotes());
+
+      out.write(",\"materials\":[");
+      String separator = "";
+      for (Material material : project.getMaterials()) {
+        out.write(separator);
+        out.write("{\"materialId\":");
+        writeNumber(out, material.getMaterialId());
+        out.write(",\"materialName\":");
+        writeJsonString(out, material.getMaterialName());
+        out.write(",\"numRequired\":");
+        writeNumber(out, material.getNumRequired());
+        out.write(",\"cost\":");
+        writeNumber(out, material.getCost());
+        out.write('}');
+        separator = ",";
+      }
+
+      out.write("],\"steps\":[");
+      separator = "";
+      for (Step step : project.getSteps()) {
+        out.write(separator);
+        out.write("{\"stepId\":");
+        writeNumber(out, step.getStepId());
+        out.write(",\"stepOrder\":");
+        writeNumber(out, step.getStepOrder());
+        out.write(",\"stepText\":");
+        writeJsonString(out, step.getStepText());
+        out.write('}');
+        separator = ",";
+      }
+
+      out.write("],\"categories\":[");
+      separator = "";
+      for (Category category : project.getCategories()) {
+        out.write(separator);
+        out.write("{\"categoryId\":");
+        writeNumber(out, category.getCategoryId());
+        out.write(",\"categoryName\":");
+        writeJsonString(out, category.getCategoryName());
+        out.write('}');
+        separator = ",";
+      }
+      out.write("]}\n");
+    }
+
+    @Override
+    Project parse(String record) {
+      Map<String, Object> json = asObject(JsonReader.parse(record), "project");
+      Project project = new Project();
+      project.setProjectName(asString(json.get("projectName"), "projectName"));
+      project.setEstimatedHours(asDecimal(json.get("estimatedHours"), "estimatedHours"));
+      project.setActualHours(asDecimal(json.get("actualHours"), "actualHours"));
+      project.setDifficulty(asInteger(json.get("difficulty"), "difficulty"));
+      project.setNotes(asString(json.get("notes"), "notes"));
+
+      for (Object element : asArray(json.get("materials"), "materials")) {
+        Map<String, Object> fields = asObject(element, "material");
+        Material material = new Material();
+        material.setMaterialName(asString(fields.get("materialName"), "materialName"));
+        material.setNumRequired(asInteger(fields.get("numRequired"), "numRequired"));
+        material.setCost(asDecimal(fields.get("cost"), "cost"));
+        project.getMaterials().add(material);
+      }
+      for (Object element : asArray(json.get("steps"), "steps")) {
+        Map<String, Object> fields = asObject(element, "step");
+        Step step = new Step();
+        step.setStepOrder(asInteger(fields.get("stepOrder"), "stepOrder"));
+        step.setStepText(asString(fields.get("stepText"), "stepText"));
+        project.getSteps().add(step);
+      }
+      for (Object element : asArray(json.get("categories"), "categories")) {
+        Category category = new Category();
+        category.setCategoryName(asString(asObject(element, "category").get("categoryName"), "categoryName"));
+        project.getCategories().add(category);
+      }
+      return project;
+    }
+  },
+
+  /**
+   * one CSV record per project, material, step and category, told apart by the record_type column.
+   * Every record starts with its project ID and the child records follow their project
+   */
+  CSV {
+    @Override
+    void writeHeader(Writer out) throws IOException {
+      out.write(CSV_HEADER);
+      out.write('\n');
+    }
+
+    @Override
+    void write(Project project, Writer out) throws IOException {
+      Integer projectId = project.getProjectId();
+      writeCsvRecord(out, "project", projectId, null, project.getProjectName(),
+          project.getEstimatedHours(), project.getActualHours(), project.getDifficulty(),
+          project.getNotes(), null, null, null, null);
+      for (Material material : project.getMaterials()) {
+        writeCsvRecord(out, "material", projectId, material.getMaterialId(),
+            material.getMaterialName(), null, null, null, null, material.getNumRequired(),
+            material.getCost(), null, null);
+      }
+      for (Step step : project.getSteps()) {
+        writeCsvRecord(out, "step", projectId, step.getStepId(), null, null, null, null, null,
+            null, null, step.getStepOrder(), step.getStepText());
+      }
+      for (Category category : project.getCategories()) {
+        writeCsvRecord(out, "category", projectId, category.getCategoryId(),
+            category.getCategoryName(), null, null, null, null, null, null, null, null);
+      }
+    }
+
+    @Override
+    Project parse(String record) {
+      List<List<String>> rows = parseCsv(record);
+      Project project = null;
+      String projectId = null;
+      for (List<String> row : rows) {
+        if (row.size() != CSV_COLUMNS) {
+          throw new IllegalArgumentException("Expected " + CSV_COLUMNS + " fields but found " + row.size());
+        }
+        String recordType = row.get(0);
+        if (Objects.isNull(project) != "project".equals(recordType)) {
+          throw new IllegalArgumentException(Objects.isNull(project)
+              ? "The first record must be a project record but was " + recordType
+              : "Only one project record is allowed per project");
+        }
+        if (Objects.nonNull(projectId) && !projectId.equals(row.get(1))) {
+          throw new IllegalArgumentException("A " + recordType + " record has project_id " + row.get(1)
+              + " but follows project " + projectId);
+        }
+        switch (String.valueOf(recordType)) {
+          case "project":
+            projectId = row.get(1);
+            project = new Project();
+            project.setProjectName(row.get(3));
+            project.setEstimatedHours(asDecimal(row.get(4), "estimated_hours"));
+            project.setActualHours(asDecimal(row.get(5), "actual_hours"));
+            project.setDifficulty(asInteger(row.get(6), "difficulty"));
+            project.setNotes(row.get(7));
+            break;
+          case "material":
+            Material material = new Material();
+            material.setMaterialName(row.get(3));
+            material.setNumRequired(asInteger(row.get(8), "num_required"));
+            material.setCost(asDecimal(row.get(9), "cost"));
+            project.getMaterials().add(material);
+            break;
+          case "step":
+            Step step = new Step();
+            step.setStepOrder(asInteger(row.get(10), "step_order"));
+            step.setStepText(row.get(11));
+            project.getSteps().add(step);
+            break;
+          case "category":
+            Category category = new Category();
+            category.setCategoryName(row.get(3));
+            project.getCategories().add(category);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown record type " + recordType);
+        }
+      }
+      if (Objects.isNull(project)) {
+        throw new IllegalArgumentException("The record is empty");
+      }
+      return project;
+    }
+  };
+
+  static final String CSV_HEADER = "record_type,project_id,child_id,name,estimated_hours,"
+      + "actual_hours,difficulty,notes,num_required,cost,step_order,step_text";
+  private static final int CSV_COLUMNS = 12;
+
+  /**
+   * writes anything that comes before the first project
+   * @param out
+   * @throws IOException
+   */
+  abstract void writeHeader(Writer out) throws IOException;
+
+  /**
+   * writes one project with its children
+   * @param project
+   * @param out
+   * @throws IOException
+   */
+  abstract void write(Project project, Writer out) throws IOException;
+
+  /**
+   * builds a project with its children from one record as returned by RecordReader. IDs in the
+   * record are ignored, the database assigns new ones
+   * @param record
+   * @return Project
+   * @throws IllegalArgumentException if the record is malformed
+   */
+  abstract Project parse(String record);
+
+  /**
+   * @param name ndjson or csv, in any case
+   * @return CatalogFormat
+   */
+  public static CatalogFormat fromName(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+
+  private static void writeNumber(Writer out, Object value) throws IOException {
+    if (Objects.isNull(value)) {
+      out.write("null");
+    } else if (value instanceof BigDecimal decimal) {
+      out.write(decimal.toPlainString());
+    } else {
+      out.write(value.toString());
+    }
+  }
+
+  private static void writeJsonString(Writer out, String value) throws IOException {
+    if (Objects.isNull(value)) {
+      out.write("null");
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      switch (ch) {
+        case '"':
+          out.write("\\\"");
+          break;
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        case '\r':
+          out.write("\\r");
+          break;
+        case '\t':
+          out.write("\\t");
+          break;
+        default:
+          if (ch < 0x20) {
+            out.write(String.format("\\u%04x", (int) ch));
+          } else {
+            out.write(ch);
+          }
+      }
+    }
+    out.write('"');
+  }
+
+  private static void writeCsvRecord(Writer out, Object... fields) throws IOException {
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      Object field = fields[i];
+      if (Objects.isNull(field)) {
+        continue;
+      }
+      String value = field instanceof BigDecimal decimal ? decimal.toPlainString() : field.toString();
+      if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+          || value.indexOf('\r') >= 0) {
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+      } else {
+        out.write(value);
+      }
+    }
+    out.write('\n');
+  }
+
+  /**
+   * splits CSV text into records of fields. An empty field without quotes is null, "" is an empty
+   * string
+   * @param text
+   * @return the records
+   */
+  static List<List<String>> parseCsv(String text) {
+    List<List<String>> rows = new ArrayList<>();
+    List<String> row = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean inQuotes = false;
+
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (inQuotes) {
+        if (ch != '"') {
+          field.append(ch);
+        } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          inQuotes = false;
+        }
+      } else if (ch == '"') {
+        if (field.length() > 0) {
+          throw new IllegalArgumentException("Unexpected quote inside an unquoted field");
+        }
+        inQuotes = true;
+        quoted = true;
+      } else if (ch == ',' || ch == '\n') {
+        row.add(quoted || field.length() > 0 ? field.toString() : null);
+        field.setLength(0);
+        quoted = false;
+        if (ch == '\n') {
+          rows.add(row);
+          row = new ArrayList<>();
+        }
+      } else if (ch != '\r') {
+        field.append(ch);
+      }
+    }
+    if (inQuotes) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    if (quoted || field.length() > 0 || !row.isEmpty()) {
+      row.add(quoted || field.length() > 0 ? field.toString() : null);
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asObject(Object value, String name) {
+    if (value instanceof Map) {
+      return (Map<String, Object>) value;
+    }
+    throw new IllegalArgumentException("Expected " + name + " to be an object");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> asArray(Object value, String name) {
+    if (Objects.isNull(value)) {
+      return List.of();
+    }
+    if (value instanceof List) {
+      return (List<Object>) value;
+    }
+    throw new IllegalArgumentException("Expected " + name + " to be an array");
+  }
+
+  private static String asString(Object value, String name) {
+    if (Objects.isNull(value) || value instanceof String) {
+      return (String) value;
+    }
+    throw new IllegalArgumentException("Expected " + name + " to be a string");
+  }
+
+  private static BigDecimal asDecimal(Object value, String name) {
+    if (Objects.isNull(value) || value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    }
+    if (value instanceof String text) {
+      try {
+        return new BigDecimal(text.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(name + " is not a number: " + text);
+      }
+    }
+    throw new IllegalArgumentException("Expected " + name + " to be a number");
+  }
+
+  private static Integer asInteger(Object value, String name) {
+    BigDecimal number = asDecimal(value, name);
+    if (Objects.isNull(number)) {
+      return null;
+    }
+    try {
+      return number.intValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException(name + " is not a whole number: " + number);
+    }
+  }
+}
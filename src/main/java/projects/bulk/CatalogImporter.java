@@ -0,0 +1,364 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import projects.dao.DbConnection;
+import projects.dao.EmbeddedDatabase;
+import projects.dao.PoolConfig;
+import projects.dao.ProjectDao;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * loads a project catalog written by {@link CatalogExporter}, or produced elsewhere in the same
+ * format, into the project tables. See {@link ImportConfig} for the settings. Run with:
+ *
+ * <pre>
+ * java -cp target/classes:&lt;dependencies&gt; projects.bulk.CatalogImporter file=catalog.ndjson.gz writers=8
+ * </pre>
+ *
+ * The import is a pipeline of three stages joined by bounded queues, so a slow stage holds back
+ * the ones before it instead of letting batches pile up in memory:
+ * <ol>
+ * <li>one reader thread splits the input into the text of each project and queues it in batches</li>
+ * <li>parser threads turn the text into projects and check them against the schema</li>
+ * <li>writer threads each insert a batch with ProjectDao.insertProjectAggregates on their own
+ * pooled connection, one transaction per batch. Categories are resolved through ProjectDao's
+ * category dictionary, which is loaded before the writers start</li>
+ * </ol>
+ * IDs in the input are ignored; the database assigns new ones. Records that cannot be parsed or
+ * inserted are written to the reject file after a # comment with their line number and the reason.
+ * Comment lines are skipped on import, so the reject file can be fixed and imported again.
+ */
+public class CatalogImporter {
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+  private static final int NAME_LENGTH = 128;
+  private static final BigDecimal MAX_DECIMAL = new BigDecimal("99999.99");
+  private static final List<ImportRecord> END = new ArrayList<>();
+
+  private final ProjectDao projectDao;
+  private final ImportConfig config;
+  private final AtomicLong read = new AtomicLong();
+  private final AtomicLong imported = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong rowsWritten = new AtomicLong();
+  private Writer rejects;
+
+  /**
+   * @param projectDao
+   * @param config
+   */
+  public CatalogImporter(ProjectDao projectDao, ImportConfig config) {
+    this.projectDao = projectDao;
+    this.config = config;
+  }
+
+  public static void main(String[] args) {
+    ImportConfig config = ImportConfig.fromArgs(args);
+    PoolConfig poolConfig = config.getTarget().startsWith("embedded:")
+        ? EmbeddedDatabase.create(config.getTarget().substring("embedded:".length()))
+        : DbConnection.defaultConfig();
+    poolConfig.setMaxSize(config.getWriters() + 1);
+    poolConfig.setMinIdle(0);
+    DbConnection.configure(poolConfig);
+
+    System.out.println(new CatalogImporter(new ProjectDao(), config).importCatalog());
+    DbConnection.getPool().close();
+  }
+
+  /**
+   * runs the import and waits for it to finish. If any stage fails, the others are stopped;
+   * batches that were already committed stay in the database
+   * @return ImportResult
+   * @throws DbException
+   */
+  public ImportResult importCatalog() {
+    long start = System.nanoTime();
+    projectDao.fetchAllCategories();
+
+    BlockingQueue<List<ImportRecord>> texts = new ArrayBlockingQueue<>(config.getQueueCapacity());
+    BlockingQueue<List<ImportRecord>> parsed = new ArrayBlockingQueue<>(config.getQueueCapacity());
+    AtomicInteger parsersRunning = new AtomicInteger(config.getParsers());
+    AtomicInteger threadNumber = new AtomicInteger();
+    int stages = 1 + config.getParsers() + config.getWriters();
+    ExecutorService threads = Executors.newFixedThreadPool(stages, runnable -> {
+      Thread thread = new Thread(runnable, "projects-import-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try(Writer rejectWriter = Files.newBufferedWriter(config.getRejects(), StandardCharsets.UTF_8)) {
+      rejects = rejectWriter;
+      config.getFormat().writeHeader(rejects);
+
+      CompletionService<Void> completion = new ExecutorCompletionService<>(threads);
+      completion.submit(() -> readRecords(texts));
+      for(int i = 0; i < config.getParsers(); i++) {
+        completion.submit(() -> parseRecords(texts, parsed, parsersRunning));
+      }
+      for(int i = 0; i < config.getWriters(); i++) {
+        completion.submit(() -> writeRecords(parsed));
+      }
+
+      for(int remaining = stages; remaining > 0;) {
+        Future<Void> finished = completion.poll(config.getProgressInterval(), TimeUnit.SECONDS);
+        if(Objects.isNull(finished)) {
+          reportProgress(start);
+        } else {
+          finished.get();
+          remaining--;
+        }
+      }
+    } catch (IOException e) {
+      throw new DbException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbException(e);
+    } catch (ExecutionException e) {
+      throw new DbException(e.getCause());
+    } finally {
+      threads.shutdownNow();
+    }
+
+    if(rejected.get() > 0) {
+      System.out.println(rejected.get() + " records were rejected, see " + config.getRejects());
+    } else {
+      try {
+        Files.deleteIfExists(config.getRejects());
+      } catch (IOException e) {
+        throw new DbException(e);
+      }
+    }
+    return new ImportResult(imported.get(), rejected.get(), rowsWritten.get(), System.nanoTime() - start);
+  }
+
+  /**
+   * the reader stage. Queues the text of every project in batches, then one end marker per parser
+   */
+  private Void readRecords(BlockingQueue<List<ImportRecord>> texts) throws IOException, InterruptedException {
+    try(RecordReader reader = new RecordReader(openInput(), config.getFormat())) {
+      List<ImportRecord> batch = new ArrayList<>(config.getBatchSize());
+      String text;
+      while(Objects.nonNull(text = reader.next())) {
+        batch.add(new ImportRecord(reader.getRecordLine(), text));
+        read.incrementAndGet();
+        if(batch.size() == config.getBatchSize()) {
+          texts.put(batch);
+          batch = new ArrayList<>(config.getBatchSize());
+        }
+      }
+      if(!batch.isEmpty()) {
+        texts.put(batch);
+      }
+    }
+    for(int i = 0; i < config.getParsers(); i++) {
+      texts.put(END);
+    }
+    return null;
+  }
+
+  /**
+   * a parser stage. The last parser to finish queues one end marker per writer
+   */
+  private Void parseRecords(BlockingQueue<List<ImportRecord>> texts,
+      BlockingQueue<List<ImportRecord>> parsed, AtomicInteger parsersRunning)
+      throws IOException, InterruptedException {
+    List<ImportRecord> batch;
+    while((batch = texts.take()) != END) {
+      List<ImportRecord> valid = new ArrayList<>(batch.size());
+      for(ImportRecord record : batch) {
+        try {
+          record.project = config.getFormat().parse(record.text);
+          validate(record.project);
+          valid.add(record);
+        } catch (IllegalArgumentException e) {
+          reject(record, e.getMessage());
+        }
+      }
+      if(!valid.isEmpty()) {
+        parsed.put(valid);
+      }
+    }
+    if(parsersRunning.decrementAndGet() == 0) {
+      for(int i = 0; i < config.getWriters(); i++) {
+        parsed.put(END);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * a writer stage. A batch is one transaction, so if it fails its projects are retried one at a
+   * time to find and reject the ones that cannot be inserted. The failed batch has already set the
+   * IDs it generated on the projects and their children, and those rows were rolled back, so the
+   * IDs are cleared before the retry
+   */
+  private Void writeRecords(BlockingQueue<List<ImportRecord>> parsed) throws IOException, InterruptedException {
+    List<ImportRecord> batch;
+    while((batch = parsed.take()) != END) {
+      List<Project> projects = new ArrayList<>(batch.size());
+      batch.forEach(record -> projects.add(record.project));
+      try {
+        projectDao.insertProjectAggregates(projects);
+        batch.forEach(this::countImported);
+      } catch (DbException e) {
+        for(ImportRecord record : batch) {
+          try {
+            clearIds(record.project);
+            projectDao.insertProjectAggregate(record.project);
+            countImported(record);
+          } catch (DbException single) {
+            reject(record, rootMessage(single));
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * removes the IDs an insert set on a project, its materials, steps and categories
+   * @param project
+   */
+  private void clearIds(Project project) {
+    project.setProjectId(null);
+    for(Material material : project.getMaterials()) {
+      material.setMaterialId(null);
+      material.setProjectId(null);
+    }
+    for(Step step : project.getSteps()) {
+      step.setStepId(null);
+      step.setProjectId(null);
+    }
+    for(Category category : project.getCategories()) {
+      category.setCategoryId(null);
+    }
+  }
+
+  private BufferedReader openInput() throws IOException {
+    InputStream in = Files.newInputStream(config.getFile());
+    if(config.getFile().getFileName().toString().endsWith(".gz")) {
+      in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+    }
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+  }
+
+  /**
+   * checks a parsed project against the limits of the schema, and drops repeated category names
+   * @param project
+   * @throws IllegalArgumentException if the project would not fit
+   */
+  private void validate(Project project) {
+    if(Objects.isNull(project.getProjectName()) || project.getProjectName().isBlank()) {
+      throw new IllegalArgumentException("The project name is missing");
+    }
+    checkLength(project.getProjectName(), "project name");
+    checkDecimal(project.getEstimatedHours(), "estimated hours");
+    checkDecimal(project.getActualHours(), "actual hours");
+
+    for(Material material : project.getMaterials()) {
+      checkLength(material.getMaterialName(), "material name");
+      checkDecimal(material.getCost(), "material cost");
+    }
+    Set<String> categoryNames = new HashSet<>();
+    project.getCategories().removeIf(category -> {
+      String name = category.getCategoryName();
+      if(Objects.isNull(name) || name.isBlank()) {
+        throw new IllegalArgumentException("A category name is missing");
+      }
+      checkLength(name, "category name");
+      return !categoryNames.add(name);
+    });
+  }
+
+  private void checkLength(String value, String name) {
+    if(Objects.nonNull(value) && value.length() > NAME_LENGTH) {
+      throw new IllegalArgumentException("The " + name + " is longer than " + NAME_LENGTH + " characters");
+    }
+  }
+
+  private void checkDecimal(BigDecimal value, String name) {
+    if(Objects.nonNull(value) && (value.scale() > 2 || value.abs().compareTo(MAX_DECIMAL) > 0)) {
+      throw new IllegalArgumentException("The " + name + " " + value + " does not fit DECIMAL(7,2)");
+    }
+  }
+
+  private void countImported(ImportRecord record) {
+    Project project = record.project;
+    imported.incrementAndGet();
+    rowsWritten.addAndGet(1 + project.getMaterials().size() + project.getSteps().size()
+        + project.getCategories().size());
+  }
+
+  /**
+   * writes a record to the reject file after a comment with its line number and the reason
+   */
+  private void reject(ImportRecord record, String reason) {
+    rejected.incrementAndGet();
+    synchronized(rejects) {
+      try {
+        rejects.write("# line " + record.line + ": " + String.valueOf(reason).replace('\n', ' ') + "\n");
+        rejects.write(record.text);
+        rejects.write('\n');
+      } catch (IOException e) {
+        throw new DbException(e);
+      }
+    }
+  }
+
+  private String rootMessage(Throwable e) {
+    while(Objects.nonNull(e.getCause())) {
+      e = e.getCause();
+    }
+    return e.getMessage();
+  }
+
+  private void reportProgress(long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(Locale.ROOT, "  %d read, %d imported, %d rejected, %d rows, %.0f rows/s%n",
+        read.get(), imported.get(), rejected.get(), rowsWritten.get(), rowsWritten.get() / seconds);
+  }
+
+  /**
+   * the text of one project from the input, with the project once it is parsed
+   */
+  private static class ImportRecord {
+    private final long line;
+    private final String text;
+    private Project project;
+
+    private ImportRecord(long line, String text) {
+      this.line = line;
+      this.text = text;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package projects.bulk;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzips everything written to it on a separate compressor thread, so serialization and compression
+ * run in parallel. Bytes are handed over in chunks through a bounded queue; when the compressor
+ * falls behind, writers block until it catches up. Closing the stream waits for the compressor to
+ * finish the gzip stream and flushes the target, which is left open. A writer that fails part way
+ * calls abort instead, which stops the compressor without finishing
+ */
+class GzipPipeOutputStream extends OutputStream {
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final int QUEUED_CHUNKS = 16;
+  private static final byte[] END = new byte[0];
+  private static final long ABORT_TIMEOUT_SECONDS = 10;
+
+  private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+  private final ExecutorService compressor;
+  private final Future<Void> compressed;
+  private byte[] buffer = new byte[CHUNK_SIZE];
+  private int count;
+  private boolean closed;
+
+  /**
+   * @param target receives the gzip stream
+   */
+  GzipPipeOutputStream(OutputStream target) {
+    compressor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-export-gzip");
+      thread.setDaemon(true);
+      return thread;
+    });
+    OutputStream unclosed = new FilterOutputStream(target) {
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+      }
+
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+    compressed = compressor.submit(() -> {
+      try (GZIPOutputStream gzip = new GZIPOutputStream(unclosed, CHUNK_SIZE)) {
+        byte[] chunk;
+        while ((chunk = chunks.take()) != END) {
+          gzip.write(chunk);
+        }
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == buffer.length) {
+      handOff();
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (count == buffer.length) {
+        handOff();
+      }
+      int copied = Math.min(length, buffer.length - count);
+      System.arraycopy(bytes, offset, buffer, count, copied);
+      count += copied;
+      offset += copied;
+      length -= copied;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (count > 0) {
+        handOff();
+      }
+      put(END);
+      compressed.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException("Compression failed", e.getCause());
+    } finally {
+      compressor.shutdownNow();
+    }
+  }
+
+  /**
+   * stops the compressor and drops what has not been compressed yet, leaving an incomplete gzip
+   * stream in the target. Waits for the compressor thread to end, so nothing is written to the
+   * target afterwards. Does nothing once the stream is closed
+   */
+  void abort() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    compressed.cancel(true);
+    compressor.shutdownNow();
+    try {
+      compressor.awaitTermination(ABORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * queues the filled part of the buffer for the compressor
+   */
+  private void handOff() throws IOException {
+    put(count == buffer.length ? buffer : Arrays.copyOf(buffer, count));
+    buffer = new byte[CHUNK_SIZE];
+    count = 0;
+  }
+
+  private void put(byte[] chunk) throws IOException {
+    try {
+      while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+        if (compressed.isDone()) {
+          compressed.get();
+          throw new IOException("The compressor stopped before the end of the stream.");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException("Compression failed", e.getCause());
+    }
+  }
+}
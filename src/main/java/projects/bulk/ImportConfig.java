@@ -0,0 +1,138 @@
+package projects.bulk;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * settings for a {@link CatalogImporter} run, read from key=value arguments:
+ * <ul>
+ * <li>file: the catalog to import, gzipped if the name ends in .gz (required)</li>
+ * <li>format: ndjson or csv (default from the file name, otherwise ndjson)</li>
+ * <li>rejects: file that records which could not be imported are written to (default the input
+ * file name followed by .rejects)</li>
+ * <li>target: mysql for the schema behind DbConnection, or embedded:NAME for an in-memory
+ * MySQL-mode database (default mysql). Only used when run from the command line</li>
+ * <li>parsers: threads parsing records (default the number of processors, at most 4)</li>
+ * <li>writers: parallel writer connections (default 4)</li>
+ * <li>batchSize: projects inserted and committed together by one writer (default 500)</li>
+ * <li>queueCapacity: batches each queue holds before the stage feeding it has to wait
+ * (default 8)</li>
+ * <li>progressInterval: seconds between progress reports (default 5)</li>
+ * </ul>
+ */
+public class ImportConfig {
+  private Path file;
+  private CatalogFormat format;
+  private Path rejects;
+  private String target = "mysql";
+  private int parsers = Math.min(4, Runtime.getRuntime().availableProcessors());
+  private int writers = 4;
+  private int batchSize = 500;
+  private int queueCapacity = 8;
+  private int progressInterval = 5;
+
+  /**
+   * @param args key=value settings. Settings that are not given keep their defaults
+   * @return ImportConfig
+   */
+  public static ImportConfig fromArgs(String[] args) {
+    ImportConfig config = new ImportConfig();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value but got " + arg);
+      }
+      String value = arg.substring(separator + 1);
+      switch (arg.substring(0, separator)) {
+        case "file":
+          config.file = Path.of(value);
+          break;
+        case "format":
+          config.format = CatalogFormat.fromName(value);
+          break;
+        case "rejects":
+          config.rejects = Path.of(value);
+          break;
+        case "target":
+          config.target = value;
+          break;
+        case "parsers":
+          config.parsers = Integer.parseInt(value);
+          break;
+        case "writers":
+          config.writers = Integer.parseInt(value);
+          break;
+        case "batchSize":
+          config.batchSize = Integer.parseInt(value);
+          break;
+        case "queueCapacity":
+          config.queueCapacity = Integer.parseInt(value);
+          break;
+        case "progressInterval":
+          config.progressInterval = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown setting: " + arg);
+      }
+    }
+    if (Objects.isNull(config.file)) {
+      throw new IllegalArgumentException("The file setting is required");
+    }
+    return config;
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public void setFile(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * @return the configured format, or the one matching the file name
+   */
+  public CatalogFormat getFormat() {
+    if (Objects.nonNull(format)) {
+      return format;
+    }
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    return name.endsWith(".csv") || name.endsWith(".csv.gz") ? CatalogFormat.CSV : CatalogFormat.NDJSON;
+  }
+
+  public void setFormat(CatalogFormat format) {
+    this.format = format;
+  }
+
+  /**
+   * @return the configured reject file, or the input file name followed by .rejects
+   */
+  public Path getRejects() {
+    return Objects.nonNull(rejects) ? rejects : file.resolveSibling(file.getFileName() + ".rejects");
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public int getParsers() {
+    return parsers;
+  }
+
+  public int getWriters() {
+    return writers;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public int getProgressInterval() {
+    return progressInterval;
+  }
+}
@@ -0,0 +1,52 @@
+package projects.bulk;
+
+import java.util.Locale;
+
+/**
+ * the outcome of a {@link CatalogImporter} run
+ */
+public class ImportResult {
+  private final long imported;
+  private final long rejected;
+  private final long rows;
+  private final long elapsedNanos;
+
+  /**
+   * @param imported projects added
+   * @param rejected records written to the reject file
+   * @param rows rows inserted into all tables
+   * @param elapsedNanos
+   */
+  public ImportResult(long imported, long rejected, long rows, long elapsedNanos) {
+    this.imported = imported;
+    this.rejected = rejected;
+    this.rows = rows;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public long getImported() {
+    return imported;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public double getRowsPerSecond() {
+    return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "%d projects imported, %d rejected, %d rows in %.1f s (%.0f rows/s)",
+        imported, rejected, rows, elapsedNanos / 1e9, getRowsPerSecond());
+  }
+}
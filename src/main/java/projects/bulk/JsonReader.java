@@ -0,0 +1,209 @@
+package projects.bulk;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a small JSON parser for catalog records. Objects become Maps, arrays Lists, numbers BigDecimals
+ * and null stays null. Malformed input throws IllegalArgumentException
+ */
+class JsonReader {
+  private final String text;
+  private int pos;
+
+  private JsonReader(String text) {
+    this.text = text;
+  }
+
+  /**
+   * @param text one complete JSON value
+   * @return the parsed value
+   * @throws IllegalArgumentException if the text is not valid JSON
+   */
+  static Object parse(String text) {
+    JsonReader reader = new JsonReader(text);
+    Object value = reader.readValue();
+    reader.skipWhitespace();
+    if (reader.pos != text.length()) {
+      throw reader.error("Unexpected text after the JSON value");
+    }
+    return value;
+  }
+
+  private Object readValue() {
+    skipWhitespace();
+    if (pos == text.length()) {
+      throw error("Unexpected end of input");
+    }
+    char ch = text.charAt(pos);
+    switch (ch) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray();
+      case '"':
+        return readString();
+      case 't':
+        readLiteral("true");
+        return Boolean.TRUE;
+      case 'f':
+        readLiteral("false");
+        return Boolean.FALSE;
+      case 'n':
+        readLiteral("null");
+        return null;
+      default:
+        return readNumber();
+    }
+  }
+
+  private Map<String, Object> readObject() {
+    Map<String, Object> object = new LinkedHashMap<>();
+    pos++;
+    skipWhitespace();
+    if (peek() == '}') {
+      pos++;
+      return object;
+    }
+    while (true) {
+      skipWhitespace();
+      if (peek() != '"') {
+        throw error("Expected a field name");
+      }
+      String name = readString();
+      skipWhitespace();
+      expect(':');
+      object.put(name, readValue());
+      skipWhitespace();
+      if (peek() == ',') {
+        pos++;
+      } else {
+        expect('}');
+        return object;
+      }
+    }
+  }
+
+  private List<Object> readArray() {
+    List<Object> array = new ArrayList<>();
+    pos++;
+    skipWhitespace();
+    if (peek() == ']') {
+      pos++;
+      return array;
+    }
+    while (true) {
+      array.add(readValue());
+      skipWhitespace();
+      if (peek() == ',') {
+        pos++;
+      } else {
+        expect(']');
+        return array;
+      }
+    }
+  }
+
+  private String readString() {
+    pos++;
+    StringBuilder value = new StringBuilder();
+    while (true) {
+      if (pos == text.length()) {
+        throw error("Unterminated string");
+      }
+      char ch = text.charAt(pos++);
+      if (ch == '"') {
+        return value.toString();
+      }
+      if (ch != '\\') {
+        value.append(ch);
+        continue;
+      }
+      if (pos == text.length()) {
+        throw error("Unterminated string");
+      }
+      char escaped = text.charAt(pos++);
+      switch (escaped) {
+        case '"':
+        case '\\':
+        case '/':
+          value.append(escaped);
+          break;
+        case 'b':
+          value.append('\b');
+          break;
+        case 'f':
+          value.append('\f');
+          break;
+        case 'n':
+          value.append('\n');
+          break;
+        case 'r':
+          value.append('\r');
+          break;
+        case 't':
+          value.append('\t');
+          break;
+        case 'u':
+          if (pos + 4 > text.length()) {
+            throw error("Incomplete unicode escape");
+          }
+          try {
+            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          pos += 4;
+          break;
+        default:
+          throw error("Invalid escape \\" + escaped);
+      }
+    }
+  }
+
+  private BigDecimal readNumber() {
+    int start = pos;
+    while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+      pos++;
+    }
+    if (start == pos) {
+      throw error("Unexpected character '" + text.charAt(pos) + "'");
+    }
+    try {
+      return new BigDecimal(text.substring(start, pos));
+    } catch (NumberFormatException e) {
+      throw error("Invalid number " + text.substring(start, pos));
+    }
+  }
+
+  private void readLiteral(String literal) {
+    if (!text.startsWith(literal, pos)) {
+      throw error("Unexpected character '" + text.charAt(pos) + "'");
+    }
+    pos += literal.length();
+  }
+
+  private void expect(char expected) {
+    if (peek() != expected) {
+      throw error("Expected '" + expected + "'");
+    }
+    pos++;
+  }
+
+  private char peek() {
+    return pos < text.length() ? text.charAt(pos) : 0;
+  }
+
+  private void skipWhitespace() {
+    while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at character " + (pos + 1));
+  }
+}
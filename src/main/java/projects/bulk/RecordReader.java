@@ -0,0 +1,127 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * splits catalog input into one record of text per project, without parsing it. For NDJSON a record
+ * is one line. For CSV it is a project row followed by its child rows; rows may span lines inside
+ * quoted fields. Blank lines, lines starting with # and the CSV header are skipped
+ */
+class RecordReader implements Closeable {
+  private final BufferedReader in;
+  private final CatalogFormat format;
+  private long lineNumber;
+  private long recordLine;
+  private long rowLine;
+  private String pendingRow;
+  private long pendingLine;
+
+  /**
+   * @param in
+   * @param format
+   */
+  RecordReader(BufferedReader in, CatalogFormat format) {
+    this.in = in;
+    this.format = format;
+  }
+
+  /**
+   * @return the text of the next project, or null at the end of the input
+   * @throws IOException
+   */
+  String next() throws IOException {
+    if (format == CatalogFormat.NDJSON) {
+      String line;
+      do {
+        line = in.readLine();
+        lineNumber++;
+      } while (Objects.nonNull(line) && isSkipped(line));
+      recordLine = lineNumber;
+      return line;
+    }
+
+    String row = pendingRow;
+    long firstLine = pendingLine;
+    pendingRow = null;
+    if (Objects.isNull(row)) {
+      row = nextCsvRow();
+      firstLine = rowLine;
+    }
+    if (Objects.isNull(row)) {
+      return null;
+    }
+    StringBuilder record = new StringBuilder(row);
+    String next;
+    while (Objects.nonNull(next = nextCsvRow())) {
+      if (next.startsWith("project,")) {
+        pendingRow = next;
+        pendingLine = rowLine;
+        break;
+      }
+      record.append('\n').append(next);
+    }
+    recordLine = firstLine;
+    return record.toString();
+  }
+
+  /**
+   * @return the line number the last record returned by next started on
+   */
+  long getRecordLine() {
+    return recordLine;
+  }
+
+  /**
+   * reads the next CSV row that is not skipped, joining lines while a quoted field is open, and
+   * sets rowLine to its first line
+   */
+  private String nextCsvRow() throws IOException {
+    while (true) {
+      String line = in.readLine();
+      lineNumber++;
+      if (Objects.isNull(line)) {
+        return null;
+      }
+      rowLine = lineNumber;
+      if (isSkipped(line) || line.equals(CatalogFormat.CSV_HEADER)) {
+        continue;
+      }
+      StringBuilder row = new StringBuilder(line);
+      while (hasOpenQuote(row)) {
+        String continuation = in.readLine();
+        if (Objects.isNull(continuation)) {
+          break;
+        }
+        lineNumber++;
+        row.append('\n').append(continuation);
+      }
+      return row.toString();
+    }
+  }
+
+  private boolean isSkipped(String line) {
+    return line.isBlank() || line.startsWith("#");
+  }
+
+  /**
+   * @return true if the row has an odd number of quotes, so a quoted field continues on the next
+   * line
+   */
+  private static boolean hasOpenQuote(CharSequence row) {
+    boolean open = false;
+    for (int i = 0; i < row.length(); i++) {
+      if (row.charAt(i) == '"') {
+        open = !open;
+      }
+    }
+    return open;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
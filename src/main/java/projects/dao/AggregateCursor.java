@@ -0,0 +1,119 @@
+package projects.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import provided.util.RowMapper;
+
+/**
+ * assembles project aggregates from four result sets that are all sorted by project_id: projects,
+ * materials, steps and project categories. Each child cursor is advanced in step with the project
+ * cursor like an ordered merge join, so only the current aggregate is held in memory
+ */
+class AggregateCursor implements Iterator<Project> {
+  private final ResultSet projects;
+  private final RowMapper<Project> projectMapper;
+  private final ChildCursor<Material> materials;
+  private final ChildCursor<Step> steps;
+  private final ChildCursor<Category> categories;
+  private Project next;
+  private boolean fetched;
+
+  /**
+   * @param projects project rows ordered by project_id
+   * @param materials material rows ordered by project_id
+   * @param steps step rows ordered by project_id, then step order
+   * @param categories rows of project_id followed by the category columns, ordered by project_id
+   * @throws SQLException
+   */
+  AggregateCursor(ResultSet projects, ResultSet materials, ResultSet steps, ResultSet categories)
+      throws SQLException {
+    this.projects = projects;
+    this.projectMapper = RowMapper.forResultSet(projects, Project.class);
+    this.materials = new ChildCursor<>(materials, Material.class, "project_id");
+    this.steps = new ChildCursor<>(steps, Step.class, "project_id");
+    this.categories = new ChildCursor<>(categories, Category.class, null);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (!fetched) {
+      next = fetchNext();
+      fetched = true;
+    }
+    return Objects.nonNull(next);
+  }
+
+  @Override
+  public Project next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    fetched = false;
+    return next;
+  }
+
+  private Project fetchNext() {
+    try {
+      if (!projects.next()) {
+        return null;
+      }
+      Project project = projectMapper.map(projects);
+      int projectId = project.getProjectId();
+      materials.collect(projectId, project.getMaterials());
+      steps.collect(projectId, project.getSteps());
+      categories.collect(projectId, project.getCategories());
+      return project;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * a child result set with one row of look-ahead
+   */
+  private static class ChildCursor<T> {
+    private final ResultSet rs;
+    private final RowMapper<T> mapper;
+    private final int projectIdColumn;
+    private boolean hasRow;
+
+    /**
+     * @param rs
+     * @param classType
+     * @param projectIdLabel label of the project ID column, or null if it is the first column
+     * @throws SQLException
+     */
+    private ChildCursor(ResultSet rs, Class<T> classType, String projectIdLabel)
+        throws SQLException {
+      this.rs = rs;
+      this.mapper = RowMapper.forResultSet(rs, classType);
+      this.projectIdColumn = Objects.isNull(projectIdLabel) ? 1 : rs.findColumn(projectIdLabel);
+      this.hasRow = rs.next();
+    }
+
+    /**
+     * skips rows of earlier projects, then adds the rows of the given project to children
+     * @param projectId
+     * @param children
+     * @throws SQLException
+     */
+    private void collect(int projectId, List<T> children) throws SQLException {
+      while (hasRow && rs.getInt(projectIdColumn) < projectId) {
+        hasRow = rs.next();
+      }
+      while (hasRow && rs.getInt(projectIdColumn) == projectId) {
+        children.add(mapper.map(rs));
+        hasRow = rs.next();
+      }
+    }
+  }
+}
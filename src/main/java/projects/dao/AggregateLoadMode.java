@@ -0,0 +1,16 @@
+package projects.dao;
+
+/**
+ * how a project is loaded together with its materials, steps and categories
+ */
+public enum AggregateLoadMode {
+  /**
+   * one query for the project row, then one query per child table: four round trips
+   */
+  PER_TABLE,
+
+  /**
+   * the project and all child rows in one UNION ALL query: a single round trip
+   */
+  SINGLE_QUERY
+}
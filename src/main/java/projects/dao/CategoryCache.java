@@ -0,0 +1,91 @@
+package projects.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import projects.entity.Category;
+
+/**
+ * process-wide copy of the category dictionary. Categories are never deleted, so once an ID is
+ * known for a name it stays valid. Entries are only added after the transaction that created them
+ * commits. A full load counts as complete for projects.categories.ttl milliseconds (a minute by
+ * default), so categories created by other processes show up once it has been read again
+ */
+class CategoryCache {
+  private static final long TTL_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(Long.getLong("projects.categories.ttl", 60_000));
+
+  private final ConcurrentMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+  private final ConcurrentNavigableMap<Integer, String> namesById = new ConcurrentSkipListMap<>();
+  private volatile boolean complete;
+  private volatile long loadedAt;
+
+  /**
+   * @param categoryName
+   * @return the category's ID, or null if it is not cached
+   */
+  Integer getId(String categoryName) {
+    return idsByName.get(categoryName);
+  }
+
+  /**
+   * adds a category that is known to exist in the database
+   * @param categoryId
+   * @param categoryName
+   */
+  void put(Integer categoryId, String categoryName) {
+    idsByName.put(categoryName, categoryId);
+    namesById.putIfAbsent(categoryId, categoryName);
+  }
+
+  /**
+   * forgets a name whose cached ID turned out to be unusable
+   * @param categoryName
+   */
+  void remove(String categoryName) {
+    Integer categoryId = idsByName.remove(categoryName);
+    if (Objects.nonNull(categoryId)) {
+      namesById.remove(categoryId, categoryName);
+      complete = false;
+    }
+  }
+
+  /**
+   * adds the full contents of the category table
+   * @param categories
+   */
+  void load(List<Category> categories) {
+    for (Category category : categories) {
+      put(category.getCategoryId(), category.getCategoryName());
+    }
+    loadedAt = System.nanoTime();
+    complete = true;
+  }
+
+  /**
+   * @return true if the whole category table was loaded within the time to live
+   */
+  boolean isComplete() {
+    return complete && System.nanoTime() - loadedAt < TTL_NANOS;
+  }
+
+  /**
+   * @return copies of all cached categories ordered by ID
+   */
+  List<Category> getAll() {
+    List<Category> categories = new ArrayList<>(namesById.size());
+    for (Map.Entry<Integer, String> entry : namesById.entrySet()) {
+      Category category = new Category();
+      category.setCategoryId(entry.getKey());
+      category.setCategoryName(entry.getValue());
+      categories.add(category);
+    }
+    return categories;
+  }
+}
@@ -0,0 +1,489 @@
+package projects.dao;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import projects.exception.DbException;
+
+/**
+ * a fixed-size pool of physical connections. Callers use the returned connections exactly like
+ * the ones from DriverManager: closing them hands the physical connection back to the pool, rolled
+ * back and with auto-commit restored, so the next borrower starts from a clean session.
+ * <p>
+ * The pool remembers the auto-commit, read-only and isolation settings of every physical
+ * connection. Setting one to the value it already has, or committing in auto-commit mode, does not
+ * reach the driver. Read-only and isolation are not reset on return; instead each borrow asks for
+ * the mode it needs, so a connection that keeps being borrowed the same way never changes its
+ * session state. Changing these settings with SQL statements instead of the JDBC methods bypasses
+ * the cache and must be avoided.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+  private static final int HISTOGRAM_BUCKETS = 32;
+
+  private final PoolConfig config;
+  private final Semaphore permits;
+  private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+  private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger total = new AtomicInteger();
+  private final AtomicLongArray acquireHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder leaks = new LongAdder();
+  private final LongAdder openFailures = new LongAdder();
+  private final ScheduledExecutorService housekeeper;
+  private volatile Runnable writeListener;
+  private volatile boolean closed;
+
+  /**
+   * creates the pool and starts the housekeeper, which opens the first minIdle connections in the
+   * background
+   * @param config
+   */
+  public ConnectionPool(PoolConfig config) {
+    this.config = config;
+    this.permits = new Semaphore(config.getMaxSize(), true);
+    this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    housekeeper.scheduleWithFixedDelay(this::housekeep, 0, config.getHousekeepingPeriod(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * borrows a connection for reading and writing, waiting up to the acquire timeout if all of them
+   * are in use. It has the database's default isolation level
+   * @return Connection that returns itself to the pool when closed
+   * @throws DbException
+   */
+  @Override
+  public Connection getConnection() {
+    return borrow(false);
+  }
+
+  /**
+   * borrows a read-only connection with the configured read isolation level, waiting up to the
+   * acquire timeout if all of them are in use
+   * @return Connection that returns itself to the pool when closed
+   * @throws DbException
+   */
+  public Connection getReadOnlyConnection() {
+    return borrow(true);
+  }
+
+  private Connection borrow(boolean readOnly) {
+    if (closed) {
+      throw new DbException("The connection pool is closed.");
+    }
+    long start = System.nanoTime();
+    try {
+      if (!permits.tryAcquire(config.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+        timeouts.increment();
+        throw new DbException("Timed out after " + config.getAcquireTimeout()
+            + " ms waiting for a database connection (" + getStats() + ")");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbException(e);
+    }
+
+    try {
+      PooledConnection pooled = takeIdle();
+      if (Objects.isNull(pooled)) {
+        pooled = open();
+      }
+      try {
+        applyMode(pooled, readOnly);
+      } catch (SQLException e) {
+        closePhysical(pooled);
+        throw e;
+      }
+      recordAcquire(System.nanoTime() - start);
+      pooled.borrowedAt = System.currentTimeMillis();
+      pooled.leakReported = false;
+      pooled.borrowSite = config.getLeakDetectionThreshold() > 0
+          ? new Throwable("Connection borrowed here") : null;
+      borrowed.add(pooled);
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] {Connection.class}, new Lease(pooled));
+    } catch (SQLException e) {
+      permits.release();
+      throw new DbException(e);
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * puts a connection in read-only or read-write mode, touching the driver only for settings that
+   * differ from what the connection already has
+   * @param pooled
+   * @param readOnly
+   * @throws SQLException
+   */
+  private void applyMode(PooledConnection pooled, boolean readOnly) throws SQLException {
+    int isolation = readOnly ? config.getReadIsolation() : pooled.defaultIsolation;
+    if (pooled.readOnly != readOnly) {
+      pooled.physical.setReadOnly(readOnly);
+      pooled.readOnly = readOnly;
+    }
+    if (pooled.isolation != isolation) {
+      pooled.physical.setTransactionIsolation(isolation);
+      pooled.isolation = isolation;
+    }
+  }
+
+  /**
+   * sets a callback that runs on the closing thread each time a read-write connection is handed
+   * back, after any transaction on it has ended
+   * @param writeListener or null for none
+   */
+  void setWriteListener(Runnable writeListener) {
+    this.writeListener = writeListener;
+  }
+
+  /**
+   * @return a snapshot of the pool counters
+   */
+  public PoolStats getStats() {
+    long[] histogram = new long[HISTOGRAM_BUCKETS];
+    for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+      histogram[bucket] = acquireHistogram.get(bucket);
+    }
+    return new PoolStats(borrowed.size(), idle.size(), permits.getQueueLength(), acquired.sum(),
+        timeouts.sum(), leaks.sum(), openFailures.sum(), histogram);
+  }
+
+  /**
+   * stops the housekeeper and closes the idle connections. Borrowed connections are closed as they
+   * are returned
+   */
+  @Override
+  public void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+    PooledConnection pooled;
+    while ((pooled = idle.pollFirst()) != null) {
+      closePhysical(pooled);
+    }
+  }
+
+  /**
+   * takes the most recently returned idle connection, discarding any that fail validation
+   * @return PooledConnection or null if there are no usable idle connections
+   */
+  private PooledConnection takeIdle() {
+    PooledConnection pooled;
+    while ((pooled = idle.pollFirst()) != null) {
+      long idleFor = System.currentTimeMillis() - pooled.lastReturned;
+      if (idleFor < config.getValidationSkipWindow() || isValid(pooled)) {
+        return pooled;
+      }
+      closePhysical(pooled);
+    }
+    return null;
+  }
+
+  private boolean isValid(PooledConnection pooled) {
+    try {
+      int seconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(config.getValidationTimeout()));
+      return pooled.physical.isValid(seconds);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private PooledConnection open() throws SQLException {
+    Connection physical =
+        DriverManager.getConnection(config.getJdbcUrl(), config.getUsername(), config.getPassword());
+    total.incrementAndGet();
+    PooledConnection pooled = new PooledConnection(physical);
+    try {
+      pooled.defaultIsolation = physical.getTransactionIsolation();
+      pooled.isolation = pooled.defaultIsolation;
+      pooled.readOnly = physical.isReadOnly();
+    } catch (SQLException e) {
+      closePhysical(pooled);
+      throw e;
+    }
+    return pooled;
+  }
+
+  private void closePhysical(PooledConnection pooled) {
+    total.decrementAndGet();
+    try {
+      pooled.physical.close();
+    } catch (SQLException e) {
+      // the connection is being discarded, so there is nothing left to clean up
+    }
+  }
+
+  /**
+   * hands a connection back to the pool once its lease has been closed
+   * @param pooled
+   */
+  private void release(PooledConnection pooled) {
+    borrowed.remove(pooled);
+    try {
+      boolean reusable = !pooled.broken && !closed && total.get() <= config.getMaxSize();
+      if (reusable) {
+        try {
+          if (!pooled.autoCommit) {
+            pooled.physical.rollback();
+            pooled.physical.setAutoCommit(true);
+            pooled.autoCommit = true;
+          }
+        } catch (SQLException e) {
+          reusable = false;
+        }
+      }
+      if (reusable) {
+        pooled.lastReturned = System.currentTimeMillis();
+        idle.offerFirst(pooled);
+      } else {
+        closePhysical(pooled);
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void recordAcquire(long nanos) {
+    long micros = nanos / 1_000;
+    int bucket = Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    acquireHistogram.incrementAndGet(bucket);
+    acquired.increment();
+  }
+
+  /**
+   * evicts connections idle past the idle timeout, tops the pool back up to minIdle and reports
+   * connections that have been borrowed for longer than the leak detection threshold. Each new
+   * idle connection is opened under a permit, like a borrower's, so a borrower opening a connection
+   * at the same time cannot take the pool past maxSize
+   */
+  private void housekeep() {
+    long now = System.currentTimeMillis();
+
+    Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+    while (oldestFirst.hasNext() && total.get() > config.getMinIdle()) {
+      PooledConnection pooled = oldestFirst.next();
+      if (now - pooled.lastReturned > config.getIdleTimeout() && idle.remove(pooled)) {
+        closePhysical(pooled);
+      }
+    }
+
+    while (!closed && idle.size() < config.getMinIdle() && total.get() < config.getMaxSize()
+        && permits.tryAcquire()) {
+      try {
+        PooledConnection pooled = open();
+        pooled.lastReturned = System.currentTimeMillis();
+        idle.offerLast(pooled);
+      } catch (SQLException e) {
+        openFailures.increment();
+        LOG.log(Level.WARNING, "Unable to open idle connection: " + e.getMessage());
+        break;
+      } finally {
+        permits.release();
+      }
+    }
+
+    long threshold = config.getLeakDetectionThreshold();
+    if (threshold > 0) {
+      for (PooledConnection pooled : borrowed) {
+        if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+          pooled.leakReported = true;
+          leaks.increment();
+          LOG.log(Level.WARNING, "Possible connection leak: connection borrowed "
+              + (now - pooled.borrowedAt) + " ms ago has not been closed.", pooled.borrowSite);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("The pool only hands out connections for its configured user.");
+  }
+
+  @Override
+  public PrintWriter getLogWriter() {
+    return null;
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) {
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) {
+  }
+
+  @Override
+  public int getLoginTimeout() {
+    return 0;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+
+  /**
+   * a physical connection, its bookkeeping and its cached session state. The session state is
+   * only touched by the thread that has the connection borrowed
+   */
+  private static final class PooledConnection {
+    private final Connection physical;
+    private boolean autoCommit = true;
+    private boolean readOnly;
+    private int isolation;
+    private int defaultIsolation;
+    private volatile long lastReturned;
+    private volatile long borrowedAt;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+    private Throwable borrowSite;
+
+    private PooledConnection(Connection physical) {
+      this.physical = physical;
+    }
+  }
+
+  /**
+   * the handle given to one borrower. A new lease is created for every borrow, so a handle that is
+   * closed twice, or used after close, can never affect the next borrower of the same physical
+   * connection
+   */
+  private final class Lease implements InvocationHandler {
+    private final PooledConnection pooled;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(PooledConnection pooled) {
+      this.pooled = pooled;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (released.compareAndSet(false, true)) {
+            boolean readWrite = !pooled.readOnly;
+            release(pooled);
+            Runnable listener = writeListener;
+            if (readWrite && Objects.nonNull(listener)) {
+              listener.run();
+            }
+          }
+          return null;
+        case "isClosed":
+          return released.get() || pooled.physical.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled " + pooled.physical;
+        default:
+          break;
+      }
+      if (released.get()) {
+        throw new SQLException("Connection is closed.");
+      }
+      switch (method.getName()) {
+        case "getAutoCommit":
+          return pooled.autoCommit;
+        case "isReadOnly":
+          return pooled.readOnly;
+        case "getTransactionIsolation":
+          return pooled.isolation;
+        case "setAutoCommit":
+          if (pooled.autoCommit == (Boolean) args[0]) {
+            return null;
+          }
+          break;
+        case "setReadOnly":
+          if (pooled.readOnly == (Boolean) args[0]) {
+            return null;
+          }
+          break;
+        case "setTransactionIsolation":
+          if (pooled.isolation == (Integer) args[0]) {
+            return null;
+          }
+          break;
+        case "commit":
+        case "rollback":
+          if (pooled.autoCommit && Objects.isNull(args)) {
+            return null;
+          }
+          break;
+        default:
+          break;
+      }
+      try {
+        Object result = method.invoke(pooled.physical, args);
+        switch (method.getName()) {
+          case "setAutoCommit":
+            pooled.autoCommit = (Boolean) args[0];
+            break;
+          case "setReadOnly":
+            pooled.readOnly = (Boolean) args[0];
+            break;
+          case "setTransactionIsolation":
+            pooled.isolation = (Integer) args[0];
+            break;
+          default:
+            break;
+        }
+        return result;
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof SQLException sqlException
+            && Objects.nonNull(sqlException.getSQLState())
+            && sqlException.getSQLState().startsWith("08")) {
+          pooled.broken = true;
+        }
+        throw cause;
+      }
+    }
+  }
+}
@@ -1,33 +1,356 @@
 package projects.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import projects.exception.DbException;
+import projects.metrics.DaoMetrics;
 
 public class DbConnection {
   private static final String SCHEMA = "projects";
   private static final String USER = "projects";
   private static final String PASSWORD = "projects";
-  private static final String HOST = "localhost";
-  private static final int PORT = 3306;
+  private static final String PRIMARY = "localhost:3306";
+
+  private static final ThreadLocal<RoutingDataSource> SHARD = new ThreadLocal<>();
+
+  private static volatile RoutingDataSource routing;
+  private static volatile ShardedDataSource shards;
+  private static volatile boolean shardsLoaded;
 
   /**
-   * obtains a connection with the database 
+   * borrows a connection from the primary's pool, for writes. Closing the connection returns it to
+   * the pool. If a UnitOfWork is open on the current thread, its connection is returned instead,
+   * and closing it does nothing. The time spent waiting for the pool is recorded in the metrics of
+   * the running DAO operation
    * @return Connection
+   * @throws DbException
    */
   public static Connection getConnection() {
-    String url = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false", HOST, PORT, SCHEMA,
-        USER, PASSWORD);
-    System.out.println("Connecting with url = " + url);
-    
+    UnitOfWork unitOfWork = UnitOfWork.current();
+    if (Objects.nonNull(unitOfWork)) {
+      return unitOfWork.join(getRouting());
+    }
+    long start = System.nanoTime();
     try {
-      Connection conn = DriverManager.getConnection(url);
-      System.out.println("Succesfully obtained connection.");
+      Connection conn = getRouting().getWriteConnection();
+      DaoMetrics.connectionAcquired(System.nanoTime() - start);
       return conn;
-    } catch (SQLException e) {
-      System.out.println("Connection Failed.");
-      throw new DbException(e);
+    } catch (RuntimeException e) {
+      DaoMetrics.failed();
+      throw e;
+    }
+  }
+
+  /**
+   * borrows a read-only connection with the configured read isolation level, for queries. It comes
+   * from a replica when one is healthy and has caught up with this thread's writes, otherwise from
+   * the primary. If a UnitOfWork is open on the current thread, its connection is returned
+   * instead, so the query sees the unit of work's own writes
+   * @return Connection
+   * @throws DbException
+   */
+  public static Connection getReadOnlyConnection() {
+    UnitOfWork unitOfWork = UnitOfWork.current();
+    if (Objects.nonNull(unitOfWork)) {
+      return unitOfWork.join(getRouting());
+    }
+    long start = System.nanoTime();
+    try {
+      Connection conn = getRouting().getReadConnection();
+      DaoMetrics.connectionAcquired(System.nanoTime() - start);
+      return conn;
+    } catch (RuntimeException e) {
+      DaoMetrics.failed();
+      throw e;
+    }
+  }
+
+  /**
+   * returns the pools of the shard the current thread is bound to, or else the shared primary and
+   * replica pools, creating them with the default settings on first use
+   * @return RoutingDataSource
+   */
+  public static RoutingDataSource getRouting() {
+    RoutingDataSource shard = SHARD.get();
+    if (Objects.nonNull(shard)) {
+      return shard;
+    }
+    RoutingDataSource current = routing;
+    if (Objects.isNull(current)) {
+      synchronized (DbConnection.class) {
+        current = routing;
+        if (Objects.isNull(current)) {
+          current = RoutingDataSource.open(defaultRoutingConfig());
+          routing = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * runs work with the current thread bound to a shard, so the connections it borrows come from
+   * that shard
+   * @param <T>
+   * @param shard or null to use the shared pools
+   * @param work
+   * @return the result of work
+   */
+  static <T> T onShard(RoutingDataSource shard, Supplier<T> work) {
+    RoutingDataSource previous = SHARD.get();
+    SHARD.set(shard);
+    try {
+      return work.get();
+    } finally {
+      if (Objects.isNull(previous)) {
+        SHARD.remove();
+      } else {
+        SHARD.set(previous);
+      }
+    }
+  }
+
+  /**
+   * wraps work so that it can run on another thread as if it ran on this one: bound to the same
+   * shard, and sharing this thread's write marks. Its reads see the writes this thread has made,
+   * and the writes it makes count as this thread's as soon as they are made, so this thread's
+   * reads see them once the work is done. Only the pools that exist when carryOver is called are
+   * shared. An open UnitOfWork does not carry over, so the work runs outside it
+   * @param <T>
+   * @param work
+   * @return Supplier that runs work with this thread's shard and write marks
+   */
+  public static <T> Supplier<T> carryOver(Supplier<T> work) {
+    RoutingDataSource shard = SHARD.get();
+    Map<RoutingDataSource, AtomicLong> marks = new HashMap<>();
+    for (RoutingDataSource source : knownRoutings()) {
+      marks.put(source, source.getWriteMark());
+    }
+    return () -> {
+      Map<RoutingDataSource, AtomicLong> own = new HashMap<>();
+      marks.forEach((source, mark) -> own.put(source, source.shareWriteMark(mark)));
+      try {
+        return onShard(shard, work);
+      } finally {
+        own.forEach(RoutingDataSource::shareWriteMark);
+      }
+    };
+  }
+
+  /**
+   * runs work with reads that only go to replicas that had caught up to the given time, as if this
+   * thread had written then. The thread's own later write marks are kept
+   * @param <T>
+   * @param writtenAt wall-clock time in milliseconds, or 0 for no constraint
+   * @param work
+   * @return the result of work
+   */
+  public static <T> T readAfter(long writtenAt, Supplier<T> work) {
+    if (writtenAt <= 0) {
+      return work.get();
+    }
+    Map<RoutingDataSource, AtomicLong> previous = new HashMap<>();
+    for (RoutingDataSource source : knownRoutings()) {
+      Long own = source.getLastWriteAt();
+      if (Objects.isNull(own) || own < writtenAt) {
+        previous.put(source, source.shareWriteMark(new AtomicLong(writtenAt)));
+      }
+    }
+    try {
+      return work.get();
+    } finally {
+      previous.forEach((source, own) -> {
+        AtomicLong mark = source.shareWriteMark(own);
+        if (Objects.nonNull(mark) && mark.get() != writtenAt) {
+          source.setLastWriteAt(mark.get());
+        }
+      });
+    }
+  }
+
+  /**
+   * tells whether a read on another thread, without the current thread's write marks, would still
+   * see every write the current thread has made
+   * @return false if a replica that reads may go to has not caught up with this thread's writes
+   */
+  public static boolean hasCaughtUp() {
+    for (RoutingDataSource source : knownRoutings()) {
+      if (!source.hasCaughtUp()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the shared pools and the pools of every shard that have been created
+   */
+  private static List<RoutingDataSource> knownRoutings() {
+    List<RoutingDataSource> routings = new ArrayList<>();
+    RoutingDataSource shared = routing;
+    if (Objects.nonNull(shared)) {
+      routings.add(shared);
+    }
+    ShardedDataSource current = shards;
+    if (Objects.nonNull(current)) {
+      current.getShardNames().forEach(name -> routings.add(current.getShard(name)));
+    }
+    return routings;
+  }
+
+  /**
+   * @return the shard the current thread is bound to, or null
+   */
+  static RoutingDataSource currentShard() {
+    return SHARD.get();
+  }
+
+  /**
+   * returns the shared shards. On first use they are built from the projects.shards system
+   * property, a comma-separated host:port list naming one primary per shard
+   * @return ShardedDataSource, or null if the projects are not sharded
+   */
+  public static ShardedDataSource getShards() {
+    if (!shardsLoaded) {
+      synchronized (DbConnection.class) {
+        if (!shardsLoaded) {
+          String hosts = System.getProperty("projects.shards");
+          if (Objects.nonNull(hosts) && !hosts.isBlank()) {
+            shards = new ShardedDataSource(defaultShardConfig(hosts));
+          }
+          shardsLoaded = true;
+        }
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * replaces the shared shards with ones built from the given settings and closes the old ones
+   * @param config
+   */
+  public static synchronized void configure(ShardConfig config) {
+    ShardedDataSource old = shards;
+    shards = new ShardedDataSource(config);
+    shardsLoaded = true;
+    if (Objects.nonNull(old)) {
+      old.close();
+    }
+  }
+
+  /**
+   * @return the shared pool of primary connections
+   */
+  public static ConnectionPool getPool() {
+    return getRouting().getPrimary();
+  }
+
+  /**
+   * replaces the shared pools with a single primary pool built from the given settings, with no
+   * replicas, and closes the old pools
+   * @param config
+   */
+  public static void configure(PoolConfig config) {
+    configure(new RoutingConfig(config));
+  }
+
+  /**
+   * replaces the shared pools with ones built from the given settings and closes the old ones
+   * @param config
+   */
+  public static synchronized void configure(RoutingConfig config) {
+    RoutingDataSource old = routing;
+    routing = RoutingDataSource.open(config);
+    if (Objects.nonNull(old)) {
+      old.close();
+    }
+  }
+
+  /**
+   * @return a snapshot of the shared primary pool's counters
+   */
+  public static PoolStats getPoolStats() {
+    return getPool().getStats();
+  }
+
+  /**
+   * builds the routing settings for the projects schema. The primary is projects.primary
+   * (host:port, localhost:3306 by default) and the replicas are the comma-separated host:port list
+   * in projects.replicas. projects.replica.maxLag and projects.replica.healthCheckPeriod set how
+   * replicas are checked
+   * @return RoutingConfig
+   */
+  public static RoutingConfig defaultRoutingConfig() {
+    RoutingConfig config = new RoutingConfig(defaultConfig());
+    String replicas = System.getProperty("projects.replicas", "");
+    for (String replica : replicas.split(",")) {
+      if (!replica.isBlank()) {
+        config.addReplica(defaultConfig(replica.trim()));
+      }
+    }
+    config.setMaxReplicaLag(Long.getLong("projects.replica.maxLag", config.getMaxReplicaLag()));
+    config.setHealthCheckPeriod(
+        Long.getLong("projects.replica.healthCheckPeriod", config.getHealthCheckPeriod()));
+    return config;
+  }
+
+  /**
+   * builds the shard settings for the projects schema on the given servers. Each shard is named
+   * after its host:port, has no replicas and uses the default pool settings
+   * @param hosts comma-separated host:port list
+   * @return ShardConfig
+   */
+  public static ShardConfig defaultShardConfig(String hosts) {
+    ShardConfig config = new ShardConfig();
+    for (String host : hosts.split(",")) {
+      if (!host.isBlank()) {
+        config.addShard(host.trim(), new RoutingConfig(defaultConfig(host.trim())));
+      }
+    }
+    return config;
+  }
+
+  /**
+   * builds the pool settings for the primary's projects schema. Sizes and timeouts can be
+   * overridden with projects.pool.* system properties
+   * @return PoolConfig
+   */
+  public static PoolConfig defaultConfig() {
+    return defaultConfig(System.getProperty("projects.primary", PRIMARY));
+  }
+
+  /**
+   * builds the pool settings for the projects schema on the given server
+   * @param hostAndPort
+   * @return PoolConfig
+   */
+  private static PoolConfig defaultConfig(String hostAndPort) {
+    PoolConfig config = new PoolConfig();
+    /*
+     * useCursorFetch lets statements with a fetch size stream through a server-side cursor. It
+     * switches to server-side prepared statements, so they are cached per pooled connection.
+     * rewriteBatchedStatements sends JDBC batches of inserts as multi-row INSERT statements.
+     */
+    config.setJdbcUrl(String.format("jdbc:mysql://%s/%s?useSSL=false&useCursorFetch=true"
+        + "&cachePrepStmts=true&rewriteBatchedStatements=true", hostAndPort, SCHEMA));
+    config.setUsername(USER);
+    config.setPassword(PASSWORD);
+    config.setMinIdle(Integer.getInteger("projects.pool.minIdle", config.getMinIdle()));
+    config.setMaxSize(Integer.getInteger("projects.pool.maxSize", config.getMaxSize()));
+    config.setAcquireTimeout(Long.getLong("projects.pool.acquireTimeout", config.getAcquireTimeout()));
+    config.setIdleTimeout(Long.getLong("projects.pool.idleTimeout", config.getIdleTimeout()));
+    config.setLeakDetectionThreshold(
+        Long.getLong("projects.pool.leakDetectionThreshold", config.getLeakDetectionThreshold()));
+    String readIsolation = System.getProperty("projects.pool.readIsolation");
+    if (Objects.nonNull(readIsolation)) {
+      config.setReadIsolation(PoolConfig.isolationLevel(readIsolation));
     }
+    return config;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import projects.exception.DbException;
+
+/**
+ * in-memory H2 databases running in MySQL mode, used in place of the MySQL server by the
+ * benchmarks and load tests so they run offline. Each name is a separate database that lives until
+ * the JVM exits. The H2 driver must be on the classpath
+ */
+public class EmbeddedDatabase {
+  private static final String URL_FORMAT =
+      "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+  /**
+   * builds pool settings for the named in-memory database
+   * @param name
+   * @return PoolConfig
+   */
+  public static PoolConfig poolConfig(String name) {
+    PoolConfig config = new PoolConfig();
+    config.setJdbcUrl(String.format(URL_FORMAT, name));
+    config.setUsername("sa");
+    config.setPassword("");
+    return config;
+  }
+
+  /**
+   * creates (or recreates) the projects schema with its sample projects in the named in-memory
+   * database
+   * @param name
+   * @return pool settings for the database
+   * @throws DbException
+   */
+  public static PoolConfig create(String name) {
+    PoolConfig config = poolConfig(name);
+    try(Connection conn = DriverManager.getConnection(config.getJdbcUrl(), config.getUsername(),
+        config.getPassword())) {
+      SchemaLoader.load(conn);
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+    return config;
+  }
+
+  /**
+   * creates a primary and replicas as separate in-memory databases, each with the projects schema
+   * and its sample projects. Nothing is replicated between them, so a row written to one node
+   * shows which node a read was routed to. Lag is never reported
+   * @param name name of the primary. Replica i is named name-replica-i
+   * @param replicas number of replicas
+   * @return routing settings for the nodes
+   * @throws DbException
+   */
+  public static RoutingConfig createCluster(String name, int replicas) {
+    RoutingConfig config = new RoutingConfig(create(name));
+    for (int replica = 1; replica <= replicas; replica++) {
+      config.addReplica(create(name + "-replica-" + replica));
+    }
+    config.setLagProbe(ReplicaLagProbe.NONE);
+    return config;
+  }
+
+  /**
+   * creates shards as separate in-memory databases. Each starts with the projects schema and the
+   * sample projects, and keeps only the samples the shard ring assigns to it, so together they
+   * hold every sample project once. Categories are on every shard with the same IDs
+   * @param name shard i is named name-shard-i
+   * @param count number of shards
+   * @return shard settings for the nodes, with no replicas
+   * @throws DbException
+   */
+  public static ShardConfig createShards(String name, int count) {
+    ShardConfig config = new ShardConfig();
+    List<String> names = new ArrayList<>();
+    for (int shard = 1; shard <= count; shard++) {
+      names.add(name + "-shard-" + shard);
+    }
+    ShardRing ring = new ShardRing(names, config.getVirtualNodes());
+
+    for (String shard : names) {
+      PoolConfig poolConfig = create(shard);
+      try(Connection conn = DriverManager.getConnection(poolConfig.getJdbcUrl(),
+          poolConfig.getUsername(), poolConfig.getPassword())) {
+        List<Integer> others = new ArrayList<>();
+        try(PreparedStatement stmt = conn.prepareStatement("SELECT project_id FROM project");
+            ResultSet rs = stmt.executeQuery()) {
+          while (rs.next()) {
+            if (!ring.shardFor(rs.getInt(1)).equals(shard)) {
+              others.add(rs.getInt(1));
+            }
+          }
+        }
+        try(PreparedStatement stmt = conn.prepareStatement("DELETE FROM project WHERE project_id = ?")) {
+          for (Integer projectId : others) {
+            stmt.setInt(1, projectId);
+            stmt.addBatch();
+          }
+          stmt.executeBatch();
+        }
+      } catch (SQLException e) {
+        throw new DbException(e);
+      }
+
+      RoutingConfig routing = new RoutingConfig(poolConfig);
+      routing.setLagProbe(ReplicaLagProbe.NONE);
+      config.addShard(shard, routing);
+    }
+    return config;
+  }
+}
@@ -0,0 +1,66 @@
+package projects.dao;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * which child collections of a project are loaded together with it. Collections in the plan are
+ * read up front; the others are lazy lists that load on first use. When the first lazy list of a
+ * kind is touched, that kind is loaded for every project that came back from the same call, in one
+ * query per ID_CHUNK_SIZE projects
+ */
+public final class FetchPlan {
+  /**
+   * the child collections of a project
+   */
+  public enum Association {
+    MATERIALS, STEPS, CATEGORIES
+  }
+
+  /**
+   * load everything up front. This is what the calls without a plan do
+   */
+  public static final FetchPlan ALL = new FetchPlan(EnumSet.allOf(Association.class));
+
+  /**
+   * load only the project rows; every child collection is lazy
+   */
+  public static final FetchPlan HEADER_ONLY = new FetchPlan(EnumSet.noneOf(Association.class));
+
+  private final Set<Association> eager;
+
+  private FetchPlan(Set<Association> eager) {
+    this.eager = Collections.unmodifiableSet(eager);
+  }
+
+  /**
+   * @param eager the collections to load up front. The rest are lazy
+   * @return FetchPlan
+   */
+  public static FetchPlan of(Association... eager) {
+    Set<Association> associations = EnumSet.noneOf(Association.class);
+    Collections.addAll(associations, eager);
+    return new FetchPlan(associations);
+  }
+
+  /**
+   * @param association
+   * @return true if the collection is loaded up front
+   */
+  public boolean isEager(Association association) {
+    return eager.contains(association);
+  }
+
+  /**
+   * @return true if every collection is loaded up front
+   */
+  public boolean isAll() {
+    return eager.size() == Association.values().length;
+  }
+
+  @Override
+  public String toString() {
+    return "FetchPlan" + eager;
+  }
+}
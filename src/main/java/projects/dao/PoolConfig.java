@@ -0,0 +1,166 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.util.Locale;
+
+/**
+ * settings for a {@link ConnectionPool}. All times are in milliseconds.
+ */
+public class PoolConfig {
+  private String jdbcUrl;
+  private String username;
+  private String password;
+  private int minIdle = 2;
+  private int maxSize = 10;
+  private long acquireTimeout = 30_000;
+  private long idleTimeout = 600_000;
+  private long validationTimeout = 5_000;
+  private long validationSkipWindow = 500;
+  private long leakDetectionThreshold = 0;
+  private long housekeepingPeriod = 30_000;
+  private int readIsolation = Connection.TRANSACTION_READ_COMMITTED;
+
+  public String getJdbcUrl() {
+    return jdbcUrl;
+  }
+
+  public void setJdbcUrl(String jdbcUrl) {
+    this.jdbcUrl = jdbcUrl;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public String getPassword() {
+    return password;
+  }
+
+  public void setPassword(String password) {
+    this.password = password;
+  }
+
+  /**
+   * number of idle connections the housekeeper keeps open
+   */
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  public void setMinIdle(int minIdle) {
+    this.minIdle = minIdle;
+  }
+
+  /**
+   * maximum number of open connections, borrowed and idle together
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * how long a caller waits for a connection before a DbException is thrown
+   */
+  public long getAcquireTimeout() {
+    return acquireTimeout;
+  }
+
+  public void setAcquireTimeout(long acquireTimeout) {
+    this.acquireTimeout = acquireTimeout;
+  }
+
+  /**
+   * idle connections above minIdle are closed after this long without use
+   */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * maximum time spent checking a connection with Connection.isValid on borrow
+   */
+  public long getValidationTimeout() {
+    return validationTimeout;
+  }
+
+  public void setValidationTimeout(long validationTimeout) {
+    this.validationTimeout = validationTimeout;
+  }
+
+  /**
+   * connections returned to the pool more recently than this are handed out without validation
+   */
+  public long getValidationSkipWindow() {
+    return validationSkipWindow;
+  }
+
+  public void setValidationSkipWindow(long validationSkipWindow) {
+    this.validationSkipWindow = validationSkipWindow;
+  }
+
+  /**
+   * a connection borrowed for longer than this is reported as a possible leak. 0 turns leak
+   * detection off
+   */
+  public long getLeakDetectionThreshold() {
+    return leakDetectionThreshold;
+  }
+
+  public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+    this.leakDetectionThreshold = leakDetectionThreshold;
+  }
+
+  /**
+   * how often idle eviction, minIdle refill and leak detection run
+   */
+  public long getHousekeepingPeriod() {
+    return housekeepingPeriod;
+  }
+
+  public void setHousekeepingPeriod(long housekeepingPeriod) {
+    this.housekeepingPeriod = housekeepingPeriod;
+  }
+
+  /**
+   * the isolation level of connections borrowed for single-statement reads. Multi-statement reads
+   * that need a consistent snapshot use REPEATABLE READ whatever this is set to
+   */
+  public int getReadIsolation() {
+    return readIsolation;
+  }
+
+  public void setReadIsolation(int readIsolation) {
+    this.readIsolation = readIsolation;
+  }
+
+  /**
+   * @param name READ_UNCOMMITTED, READ_COMMITTED, REPEATABLE_READ or SERIALIZABLE, in any case
+   * @return the matching Connection.TRANSACTION_* constant
+   */
+  public static int isolationLevel(String name) {
+    switch (name.trim().toUpperCase(Locale.ROOT).replace(' ', '_')) {
+      case "READ_UNCOMMITTED":
+        return Connection.TRANSACTION_READ_UNCOMMITTED;
+      case "READ_COMMITTED":
+        return Connection.TRANSACTION_READ_COMMITTED;
+      case "REPEATABLE_READ":
+        return Connection.TRANSACTION_REPEATABLE_READ;
+      case "SERIALIZABLE":
+        return Connection.TRANSACTION_SERIALIZABLE;
+      default:
+        throw new IllegalArgumentException("Unknown isolation level: " + name);
+    }
+  }
+}
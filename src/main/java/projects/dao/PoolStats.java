@@ -0,0 +1,109 @@
+package projects.dao;
+
+/**
+ * point-in-time snapshot of a {@link ConnectionPool}. The acquire-time histogram uses power of two
+ * buckets: bucket 0 counts acquires under 1 microsecond, bucket i counts acquires that took from
+ * 2^(i-1) up to 2^i microseconds.
+ */
+public class PoolStats {
+  private final int active;
+  private final int idle;
+  private final int waiters;
+  private final long acquired;
+  private final long timeouts;
+  private final long leaks;
+  private final long openFailures;
+  private final long[] acquireHistogram;
+
+  PoolStats(int active, int idle, int waiters, long acquired, long timeouts, long leaks,
+      long openFailures, long[] acquireHistogram) {
+    this.active = active;
+    this.idle = idle;
+    this.waiters = waiters;
+    this.acquired = acquired;
+    this.timeouts = timeouts;
+    this.leaks = leaks;
+    this.openFailures = openFailures;
+    this.acquireHistogram = acquireHistogram;
+  }
+
+  /**
+   * connections currently borrowed
+   */
+  public int getActive() {
+    return active;
+  }
+
+  /**
+   * open connections waiting in the pool
+   */
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * threads blocked waiting for a connection
+   */
+  public int getWaiters() {
+    return waiters;
+  }
+
+  public long getAcquired() {
+    return acquired;
+  }
+
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  public long getLeaks() {
+    return leaks;
+  }
+
+  /**
+   * times the housekeeper failed to open an idle connection
+   */
+  public long getOpenFailures() {
+    return openFailures;
+  }
+
+  public long[] getAcquireHistogram() {
+    return acquireHistogram.clone();
+  }
+
+  /**
+   * estimates an acquire-time percentile from the histogram
+   * @param percentile between 0 and 100
+   * @return upper bound of the bucket holding the percentile, in microseconds
+   */
+  public long getAcquirePercentileMicros(double percentile) {
+    long total = 0;
+    for (long count : acquireHistogram) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long target = (long) Math.ceil(total * percentile / 100.0);
+    long seen = 0;
+    for (int bucket = 0; bucket < acquireHistogram.length; bucket++) {
+      seen += acquireHistogram[bucket];
+      if (seen >= target) {
+        return 1L << bucket;
+      }
+    }
+    return 1L << (acquireHistogram.length - 1);
+  }
+
+  /**
+   * returns the pool counters and acquire-time percentiles
+   */
+  @Override
+  public String toString() {
+    return "active = " + active + ", idle = " + idle + ", waiters = " + waiters
+        + ", acquired = " + acquired + ", timeouts = " + timeouts + ", leaks = " + leaks
+        + ", open failures = " + openFailures
+        + ", acquire p50 <= " + getAcquirePercentileMicros(50) + "us"
+        + ", p99 <= " + getAcquirePercentileMicros(99) + "us";
+  }
+}
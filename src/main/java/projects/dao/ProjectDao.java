@@ -1,23 +1,53 @@
 package projects.dao;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import projects.dao.FetchPlan.Association;
 import projects.entity.Category;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectFilter;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectSummaryPage;
 import projects.entity.Step;
 import projects.exception.DbException;
+import projects.metrics.DaoMetrics;
+import projects.metrics.OperationMetrics;
 import provided.util.DaoBase;
+import provided.util.IntObjectMap;
+import provided.util.LazyList;
+import provided.util.RowMapper;
 
+@SuppressWarnings("try") // DaoMetrics.Scope resources are opened only to be closed at the end
 public class ProjectDao extends DaoBase{
   private static final String CATEGORY_TABLE = "category";
   private static final String MATERIAL_TABLE = "material";
@@ -25,6 +55,21 @@ public class ProjectDao extends DaoBase{
   private static final String PROJECT_CATEGORY_TABLE = "project_category";
   private static final String STEP_TABLE = "step";
   
+  private static final int ROW_PROJECT = 0;
+  private static final int ROW_MATERIAL = 1;
+  private static final int ROW_STEP = 2;
+  private static final int ROW_CATEGORY = 3;
+  
+  private static final int ID_CHUNK_SIZE = 500;
+  private static final int DEFAULT_FETCH_SIZE = 1_000;
+  
+  static final CategoryCache CATEGORIES = new CategoryCache();
+  
+  private static final int DEFAULT_BATCH_SIZE = 500;
+  
+  private AggregateLoadMode loadMode = AggregateLoadMode.SINGLE_QUERY;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  
   /**
    * connects to the database to add a new project, then returns the project with its auto-incremented project id
    * @param project
@@ -32,23 +77,47 @@ public class ProjectDao extends DaoBase{
    * @throws Dbexception
    */
   public Project insertProject(Project project) {
+    return insertProject(project, false);
+  }
+
+  /**
+   * connects to the database to add a new project with the ID it already has, such as one given
+   * out for a shard
+   * @param project
+   * @return project
+   * @throws IllegalArgumentException if the project has no ID
+   * @throws DbException
+   */
+  Project insertWithId(Project project) {
+    if(Objects.isNull(project.getProjectId())) {
+      throw new IllegalArgumentException("Project " + project.getProjectName() + " has no ID.");
+    }
+    return insertProject(project, true);
+  }
+
+  private Project insertProject(Project project, boolean presetId) {
     //@formatter:off
     String sql = "INSERT INTO " + PROJECT_TABLE 
-        + " (project_name, estimated_hours, actual_hours, difficulty, notes)" 
-        + " VALUES (?, ?, ?, ?, ? );";
+        + " (project_name, estimated_hours, actual_hours, difficulty, notes"
+        + (presetId ? ", project_id)" : ")")
+        + (presetId ? " VALUES (?, ?, ?, ?, ?, ?);" : " VALUES (?, ?, ?, ?, ? );");
     //@formatter:on
-    try(Connection conn = DbConnection.getConnection()){
+    try(DaoMetrics.Scope op = DaoMetrics.start("insertProject");
+        Connection conn = DbConnection.getConnection()){
       startTransaction(conn);
       
-      try(PreparedStatement stmt = conn.prepareStatement(sql)){
+      try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)){
         setParameter(stmt, 1, project.getProjectName(), String.class);
         setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
         setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
         setParameter(stmt, 4, project.getDifficulty(), Integer.class);
         setParameter(stmt, 5, project.getNotes(), String.class);
+        if(presetId) {
+          setParameter(stmt, 6, project.getProjectId(), Integer.class);
+        }
         
-        stmt.executeUpdate();
-        Integer projectId = getLastInsertId(conn, PROJECT_TABLE);
+        executeUpdate(stmt, sql);
+        Integer projectId = presetId ? project.getProjectId() : getGeneratedId(stmt);
         commitTransaction(conn);
         project.setProjectId(projectId);
         return project;
@@ -63,26 +132,97 @@ public class ProjectDao extends DaoBase{
   }
 
   /**
-   * connects to the database to gather all project details
+   * connects to the database to gather all project details. The single query runs in autocommit
+   * mode on a read-only connection
    * @return List of  all projects
    * @throws DbException
    */
   public List<Project> fetchAllProjects() {
     String sql = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name;";
-    try(Connection conn = DbConnection.getConnection()) {
-      startTransaction(conn);
-      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-        try(ResultSet rs = stmt.executeQuery()) {
-          List<Project> projects = new ArrayList<>();
-          
-          while(rs.next()) {
-            projects.add(extract(rs, Project.class));
-          }
-          return projects;
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchAllProjects");
+        Connection conn = DbConnection.getReadOnlyConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        List<Project> projects = new ArrayList<>();
+        RowMapper<Project> mapper = rowMapper(rs, Project.class);
+        
+        mapRows(rs, mapper, projects::add);
+        return projects;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to fetch one page of projects ordered by name. Pages are read by
+   * seeking past the (project_name, project_id) of the previous page's last row, so every page is a
+   * range scan of the project name index, however deep into the listing it is
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize maximum number of projects on the page, at least 1
+   * @return ProjectPage
+   * @throws DbException
+   */
+  public ProjectPage fetchProjectPage(String pageToken, int pageSize) {
+    if(pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be at least 1 but is " + pageSize);
+    }
+    String sql = "SELECT * FROM " + PROJECT_TABLE
+        + (Objects.isNull(pageToken) ? ""
+            : " WHERE project_name > ? OR (project_name = ? AND project_id > ?)")
+        + " ORDER BY project_name, project_id LIMIT ?;";
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectPage");
+        Connection conn = DbConnection.getReadOnlyConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+      int index = 1;
+      if(Objects.nonNull(pageToken)) {
+        PageKey after = PageKey.decode(pageToken);
+        setParameter(stmt, index++, after.projectName, String.class);
+        setParameter(stmt, index++, after.projectName, String.class);
+        setParameter(stmt, index++, after.projectId, Integer.class);
+      }
+      /* read one extra row to find out whether there is another page */
+      setParameter(stmt, index, pageSize + 1, Integer.class);
+      
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        List<Project> projects = new ArrayList<>(pageSize);
+        RowMapper<Project> mapper = rowMapper(rs, Project.class);
+        
+        boolean more = mapRows(rs, mapper, pageSize, projects::add) == pageSize && rs.next();
+        
+        String nextPageToken = null;
+        if(more) {
+          Project last = projects.get(projects.size() - 1);
+          nextPageToken = new PageKey(last.getProjectName(), last.getProjectId()).encode();
         }
-      } catch (Exception e) {
-        rollbackTransaction(conn);
-        throw new DbException(e);
+        return new ProjectPage(projects, nextPageToken);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to fetch a summary of every project that matches the filter, ordered
+   * by name. Only the project ID and the requested columns are read, so the notes and the child
+   * tables are never sent over the wire
+   * @param columns columns to load besides the project ID
+   * @param filter conditions on the projects, or null for all of them
+   * @return List of summaries
+   * @throws DbException
+   */
+  public List<ProjectSummary> fetchProjectSummaries(Set<SummaryColumn> columns, ProjectFilter filter) {
+    List<Object> parameters = new ArrayList<>();
+    String sql = summaryQuery(columns, filter, null, parameters) + " ORDER BY project_name, project_id;";
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectSummaries");
+        Connection conn = DbConnection.getReadOnlyConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+      setParameters(stmt, parameters);
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        List<ProjectSummary> summaries = new ArrayList<>();
+        RowMapper<ProjectSummary> mapper = rowMapper(rs, ProjectSummary.class);
+        mapRows(rs, mapper, summaries::add);
+        return summaries;
       }
     } catch (SQLException e) {
       throw new DbException(e);
@@ -90,31 +230,199 @@ public class ProjectDao extends DaoBase{
   }
 
   /**
-   * connects to the database to fetch a given project
+   * connects to the database to fetch one page of project summaries ordered by name, seeking past
+   * the previous page like fetchProjectPage. The project name is always loaded because it is part
+   * of the page key. A page of IDs and names is read from the project name index alone
+   * @param columns columns to load besides the project ID and name
+   * @param filter conditions on the projects, or null for all of them
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize maximum number of summaries on the page, at least 1
+   * @return ProjectSummaryPage
+   * @throws DbException
+   */
+  public ProjectSummaryPage fetchProjectSummaryPage(Set<SummaryColumn> columns, ProjectFilter filter,
+      String pageToken, int pageSize) {
+    if(pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be at least 1 but is " + pageSize);
+    }
+    Set<SummaryColumn> pageColumns = EnumSet.of(SummaryColumn.PROJECT_NAME);
+    pageColumns.addAll(columns);
+    PageKey after = Objects.isNull(pageToken) ? null : PageKey.decode(pageToken);
+    List<Object> parameters = new ArrayList<>();
+    String sql = summaryQuery(pageColumns, filter, after, parameters)
+        + " ORDER BY project_name, project_id LIMIT ?;";
+    /* read one extra row to find out whether there is another page */
+    parameters.add(pageSize + 1);
+    
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectSummaryPage");
+        Connection conn = DbConnection.getReadOnlyConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+      setParameters(stmt, parameters);
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        List<ProjectSummary> summaries = new ArrayList<>(pageSize);
+        RowMapper<ProjectSummary> mapper = rowMapper(rs, ProjectSummary.class);
+        
+        boolean more = mapRows(rs, mapper, pageSize, summaries::add) == pageSize && rs.next();
+        
+        String nextPageToken = null;
+        if(more) {
+          ProjectSummary last = summaries.get(summaries.size() - 1);
+          nextPageToken = new PageKey(last.getProjectName(), last.getProjectId()).encode();
+        }
+        return new ProjectSummaryPage(summaries, nextPageToken);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to stream all projects without reading them all into memory, using
+   * the default fetch size
+   * @return Stream of projects ordered by name. It must be closed to release its connection
+   * @throws DbException
+   */
+  public Stream<Project> streamAllProjects() {
+    return streamAllProjects(DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * connects to the database to stream all projects. The rows are read through a server-side
+   * cursor fetchSize rows at a time, so memory use stays the same whatever the size of the table
+   * @param fetchSize number of rows fetched from the server per round trip
+   * @return Stream of projects ordered by name. It must be closed to release its connection
+   * @throws DbException
+   */
+  public Stream<Project> streamAllProjects(int fetchSize) {
+    String sql = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name;";
+    Connection conn = DbConnection.getReadOnlyConnection();
+    PreparedStatement stmt = null;
+    try(DaoMetrics.Scope op = DaoMetrics.start("streamAllProjects")) {
+      stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      stmt.setFetchSize(fetchSize);
+      return countRows(stream(conn, stmt, sql, Project.class), project -> 1);
+    } catch (SQLException e) {
+      closeAll(stmt, conn);
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to stream every project with its materials, steps and categories.
+   * Four cursors, one per table and all sorted by project_id, are read in step with each other so
+   * only the current aggregate is held in memory. They share one transaction, so the aggregates
+   * come from a single consistent snapshot
+   * @param fetchSize number of rows fetched from the server per round trip on each cursor
+   * @return Stream of projects ordered by ID. It must be closed to release its connection
+   * @throws DbException
+   */
+  public Stream<Project> streamAllProjectAggregates(int fetchSize) {
+    Connection conn = DbConnection.getReadOnlyConnection();
+    Deque<AutoCloseable> resources = new ArrayDeque<>();
+    resources.push(conn);
+    try(DaoMetrics.Scope op = DaoMetrics.start("streamAllProjectAggregates")) {
+      startSnapshot(conn);
+      ResultSet projects = openCursor(conn, resources, fetchSize,
+          "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_id;");
+      ResultSet materials = openCursor(conn, resources, fetchSize,
+          "SELECT * FROM " + MATERIAL_TABLE + " ORDER BY project_id, material_id;");
+      ResultSet steps = openCursor(conn, resources, fetchSize,
+          "SELECT * FROM " + STEP_TABLE + " ORDER BY project_id, step_order, step_id;");
+      ResultSet categories = openCursor(conn, resources, fetchSize,
+          "SELECT pc.project_id, c.category_id, c.category_name FROM " + PROJECT_CATEGORY_TABLE
+          + " pc JOIN " + CATEGORY_TABLE + " c USING (category_id)"
+          + " ORDER BY pc.project_id, c.category_id;");
+      
+      AggregateCursor cursor = new AggregateCursor(projects, materials, steps, categories);
+      return countRows(StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+          Spliterator.ORDERED | Spliterator.NONNULL), false)
+          .onClose(() -> closeAll(resources.toArray(new AutoCloseable[0]))),
+          project -> 1 + project.getMaterials().size() + project.getSteps().size()
+              + project.getCategories().size());
+    } catch (SQLException | RuntimeException e) {
+      closeAll(resources.toArray(new AutoCloseable[0]));
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * counts the rows of a stream toward the operation that opened it. The rows are read after the
+   * operation has returned, so they are added to its metrics directly
+   * @param projects
+   * @param rows the number of rows a project was read from
+   * @return the stream
+   */
+  private Stream<Project> countRows(Stream<Project> projects, ToIntFunction<Project> rows) {
+    OperationMetrics operation = DaoMetrics.current();
+    if(Objects.isNull(operation)) {
+      return projects;
+    }
+    return projects.peek(project -> operation.addRowsRead(rows.applyAsInt(project)));
+  }
+
+  /**
+   * runs a forward-only query that streams its rows fetchSize at a time. The statement and result
+   * set are pushed onto resources so the caller can close them, newest first
+   * @param conn
+   * @param resources
+   * @param fetchSize
+   * @param sql
+   * @return ResultSet
+   * @throws SQLException
+   */
+  private ResultSet openCursor(Connection conn, Deque<AutoCloseable> resources, int fetchSize,
+      String sql) throws SQLException {
+    PreparedStatement stmt =
+        conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    resources.push(stmt);
+    stmt.setFetchSize(fetchSize);
+    ResultSet rs = executeQuery(stmt, sql);
+    resources.push(rs);
+    return rs;
+  }
+
+  /**
+   * chooses how fetchProjectById loads a project's materials, steps and categories
+   * @param loadMode
+   */
+  public void setLoadMode(AggregateLoadMode loadMode) {
+    this.loadMode = loadMode;
+  }
+
+  public AggregateLoadMode getLoadMode() {
+    return loadMode;
+  }
+
+  /**
+   * connects to the database to fetch a given project, using the configured load mode
    * @param projectId
    * @return project with given ID
    * @throws DbException
    */
   public Optional<Project> fetchProjectById(Integer projectId) {
-    String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?;";
-    try(Connection conn = DbConnection.getConnection()) {
-      startTransaction(conn);
+    return fetchProjectById(projectId, loadMode);
+  }
+
+  /**
+   * connects to the database to fetch a given project with its materials, steps and categories.
+   * A single query runs in autocommit mode; the per-table queries share a snapshot transaction
+   * @param projectId
+   * @param mode PER_TABLE runs one query per table, SINGLE_QUERY loads everything in one round trip
+   * @return project with given ID
+   * @throws DbException
+   */
+  public Optional<Project> fetchProjectById(Integer projectId, AggregateLoadMode mode) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectById");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
       try {
-        Project project = null;
-        try(PreparedStatement stmt = conn.prepareStatement(sql)){
-          setParameter(stmt, 1, projectId, Integer.class);
-          try(ResultSet rs = stmt.executeQuery()){
-            if (rs.next()) {
-              project = extract(rs, Project.class);
-            }
-          }
-        }
-        if(Objects.nonNull(project)) {
-          project.getMaterials().addAll(fetchProjectMaterials(conn, projectId));
-          project.getSteps().addAll(fetchProjectSteps(conn, projectId));
-          project.getCategories().addAll(fetchProjectCategories(conn, projectId));
+        Project project;
+        if(mode == AggregateLoadMode.SINGLE_QUERY) {
+          project = fetchProjectAggregate(conn, projectId);
+        } else {
+          startSnapshot(conn);
+          project = fetchProjectPerTable(conn, projectId);
+          commitTransaction(conn);
         }
-        commitTransaction(conn);
         return Optional.ofNullable(project);
       
       } catch (Exception e) {
@@ -127,103 +435,171 @@ public class ProjectDao extends DaoBase{
   }
 
   /**
-   * fetches the categories associated with a given project. uses an already open connection
+   * fetches a project with one query for the project row and one for each child table. uses an
+   * already open connection
    * @param conn
    * @param projectId
-   * @return List of categories
+   * @return project, or null if there is no project with the given ID
    * @throws SQLException
    */
-  private List<Category> fetchProjectCategories(Connection conn,
-      Integer projectId) throws SQLException {
-    
-    // SELECT c.* FROM project_category pc JOIN category c USING (category_id) WHERE project_id = ?;
-    String sql = "SELECT c.* FROM " + PROJECT_CATEGORY_TABLE + " pc "
-        + "JOIN " + CATEGORY_TABLE + " c USING (category_id) "
-        + "WHERE project_id = ?;";
-    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+  private Project fetchProjectPerTable(Connection conn, Integer projectId) throws SQLException {
+    String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?;";
+    Project project = null;
+    try(PreparedStatement stmt = conn.prepareStatement(sql)){
       setParameter(stmt, 1, projectId, Integer.class);
-      try(ResultSet rs = stmt.executeQuery()) {
-        List<Category> categories = new LinkedList<>();
-        
-        while(rs.next()) {
-          categories.add(extract(rs, Category.class));
+      try(ResultSet rs = executeQuery(stmt, sql)){
+        if (rs.next()) {
+          project = extract(rs, Project.class);
         }
-        return categories;
       }
     }
+    if(Objects.nonNull(project)) {
+      project.getMaterials().addAll(fetchProjectMaterials(conn, projectId));
+      project.getSteps().addAll(fetchProjectSteps(conn, projectId));
+      project.getCategories().addAll(fetchProjectCategories(conn, projectId));
+    }
+    return project;
   }
 
   /**
-   * fetches all steps associated with a given project. uses an already open connection
+   * fetches a project and all of its children in a single round trip. The project, material, step
+   * and category rows are stacked with UNION ALL into one result set of generic columns, tagged
+   * with row_type, and split back into entities here. uses an already open connection
    * @param conn
    * @param projectId
-   * @return List of steps
+   * @return project, or null if there is no project with the given ID
    * @throws SQLException
    */
-  private List<Step> fetchProjectSteps(Connection conn, Integer projectId) throws SQLException {
-    String sql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_id;";
+  private Project fetchProjectAggregate(Connection conn, Integer projectId) throws SQLException {
+    //@formatter:off
+    String sql = ""
+        + "SELECT " + ROW_PROJECT + " AS row_type, project_id AS id, project_name AS name,"
+        + " estimated_hours AS num1, actual_hours AS num2, difficulty AS int1, notes AS text1,"
+        + " 0 AS seq"
+        + " FROM " + PROJECT_TABLE + " WHERE project_id = ?"
+        + " UNION ALL"
+        + " SELECT " + ROW_MATERIAL + ", material_id, material_name, cost, NULL, num_required, NULL, 0"
+        + " FROM " + MATERIAL_TABLE + " WHERE project_id = ?"
+        + " UNION ALL"
+        + " SELECT " + ROW_STEP + ", step_id, NULL, NULL, NULL, step_order, step_text, step_order"
+        + " FROM " + STEP_TABLE + " WHERE project_id = ?"
+        + " UNION ALL"
+        + " SELECT " + ROW_CATEGORY + ", c.category_id, c.category_name, NULL, NULL, NULL, NULL, 0"
+        + " FROM " + PROJECT_CATEGORY_TABLE + " pc JOIN " + CATEGORY_TABLE + " c USING (category_id)"
+        + " WHERE pc.project_id = ?"
+        + " ORDER BY row_type, seq, id;";
+    //@formatter:on
     try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-        setParameter(stmt, 1, projectId, Integer.class);
-        try(ResultSet rs = stmt.executeQuery()) {
-          List<Step> steps = new LinkedList<>();
+      for(int index = 1; index <= 4; index++) {
+        setParameter(stmt, index, projectId, Integer.class);
+      }
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        Project project = null;
+        int rows = 0;
+        
+        while(rs.next()) {
+          int rowType = rs.getInt(1);
+          rows++;
           
-          while(rs.next()) {
-            steps.add(extract(rs, Step.class));
+          if(rowType == ROW_PROJECT) {
+            project = new Project();
+            project.setProjectId(rs.getInt(2));
+            project.setProjectName(rs.getString(3));
+            project.setEstimatedHours(rs.getBigDecimal(4));
+            project.setActualHours(rs.getBigDecimal(5));
+            project.setDifficulty(getInteger(rs, 6));
+            project.setNotes(rs.getString(7));
+          } else if(Objects.isNull(project)) {
+            /* children are sorted after the project row, so there is no project */
+            break;
+          } else if(rowType == ROW_MATERIAL) {
+            Material material = new Material();
+            material.setMaterialId(rs.getInt(2));
+            material.setProjectId(projectId);
+            material.setMaterialName(rs.getString(3));
+            material.setCost(rs.getBigDecimal(4));
+            material.setNumRequired(getInteger(rs, 6));
+            project.getMaterials().add(material);
+          } else if(rowType == ROW_STEP) {
+            Step step = new Step();
+            step.setStepId(rs.getInt(2));
+            step.setProjectId(projectId);
+            step.setStepOrder(getInteger(rs, 6));
+            step.setStepText(rs.getString(7));
+            project.getSteps().add(step);
+          } else {
+            Category category = new Category();
+            category.setCategoryId(rs.getInt(2));
+            category.setCategoryName(rs.getString(3));
+            project.getCategories().add(category);
           }
-          return steps;
-       }
+        }
+        DaoMetrics.rowsRead(rows);
+        return project;
+      }
     }
   }
 
   /**
-   * fetches all materials associated with a given project. uses an already open connection
-   * @param conn
-   * @param projectId
-   * @return List of materials
+   * reads a nullable INT column
+   * @param rs
+   * @param column
+   * @return Integer, or null if the column is SQL NULL
    * @throws SQLException
    */
-  private List<Material> fetchProjectMaterials(Connection conn, Integer projectId) throws SQLException {
-    String sql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
-    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-      setParameter(stmt, 1, projectId, Integer.class);
-      try(ResultSet rs = stmt.executeQuery()) {
-        List<Material> materials = new LinkedList<>();
-        
-        while(rs.next()) {
-          materials.add(extract(rs, Material.class));
-        }
-        return materials;
-      }
-    }
+  private Integer getInteger(ResultSet rs, int column) throws SQLException {
+    int value = rs.getInt(column);
+    return rs.wasNull() ? null : value;
   }
 
   /**
-   * connects to the database to update the details of a project
-   * @param updatedProject
-   * @return the project with its data updated
+   * connects to the database to fetch the given projects with their materials, steps and
+   * categories. The IDs are loaded in chunks of up to ID_CHUNK_SIZE, with four set-based queries
+   * per chunk no matter how many children the projects have
+   * @param projectIds
+   * @return projects in the order their IDs were given. IDs without a project are skipped
+   * @throws DbException
    */
-  public boolean modifyProjectDetails(Project updatedProject) {
-    String sql = "UPDATE " + PROJECT_TABLE + " SET "
-        + "project_name = ?, "
-        + "estimated_hours = ?, "
-        + "actual_hours = ?, "
-        + "difficulty = ?, "
-        + "notes = ? "
-        + "WHERE project_id = ?;";
-    try(Connection conn = DbConnection.getConnection()) {
-      startTransaction(conn);
-      try(PreparedStatement stmt = conn.prepareStatement(sql)){
-        setParameter(stmt, 1, updatedProject.getProjectName(), String.class);
-        setParameter(stmt, 2, updatedProject.getEstimatedHours(), BigDecimal.class);
-        setParameter(stmt, 3, updatedProject.getActualHours(), BigDecimal.class);
-        setParameter(stmt, 4, updatedProject.getDifficulty(), Integer.class);
-        setParameter(stmt, 5, updatedProject.getNotes(), String.class);
-        setParameter(stmt, 6, updatedProject.getProjectId(), Integer.class);
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+    return fetchProjectsByIds(projectIds, FetchPlan.ALL);
+  }
+
+  /**
+   * connects to the database to fetch the given projects with the child collections in the plan.
+   * The other collections are lazy and are loaded for all of the returned projects at once, the
+   * first time any of them is used
+   * @param projectIds
+   * @param plan
+   * @return projects in the order their IDs were given. IDs without a project are skipped
+   * @throws DbException
+   */
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds, FetchPlan plan) {
+    int[] ids = projectIds.stream().filter(Objects::nonNull).mapToInt(Integer::intValue)
+        .distinct().toArray();
+    if(ids.length == 0) {
+      return new ArrayList<>();
+    }
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectsByIds");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
+      startSnapshot(conn);
+      try {
+        IntObjectMap<Project> projectsById = new IntObjectMap<>(ids.length);
         
-        boolean successfulUpdate =  stmt.executeUpdate() == 1;
+        for(int from = 0; from < ids.length; from += ID_CHUNK_SIZE) {
+          int[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + ID_CHUNK_SIZE));
+          fetchAggregates(conn, chunk, projectsById, plan);
+        }
         commitTransaction(conn);
-        return successfulUpdate;
         
+        List<Project> projects = new ArrayList<>(projectsById.size());
+        for(int id : ids) {
+          Project project = projectsById.get(id);
+          if(Objects.nonNull(project)) {
+            projects.add(project);
+          }
+        }
+        installLazyLists(projects, plan);
+        return projects;
       } catch (Exception e) {
         rollbackTransaction(conn);
         throw new DbException(e);
@@ -232,83 +608,51 @@ public class ProjectDao extends DaoBase{
       throw new DbException(e);
     }
   }
+
   /**
-   * connects to the database to remove a project 
+   * connects to the database to fetch a given project with the child collections in the plan. The
+   * other collections are lazy and are loaded the first time they are used
    * @param projectId
-   * @return true if one row was removed from the project table, false otherwise
+   * @param plan
+   * @return project with given ID
+   * @throws DbException
    */
-  public boolean deleteProject(Integer projectId) {
-    String sql = "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?;";
-    try(Connection conn = DbConnection.getConnection()){
-      startTransaction(conn);
-      try(PreparedStatement stmt = conn.prepareStatement(sql)){
-        setParameter(stmt, 1, projectId, Integer.class);
-        
-        boolean sucessfulDelete = stmt.executeUpdate() == 1;
-        commitTransaction(conn);
-        return sucessfulDelete;
-        
-      } catch (Exception e) {
-        rollbackTransaction(conn);
-        throw new DbException(e);
+  public Optional<Project> fetchProjectById(Integer projectId, FetchPlan plan) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectById")) {
+      if(plan.isAll()) {
+        return fetchProjectById(projectId);
       }
-    } catch (SQLException e) {
-      throw new DbException(e);
+      return fetchProjectsByIds(List.of(projectId), plan).stream().findFirst();
     }
   }
+
   /**
-   * connects to the database to fetch the categories (name and ID)
-   * @return List of categories
+   * connects to the database to fetch every project with its materials, steps and categories,
+   * using one query per table
+   * @return List of all projects, ordered by name
+   * @throws DbException
    */
-  public List<Category> fetchAllCategories() {
-    String sql = "SELECT * FROM " + CATEGORY_TABLE + " ORDER BY category_id;";
-    try(Connection conn = DbConnection.getConnection()) {
-      startTransaction(conn);
-      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-        try(ResultSet rs = stmt.executeQuery()) {
-          List<Category> categories = new LinkedList<>();
-          
-          while(rs.next()) {
-            categories.add(extract(rs, Category.class));
-          }
-          return categories;
-        }
-      } catch (Exception e) {
-        rollbackTransaction(conn);
-        throw new DbException(e);
-      }
-      
-    } catch (SQLException e) {
-      throw new DbException(e);
-    }
+  public List<Project> fetchAllProjectsWithChildren() {
+    return fetchAllProjectsWithChildren(FetchPlan.ALL);
   }
+
   /**
-   * connects to the database to add a category to a project. 
-   * Adds a new category to the category and project_category tables if necessary.
-   * 
-   * @param projectId
-   * @param categoryName
-   * @return true if one row of the project table is changed, otherwise false
+   * connects to the database to fetch every project with the child collections in the plan. The
+   * other collections are lazy and are loaded for all projects at once, the first time any of them
+   * is used
+   * @param plan
+   * @return List of all projects, ordered by name
+   * @throws DbException
    */
-  public boolean addCategoryToProject(Integer projectId, String categoryName) {
-    String sql = "INSERT INTO " + CATEGORY_TABLE + " (category_name) VALUES (?);";
-    try(Connection conn = DbConnection.getConnection()) {
-      startTransaction(conn);
-      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-        setParameter(stmt, 1, categoryName, String.class);
-        
-        boolean successfulUpdate =  stmt.executeUpdate() == 1;
-        boolean anotherUpdate = false;
-        if(successfulUpdate) {
-          Integer categoryId = getCategoryId(conn, categoryName);
-          anotherUpdate = upDateProjectCategoryTable(conn, projectId, categoryId);
-        }
-        if (anotherUpdate) {
-          commitTransaction(conn);
-          return successfulUpdate; 
-        } else {
-          throw new DbException();
-        }
+  public List<Project> fetchAllProjectsWithChildren(FetchPlan plan) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchAllProjectsWithChildren");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
+      startSnapshot(conn);
+      try {
+        List<Project> projects = fetchAggregates(conn, null, new IntObjectMap<>(), plan);
+        commitTransaction(conn);
+        installLazyLists(projects, plan);
+        return projects;
       } catch (Exception e) {
         rollbackTransaction(conn);
         throw new DbException(e);
@@ -317,44 +661,592 @@ public class ProjectDao extends DaoBase{
       throw new DbException(e);
     }
   }
+
   /**
-   * updates the project category table when a category is added to a project. Uses an already open connection
+   * loads projects and the child collections in the plan with one query per table, and stitches
+   * the children onto their projects by ID. uses an already open connection
    * @param conn
-   * @param projectId
-   * @param categoryId
-   * @return true if one row of the project_category table was updated, otherwise false
+   * @param ids the project IDs to load, or null to load every project
+   * @param projectsById receives every project that was loaded
+   * @param plan
+   * @return the projects that were loaded, ordered by name
    * @throws SQLException
    */
-  private boolean upDateProjectCategoryTable(Connection conn, Integer projectId, Integer categoryId) throws SQLException {
-    String sql = "INSERT INTO " + PROJECT_CATEGORY_TABLE + " (project_id, category_id) VALUES (?, ?);";
-    try(PreparedStatement stmt = conn.prepareStatement(sql)){
-      setParameter(stmt, 1, projectId, Integer.class);
-      setParameter(stmt, 2, categoryId, Integer.class);
+  private List<Project> fetchAggregates(Connection conn, int[] ids,
+      IntObjectMap<Project> projectsById, FetchPlan plan) throws SQLException {
+    List<Project> projects = new ArrayList<>();
+    
+    String sql = "SELECT * FROM " + PROJECT_TABLE + idFilter("project_id", ids)
+        + " ORDER BY project_name;";
+    try(PreparedStatement stmt = prepareWithIds(conn, sql, ids);
+        ResultSet rs = executeQuery(stmt, sql)) {
+      RowMapper<Project> mapper = rowMapper(rs, Project.class);
       
-      boolean successfulUpdate = stmt.executeUpdate() == 1;
-      return successfulUpdate;
-    }   
+      mapRows(rs, mapper, project -> {
+        projects.add(project);
+        projectsById.put(project.getProjectId(), project);
+      });
+    }
+    if(projects.isEmpty()) {
+      return projects;
+    }
+    
+    if(plan.isEager(Association.MATERIALS)) {
+      fetchMaterials(conn, ids, childLists(projectsById, Project::getMaterials));
+    }
+    if(plan.isEager(Association.STEPS)) {
+      fetchSteps(conn, ids, childLists(projectsById, Project::getSteps));
+    }
+    if(plan.isEager(Association.CATEGORIES)) {
+      fetchCategories(conn, ids, childLists(projectsById, Project::getCategories));
+    }
+    return projects;
+  }
+
+  /**
+   * @return a lookup from project ID to one child list of the project, or to null if the project
+   * was not loaded
+   */
+  private <T> IntFunction<List<T>> childLists(IntObjectMap<Project> projectsById,
+      Function<Project, List<T>> association) {
+    return id -> {
+      Project project = projectsById.get(id);
+      return Objects.isNull(project) ? null : association.apply(project);
+    };
+  }
+
+  /**
+   * reads the materials of the given projects and adds each to its project's list. uses an already
+   * open connection
+   * @param conn
+   * @param ids the project IDs, or null for every project
+   * @param targets the list each project's materials are added to, or null to skip the project
+   * @throws SQLException
+   */
+  private void fetchMaterials(Connection conn, int[] ids, IntFunction<List<Material>> targets)
+      throws SQLException {
+    String sql = "SELECT * FROM " + MATERIAL_TABLE + idFilter("project_id", ids)
+        + " ORDER BY project_id, material_id;";
+    try(PreparedStatement stmt = prepareWithIds(conn, sql, ids);
+        ResultSet rs = executeQuery(stmt, sql)) {
+      RowMapper<Material> mapper = rowMapper(rs, Material.class);
+      
+      mapRows(rs, mapper, material -> {
+        List<Material> target = targets.apply(material.getProjectId());
+        if(Objects.nonNull(target)) {
+          target.add(material);
+        }
+      });
+    }
+  }
+
+  /**
+   * reads the steps of the given projects and adds each to its project's list. uses an already open
+   * connection
+   * @param conn
+   * @param ids the project IDs, or null for every project
+   * @param targets the list each project's steps are added to, or null to skip the project
+   * @throws SQLException
+   */
+  private void fetchSteps(Connection conn, int[] ids, IntFunction<List<Step>> targets)
+      throws SQLException {
+    String sql = "SELECT * FROM " + STEP_TABLE + idFilter("project_id", ids)
+        + " ORDER BY project_id, step_order, step_id;";
+    try(PreparedStatement stmt = prepareWithIds(conn, sql, ids);
+        ResultSet rs = executeQuery(stmt, sql)) {
+      RowMapper<Step> mapper = rowMapper(rs, Step.class);
+      
+      mapRows(rs, mapper, step -> {
+        List<Step> target = targets.apply(step.getProjectId());
+        if(Objects.nonNull(target)) {
+          target.add(step);
+        }
+      });
+    }
+  }
+
+  /**
+   * reads the categories of the given projects and adds each to its project's list. uses an already
+   * open connection
+   * @param conn
+   * @param ids the project IDs, or null for every project
+   * @param targets the list each project's categories are added to, or null to skip the project
+   * @throws SQLException
+   */
+  private void fetchCategories(Connection conn, int[] ids, IntFunction<List<Category>> targets)
+      throws SQLException {
+    String sql = "SELECT pc.project_id, c.category_id, c.category_name FROM " + PROJECT_CATEGORY_TABLE
+        + " pc JOIN " + CATEGORY_TABLE + " c USING (category_id)" + idFilter("pc.project_id", ids)
+        + " ORDER BY pc.project_id, c.category_id;";
+    try(PreparedStatement stmt = prepareWithIds(conn, sql, ids);
+        ResultSet rs = executeQuery(stmt, sql)) {
+      RowMapper<Category> mapper = rowMapper(rs, Category.class);
+      
+      mapRows(rs, mapper, category -> {
+        List<Category> target = targets.apply(rs.getInt(1));
+        if(Objects.nonNull(target)) {
+          target.add(category);
+        }
+      });
+    }
+  }
+
+  /**
+   * replaces the child collections that are not in the plan with lazy lists. The projects share
+   * one LazyGroup, so the first lazy list used loads its collection for all of them
+   * @param projects
+   * @param plan
+   */
+  private void installLazyLists(List<Project> projects, FetchPlan plan) {
+    if(plan.isAll() || projects.isEmpty()) {
+      return;
+    }
+    LazyGroup group = new LazyGroup(projects);
+    for(Project project : projects) {
+      if(!plan.isEager(Association.MATERIALS)) {
+        project.setMaterials(new LazyList<>(() -> group.load(Association.MATERIALS)));
+      }
+      if(!plan.isEager(Association.STEPS)) {
+        project.setSteps(new LazyList<>(() -> group.load(Association.STEPS)));
+      }
+      if(!plan.isEager(Association.CATEGORIES)) {
+        project.setCategories(new LazyList<>(() -> group.load(Association.CATEGORIES)));
+      }
+    }
+  }
+
+  /**
+   * loads one child collection for every project in a group whose list is still an unloaded lazy
+   * list, in chunks of ID_CHUNK_SIZE projects, and initializes the lazy lists
+   * @param <T> the child type
+   * @param projects
+   * @param association gets the child list of a project
+   * @param query reads the children of a chunk of projects
+   * @throws DbException
+   */
+  private <T> void loadLazyLists(List<Project> projects, Function<Project, List<T>> association,
+      ChildQuery<T> query) {
+    IntObjectMap<LazyList<T>> lazyLists = new IntObjectMap<>(projects.size());
+    IntObjectMap<List<T>> contents = new IntObjectMap<>(projects.size());
+    for(Project project : projects) {
+      if(association.apply(project) instanceof LazyList<T> lazyList && !lazyList.isLoaded()) {
+        lazyLists.put(project.getProjectId(), lazyList);
+        contents.put(project.getProjectId(), new ArrayList<>());
+      }
+    }
+    int[] ids = projects.stream().mapToInt(Project::getProjectId)
+        .filter(lazyLists::containsKey).toArray();
+    if(ids.length == 0) {
+      return;
+    }
+    
+    try(Connection conn = DbConnection.getReadOnlyConnection()) {
+      for(int from = 0; from < ids.length; from += ID_CHUNK_SIZE) {
+        int[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + ID_CHUNK_SIZE));
+        query.fetch(conn, chunk, contents::get);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+    for(int id : ids) {
+      lazyLists.get(id).initialize(contents.get(id));
+    }
+  }
+
+  /**
+   * starts a transaction at REPEATABLE READ so every query of a multi-statement read sees the same
+   * snapshot. Single-statement reads skip this and run in autocommit mode. uses an already open
+   * connection
+   * @param conn
+   * @throws SQLException
+   */
+  private void startSnapshot(Connection conn) throws SQLException {
+    conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+    startTransaction(conn);
+  }
+
+  /**
+   * builds a WHERE clause that limits a query to the given project IDs
+   * @param column
+   * @param ids the project IDs, or null for no limit
+   * @return the WHERE clause, or an empty string
+   */
+  private String idFilter(String column, int[] ids) {
+    return Objects.isNull(ids) ? "" : " WHERE " + column + " IN (" + placeholders(ids.length) + ")";
+  }
+
+  /**
+   * prepares a statement and binds the given project IDs to its parameters
+   * @param conn
+   * @param sql
+   * @param ids the project IDs, or null if the statement has no parameters
+   * @return PreparedStatement
+   * @throws SQLException
+   */
+  private PreparedStatement prepareWithIds(Connection conn, String sql, int[] ids)
+      throws SQLException {
+    PreparedStatement stmt = conn.prepareStatement(sql);
+    if(Objects.nonNull(ids)) {
+      for(int index = 0; index < ids.length; index++) {
+        stmt.setInt(index + 1, ids[index]);
+      }
+    }
+    return stmt;
+  }
+
+  /**
+   * connects to the database to fetch the materials of a project. The single query runs in
+   * autocommit mode on its own read-only connection, so it can run alongside the other child
+   * queries of the same project
+   * @param projectId
+   * @return List of materials
+   * @throws DbException
+   */
+  public List<Material> fetchProjectMaterials(Integer projectId) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectMaterials");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
+      return fetchProjectMaterials(conn, projectId);
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to fetch the steps of a project, in order, on its own read-only
+   * connection
+   * @param projectId
+   * @return List of steps
+   * @throws DbException
+   */
+  public List<Step> fetchProjectSteps(Integer projectId) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectSteps");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
+      return fetchProjectSteps(conn, projectId);
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to fetch the categories of a project on its own read-only connection
+   * @param projectId
+   * @return List of categories
+   * @throws DbException
+   */
+  public List<Category> fetchProjectCategories(Integer projectId) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchProjectCategories");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
+      return fetchProjectCategories(conn, projectId);
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * fetches the categories associated with a given project. uses an already open connection
+   * @param conn
+   * @param projectId
+   * @return List of categories
+   * @throws SQLException
+   */
+  private List<Category> fetchProjectCategories(Connection conn,
+      Integer projectId) throws SQLException {
+    
+    // SELECT c.* FROM project_category pc JOIN category c USING (category_id) WHERE project_id = ?;
+    String sql = "SELECT c.* FROM " + PROJECT_CATEGORY_TABLE + " pc "
+        + "JOIN " + CATEGORY_TABLE + " c USING (category_id) "
+        + "WHERE project_id = ?;";
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        List<Category> categories = new LinkedList<>();
+        RowMapper<Category> mapper = rowMapper(rs, Category.class);
+        
+        mapRows(rs, mapper, categories::add);
+        return categories;
+      }
+    }
+  }
+
+  /**
+   * fetches all steps associated with a given project, by step order. uses an already open connection
+   * @param conn
+   * @param projectId
+   * @return List of steps
+   * @throws SQLException
+   */
+  private List<Step> fetchProjectSteps(Connection conn, Integer projectId) throws SQLException {
+    String sql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order, step_id;";
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+        setParameter(stmt, 1, projectId, Integer.class);
+        try(ResultSet rs = executeQuery(stmt, sql)) {
+          List<Step> steps = new LinkedList<>();
+          RowMapper<Step> mapper = rowMapper(rs, Step.class);
+          
+          mapRows(rs, mapper, steps::add);
+          return steps;
+       }
+    }
+  }
+
+  /**
+   * fetches all materials associated with a given project. uses an already open connection
+   * @param conn
+   * @param projectId
+   * @return List of materials
+   * @throws SQLException
+   */
+  private List<Material> fetchProjectMaterials(Connection conn, Integer projectId) throws SQLException {
+    String sql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ? ORDER BY material_id;";
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+      try(ResultSet rs = executeQuery(stmt, sql)) {
+        List<Material> materials = new LinkedList<>();
+        RowMapper<Material> mapper = rowMapper(rs, Material.class);
+        
+        mapRows(rs, mapper, materials::add);
+        return materials;
+      }
+    }
+  }
+
+  /**
+   * connects to the database to update the details of a project
+   * @param updatedProject
+   * @return the project with its data updated
+   */
+  public boolean modifyProjectDetails(Project updatedProject) {
+    String sql = "UPDATE " + PROJECT_TABLE + " SET "
+        + "project_name = ?, "
+        + "estimated_hours = ?, "
+        + "actual_hours = ?, "
+        + "difficulty = ?, "
+        + "notes = ? "
+        + "WHERE project_id = ?;";
+    try(DaoMetrics.Scope op = DaoMetrics.start("modifyProjectDetails");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try(PreparedStatement stmt = conn.prepareStatement(sql)){
+        setParameter(stmt, 1, updatedProject.getProjectName(), String.class);
+        setParameter(stmt, 2, updatedProject.getEstimatedHours(), BigDecimal.class);
+        setParameter(stmt, 3, updatedProject.getActualHours(), BigDecimal.class);
+        setParameter(stmt, 4, updatedProject.getDifficulty(), Integer.class);
+        setParameter(stmt, 5, updatedProject.getNotes(), String.class);
+        setParameter(stmt, 6, updatedProject.getProjectId(), Integer.class);
+        
+        boolean successfulUpdate =  executeUpdate(stmt, sql) == 1;
+        commitTransaction(conn);
+        return successfulUpdate;
+        
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+  /**
+   * connects to the database to remove a project 
+   * @param projectId
+   * @return true if one row was removed from the project table, false otherwise
+   */
+  public boolean deleteProject(Integer projectId) {
+    String sql = "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?;";
+    try(DaoMetrics.Scope op = DaoMetrics.start("deleteProject");
+        Connection conn = DbConnection.getConnection()){
+      startTransaction(conn);
+      try(PreparedStatement stmt = conn.prepareStatement(sql)){
+        setParameter(stmt, 1, projectId, Integer.class);
+        
+        boolean sucessfulDelete = executeUpdate(stmt, sql) == 1;
+        commitTransaction(conn);
+        return sucessfulDelete;
+        
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+  /**
+   * connects to the database to remove many projects, with their materials, steps and category
+   * links, in one transaction
+   * @param projectIds
+   * @return number of projects removed
+   * @throws DbException
+   */
+  public int deleteProjects(Collection<Integer> projectIds) {
+    int[] ids = projectIds.stream().filter(Objects::nonNull).mapToInt(Integer::intValue)
+        .distinct().toArray();
+    if(ids.length == 0) {
+      return 0;
+    }
+    try(DaoMetrics.Scope op = DaoMetrics.start("deleteProjects");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try {
+        int deleted = 0;
+        for(int from = 0; from < ids.length; from += ID_CHUNK_SIZE) {
+          int[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + ID_CHUNK_SIZE));
+          String sql = "DELETE FROM " + PROJECT_TABLE + idFilter("project_id", chunk) + ";";
+          try(PreparedStatement stmt = prepareWithIds(conn, sql, chunk)) {
+            deleted += executeUpdate(stmt, sql);
+          }
+        }
+        commitTransaction(conn);
+        return deleted;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * returns the categories (name and ID). The category table is read once and then served from
+   * the process-wide category cache until its time to live, projects.categories.ttl, runs out
+   * @return List of categories
+   */
+  public List<Category> fetchAllCategories() {
+    if(CATEGORIES.isComplete()) {
+      return CATEGORIES.getAll();
+    }
+    String sql = "SELECT * FROM " + CATEGORY_TABLE + " ORDER BY category_id;";
+    try(DaoMetrics.Scope op = DaoMetrics.start("fetchAllCategories");
+        Connection conn = DbConnection.getReadOnlyConnection()) {
+      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try(ResultSet rs = executeQuery(stmt, sql)) {
+          List<Category> categories = new LinkedList<>();
+          RowMapper<Category> mapper = rowMapper(rs, Category.class);
+          
+          mapRows(rs, mapper, categories::add);
+          CATEGORIES.load(categories);
+          return CATEGORIES.getAll();
+        }
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+  /**
+   * connects to the database to add a category to a project. A category name that is already
+   * cached is linked with a single project_category insert. An unknown name is upserted into the
+   * category table first, which returns the existing ID if another project already uses it.
+   * 
+   * @param projectId
+   * @param categoryName
+   * @return true if the category was linked to the project, otherwise false
+   */
+  public boolean addCategoryToProject(Integer projectId, String categoryName) {
+    Integer cachedId = CATEGORIES.getId(categoryName);
+    try(DaoMetrics.Scope op = DaoMetrics.start("addCategoryToProject");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try {
+        Integer categoryId = Objects.nonNull(cachedId) ? cachedId : upsertCategory(conn, categoryName);
+        
+        if (upDateProjectCategoryTable(conn, projectId, categoryId)) {
+          commitTransaction(conn);
+          cacheCategory(categoryId, categoryName);
+          return true; 
+        } else {
+          throw new DbException();
+        }
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        if(Objects.nonNull(cachedId) && isMissingCategory(e)) {
+          CATEGORIES.remove(categoryName);
+        }
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+  /**
+   * tells whether a failed project_category insert referred to a category that does not exist, so
+   * a cached category ID was unusable. Other failures, like a link that is already there, leave the
+   * cache alone
+   * @param e
+   * @return true for a foreign key failure on category_id
+   */
+  private static boolean isMissingCategory(Throwable e) {
+    for(Throwable cause = e; Objects.nonNull(cause); cause = cause.getCause()) {
+      if(cause instanceof SQLException sqlException) {
+        /* MySQL's ER_NO_REFERENCED_ROW_2, or H2's parent missing state */
+        boolean foreignKey = sqlException.getErrorCode() == 1452
+            || "23506".equals(sqlException.getSQLState());
+        String message = String.valueOf(sqlException.getMessage()).toLowerCase(Locale.ROOT)
+            .replaceAll("[`\" \\s]", "");
+        if(foreignKey && message.contains("foreignkey(category_id)")) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
   /**
-   * gets the ID of a category for which the name is known. uses an already open connection.
+   * adds a category name to the category table if it is not there yet. uses an already open
+   * connection
    * @param conn
    * @param categoryName
-   * @return  Integer categoryId
+   * @return the ID of the new or existing category
    * @throws SQLException
    */
-  private Integer getCategoryId(Connection conn, String categoryName) throws SQLException {
-    String sql = "SELECT * FROM " + CATEGORY_TABLE + " WHERE category_name = ?;";
-    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+  Integer upsertCategory(Connection conn, String categoryName) throws SQLException {
+    /*
+     * On a duplicate name, LAST_INSERT_ID(category_id) makes the existing row's ID the generated
+     * key, so both cases return the ID without a second query.
+     */
+    String sql = "INSERT INTO " + CATEGORY_TABLE + " (category_name) VALUES (?)"
+        + " ON DUPLICATE KEY UPDATE category_id = LAST_INSERT_ID(category_id);";
+    try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
       setParameter(stmt, 1, categoryName, String.class);
-      try(ResultSet rs = stmt.executeQuery()){
-        Category id = new Category();
-        
-        while(rs.next()) {
-          id = extract(rs, Category.class);
-        }
-        return id.getCategoryId();
+      executeUpdate(stmt, sql);
+      return getGeneratedId(stmt);
+    }
+  }
+  /**
+   * adds categories with their IDs to the category table, skipping those already there. Shards use
+   * this so a category has the same ID on every shard. uses an already open connection
+   * @param conn
+   * @param categories
+   * @throws SQLException
+   */
+  void insertCategoriesIfAbsent(Connection conn, Collection<Category> categories) throws SQLException {
+    String sql = "INSERT INTO " + CATEGORY_TABLE + " (category_id, category_name) VALUES (?, ?)"
+        + " ON DUPLICATE KEY UPDATE category_id = category_id;";
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      for(Category category : categories) {
+        setParameter(stmt, 1, category.getCategoryId(), Integer.class);
+        setParameter(stmt, 2, category.getCategoryName(), String.class);
+        stmt.addBatch();
       }
-    } 
+      executeBatch(stmt, sql);
+    }
+  }
+  /**
+   * updates the project category table when a category is added to a project. Uses an already open connection
+   * @param conn
+   * @param projectId
+   * @param categoryId
+   * @return true if one row of the project_category table was updated, otherwise false
+   * @throws SQLException
+   */
+  private boolean upDateProjectCategoryTable(Connection conn, Integer projectId, Integer categoryId) throws SQLException {
+    String sql = "INSERT INTO " + PROJECT_CATEGORY_TABLE + " (project_id, category_id) VALUES (?, ?);";
+    try(PreparedStatement stmt = conn.prepareStatement(sql)){
+      setParameter(stmt, 1, projectId, Integer.class);
+      setParameter(stmt, 2, categoryId, Integer.class);
+      
+      boolean successfulUpdate = executeUpdate(stmt, sql) == 1;
+      return successfulUpdate;
+    }   
   }
   /**
    * adds a material to a project
@@ -367,16 +1259,18 @@ public class ProjectDao extends DaoBase{
         + " (project_id, material_name, num_required, cost)"
         + " VALUES (?, ?, ?, ?);";
     
-    try(Connection conn = DbConnection.getConnection()) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("addMaterialToProject");
+        Connection conn = DbConnection.getConnection()) {
       startTransaction(conn);
-      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
         setParameter(stmt, 1, material.getProjectId(), Integer.class);
         setParameter(stmt, 2, material.getMaterialName(), String.class);
         setParameter(stmt, 3, material.getNumRequired(), Integer.class);
         setParameter(stmt, 4, material.getCost(), BigDecimal.class);
         
-        boolean successfulUpdate = (stmt.executeUpdate() == 1);
+        boolean successfulUpdate = (executeUpdate(stmt, sql) == 1);
         if(successfulUpdate) {
+          material.setMaterialId(getGeneratedId(stmt));
           commitTransaction(conn);
         }
         return successfulUpdate;
@@ -385,4 +1279,545 @@ public class ProjectDao extends DaoBase{
       throw new DbException(e);
     }
   }
+
+  /**
+   * sets how many rows are sent to the database per JDBC batch by the bulk insert methods
+   * @param batchSize
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * connects to the database to add a project together with its materials, steps and categories in
+   * one transaction. The generated IDs are set on the project and on every material and step
+   * @param project
+   * @return project
+   * @throws DbException
+   */
+  public Project insertProjectAggregate(Project project) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("insertProjectAggregate")) {
+      insertProjectAggregates(List.of(project));
+      return project;
+    }
+  }
+
+  /**
+   * connects to the database to add many projects with their materials, steps and categories in
+   * one transaction. Each table is written with JDBC batches of batchSize rows, which the driver
+   * sends as multi-row INSERTs. Categories are linked by name and added to the category dictionary
+   * if they are new. The generated IDs are set on every project, material and step
+   * @param projects
+   * @return projects
+   * @throws DbException
+   */
+  public List<Project> insertProjectAggregates(List<Project> projects) {
+    return insertProjectAggregates(projects, false);
+  }
+
+  /**
+   * connects to the database to add many projects like insertProjectAggregates, but with the
+   * project IDs they already have, such as ones given out for a shard or read from another shard
+   * @param projects
+   * @return projects
+   * @throws IllegalArgumentException if a project has no ID
+   * @throws DbException
+   */
+  List<Project> insertWithIds(List<Project> projects) {
+    for(Project project : projects) {
+      if(Objects.isNull(project.getProjectId())) {
+        throw new IllegalArgumentException("Project " + project.getProjectName() + " has no ID.");
+      }
+    }
+    return insertProjectAggregates(projects, true);
+  }
+
+  private List<Project> insertProjectAggregates(List<Project> projects, boolean presetIds) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("insertProjectAggregates");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      Map<String, Integer> newCategories = new HashMap<>();
+      try {
+        insertProjects(conn, projects, presetIds);
+        
+        List<Material> materials = new ArrayList<>();
+        List<Step> steps = new ArrayList<>();
+        for(Project project : projects) {
+          for(Material material : project.getMaterials()) {
+            material.setProjectId(project.getProjectId());
+            materials.add(material);
+          }
+          int stepOrder = 1;
+          for(Step step : project.getSteps()) {
+            step.setProjectId(project.getProjectId());
+            if(Objects.isNull(step.getStepOrder())) {
+              step.setStepOrder(stepOrder);
+            }
+            stepOrder = step.getStepOrder() + 1;
+            steps.add(step);
+          }
+        }
+        insertMaterials(conn, materials);
+        insertSteps(conn, steps);
+        linkCategories(conn, projects, newCategories);
+        
+        commitTransaction(conn);
+        newCategories.forEach((name, id) -> cacheCategory(id, name));
+        return projects;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to add many materials to a project in one transaction
+   * @param projectId
+   * @param materials
+   * @return the generated material IDs, in the order of the materials. They are also set on the
+   *         materials
+   * @throws DbException
+   */
+  public List<Integer> addMaterialsToProject(Integer projectId, List<Material> materials) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("addMaterialsToProject");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try {
+        for(Material material : materials) {
+          material.setProjectId(projectId);
+        }
+        List<Integer> ids = insertMaterials(conn, materials);
+        commitTransaction(conn);
+        return ids;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to add many steps to a project in one transaction. Steps without a
+   * step order are numbered after the project's existing steps
+   * @param projectId
+   * @param steps
+   * @return the generated step IDs, in the order of the steps. They are also set on the steps
+   * @throws DbException
+   */
+  public List<Integer> addStepsToProject(Integer projectId, List<Step> steps) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("addStepsToProject");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try {
+        Integer stepOrder = getNextSequenceNumber(conn, projectId, STEP_TABLE, "project_id");
+        for(Step step : steps) {
+          step.setProjectId(projectId);
+          if(Objects.isNull(step.getStepOrder())) {
+            step.setStepOrder(stepOrder++);
+          }
+        }
+        List<Integer> ids = insertSteps(conn, steps);
+        commitTransaction(conn);
+        return ids;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to add materials to any number of projects in one transaction, using
+   * JDBC batches of batchSize rows
+   * @param materials materials with their project IDs set
+   * @return the generated material IDs, in the order of the materials. They are also set on the
+   * materials
+   * @throws DbException
+   */
+  public List<Integer> addMaterials(List<Material> materials) {
+    try(DaoMetrics.Scope op = DaoMetrics.start("addMaterials");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try {
+        List<Integer> ids = insertMaterials(conn, materials);
+        commitTransaction(conn);
+        return ids;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * connects to the database to link categories to any number of projects in one transaction,
+   * using JDBC batches of batchSize rows. Category names that are not in the dictionary yet are
+   * added to it
+   * @param categoryNames category names by project ID
+   * @throws DbException
+   */
+  public void addCategoriesToProjects(Map<Integer, List<String>> categoryNames) {
+    List<Project> links = new ArrayList<>(categoryNames.size());
+    categoryNames.forEach((projectId, names) -> {
+      Project link = new Project();
+      link.setProjectId(projectId);
+      for(String name : names) {
+        Category category = new Category();
+        category.setCategoryName(name);
+        link.getCategories().add(category);
+      }
+      links.add(link);
+    });
+    
+    try(DaoMetrics.Scope op = DaoMetrics.start("addCategoriesToProjects");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      Map<String, Integer> newCategories = new HashMap<>();
+      try {
+        linkCategories(conn, links, newCategories);
+        commitTransaction(conn);
+        newCategories.forEach((name, id) -> cacheCategory(id, name));
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * inserts project rows in batches and sets their generated IDs. uses an already open connection
+   * @param conn
+   * @param projects
+   * @param presetIds insert the projects with the IDs they have instead
+   * @throws SQLException
+   */
+  private void insertProjects(Connection conn, List<Project> projects, boolean presetIds)
+      throws SQLException {
+    String sql = "INSERT INTO " + PROJECT_TABLE
+        + " (project_name, estimated_hours, actual_hours, difficulty, notes"
+        + (presetIds ? ", project_id) VALUES (?, ?, ?, ?, ?, ?);" : ") VALUES (?, ?, ?, ?, ?);");
+    try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      for(int from = 0; from < projects.size(); from += batchSize) {
+        List<Project> batch = projects.subList(from, Math.min(projects.size(), from + batchSize));
+        for(Project project : batch) {
+          setParameter(stmt, 1, project.getProjectName(), String.class);
+          setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+          setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+          setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+          setParameter(stmt, 5, project.getNotes(), String.class);
+          if(presetIds) {
+            setParameter(stmt, 6, project.getProjectId(), Integer.class);
+          }
+          stmt.addBatch();
+        }
+        if(presetIds) {
+          executeBatch(stmt, sql);
+          continue;
+        }
+        List<Integer> ids = executeInsertBatch(stmt, sql, batch.size());
+        for(int i = 0; i < batch.size(); i++) {
+          batch.get(i).setProjectId(ids.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * inserts material rows in batches and sets their generated IDs. uses an already open connection
+   * @param conn
+   * @param materials
+   * @return the generated IDs
+   * @throws SQLException
+   */
+  private List<Integer> insertMaterials(Connection conn, List<Material> materials) throws SQLException {
+    String sql = "INSERT INTO " + MATERIAL_TABLE
+        + " (project_id, material_name, num_required, cost)"
+        + " VALUES (?, ?, ?, ?);";
+    List<Integer> allIds = new ArrayList<>(materials.size());
+    try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      for(int from = 0; from < materials.size(); from += batchSize) {
+        List<Material> batch = materials.subList(from, Math.min(materials.size(), from + batchSize));
+        for(Material material : batch) {
+          setParameter(stmt, 1, material.getProjectId(), Integer.class);
+          setParameter(stmt, 2, material.getMaterialName(), String.class);
+          setParameter(stmt, 3, material.getNumRequired(), Integer.class);
+          setParameter(stmt, 4, material.getCost(), BigDecimal.class);
+          stmt.addBatch();
+        }
+        List<Integer> ids = executeInsertBatch(stmt, sql, batch.size());
+        for(int i = 0; i < batch.size(); i++) {
+          batch.get(i).setMaterialId(ids.get(i));
+        }
+        allIds.addAll(ids);
+      }
+    }
+    return allIds;
+  }
+
+  /**
+   * inserts step rows in batches and sets their generated IDs. uses an already open connection
+   * @param conn
+   * @param steps
+   * @return the generated IDs
+   * @throws SQLException
+   */
+  private List<Integer> insertSteps(Connection conn, List<Step> steps) throws SQLException {
+    String sql = "INSERT INTO " + STEP_TABLE
+        + " (project_id, step_text, step_order)"
+        + " VALUES (?, ?, ?);";
+    List<Integer> allIds = new ArrayList<>(steps.size());
+    try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      for(int from = 0; from < steps.size(); from += batchSize) {
+        List<Step> batch = steps.subList(from, Math.min(steps.size(), from + batchSize));
+        for(Step step : batch) {
+          setParameter(stmt, 1, step.getProjectId(), Integer.class);
+          setParameter(stmt, 2, step.getStepText(), String.class);
+          setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+          stmt.addBatch();
+        }
+        List<Integer> ids = executeInsertBatch(stmt, sql, batch.size());
+        for(int i = 0; i < batch.size(); i++) {
+          batch.get(i).setStepId(ids.get(i));
+        }
+        allIds.addAll(ids);
+      }
+    }
+    return allIds;
+  }
+
+  /**
+   * links each project to its categories by name, adding unknown names to the category table.
+   * uses an already open connection
+   * @param conn
+   * @param projects
+   * @param newCategories receives the names and IDs that were not cached, to be cached after commit
+   * @throws SQLException
+   */
+  private void linkCategories(Connection conn, List<Project> projects,
+      Map<String, Integer> newCategories) throws SQLException {
+    String sql = "INSERT INTO " + PROJECT_CATEGORY_TABLE + " (project_id, category_id) VALUES (?, ?);";
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      int pending = 0;
+      for(Project project : projects) {
+        for(Category category : project.getCategories()) {
+          String name = category.getCategoryName();
+          Integer categoryId = CATEGORIES.getId(name);
+          if(Objects.isNull(categoryId)) {
+            categoryId = newCategories.get(name);
+          }
+          if(Objects.isNull(categoryId)) {
+            categoryId = upsertCategory(conn, name);
+            newCategories.put(name, categoryId);
+          }
+          category.setCategoryId(categoryId);
+          setParameter(stmt, 1, project.getProjectId(), Integer.class);
+          setParameter(stmt, 2, categoryId, Integer.class);
+          stmt.addBatch();
+          if(++pending == batchSize) {
+            executeBatch(stmt, sql);
+            pending = 0;
+          }
+        }
+      }
+      if(pending > 0) {
+        executeBatch(stmt, sql);
+      }
+    }
+  }
+
+  /**
+   * builds the SELECT and WHERE clauses of a summary query, adding the values of its placeholders
+   * to parameters
+   * @param columns columns to select besides project_id
+   * @param filter conditions, or null
+   * @param after the key to seek past, or null
+   * @param parameters receives the placeholder values in order
+   * @return the query without ORDER BY
+   */
+  private String summaryQuery(Set<SummaryColumn> columns, ProjectFilter filter, PageKey after,
+      List<Object> parameters) {
+    StringBuilder sql = new StringBuilder("SELECT project_id");
+    for(SummaryColumn column : columns) {
+      sql.append(", ").append(column.getColumnName());
+    }
+    sql.append(" FROM ").append(PROJECT_TABLE);
+    
+    List<String> conditions = new ArrayList<>();
+    if(Objects.nonNull(filter)) {
+      addCondition(conditions, parameters, "difficulty >= ?", filter.getMinDifficulty());
+      addCondition(conditions, parameters, "difficulty <= ?", filter.getMaxDifficulty());
+      addCondition(conditions, parameters, "estimated_hours >= ?", filter.getMinEstimatedHours());
+      addCondition(conditions, parameters, "estimated_hours <= ?", filter.getMaxEstimatedHours());
+      addCondition(conditions, parameters, "actual_hours >= ?", filter.getMinActualHours());
+      addCondition(conditions, parameters, "actual_hours <= ?", filter.getMaxActualHours());
+    }
+    if(Objects.nonNull(after)) {
+      conditions.add("(project_name > ? OR (project_name = ? AND project_id > ?))");
+      parameters.add(after.projectName);
+      parameters.add(after.projectName);
+      parameters.add(after.projectId);
+    }
+    if(!conditions.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+    return sql.toString();
+  }
+
+  /**
+   * adds the condition if its bound is set
+   */
+  private void addCondition(List<String> conditions, List<Object> parameters, String condition,
+      Object bound) {
+    if(Objects.nonNull(bound)) {
+      conditions.add(condition);
+      parameters.add(bound);
+    }
+  }
+
+  /**
+   * binds non-null values to the placeholders of a statement in order
+   */
+  private void setParameters(PreparedStatement stmt, List<Object> parameters) throws SQLException {
+    for(int i = 0; i < parameters.size(); i++) {
+      Object value = parameters.get(i);
+      setParameter(stmt, i + 1, value, value.getClass());
+    }
+  }
+
+  /**
+   * adds a category whose row has been committed to the category cache. Inside a unit of work the
+   * commit only happens when the unit of work commits, so a new entry is removed again if it rolls
+   * back
+   * @param categoryId
+   * @param categoryName
+   */
+  void cacheCategory(Integer categoryId, String categoryName) {
+    boolean known = Objects.nonNull(CATEGORIES.getId(categoryName));
+    CATEGORIES.put(categoryId, categoryName);
+    UnitOfWork unitOfWork = UnitOfWork.current();
+    if(!known && Objects.nonNull(unitOfWork)) {
+      unitOfWork.onRollback(() -> CATEGORIES.remove(categoryName));
+    }
+  }
+
+  /**
+   * @param projectName
+   * @param projectId
+   * @return the page token that continues after the given project
+   */
+  static String pageToken(String projectName, Integer projectId) {
+    return new PageKey(projectName, projectId).encode();
+  }
+
+  /**
+   * runs a batch of inserts and returns a generated ID for every row
+   * @param stmt
+   * @param sql
+   * @param rows number of rows in the batch
+   * @return the generated IDs in insert order
+   * @throws SQLException if the driver did not return a key for every row
+   */
+  private List<Integer> executeInsertBatch(PreparedStatement stmt, String sql, int rows)
+      throws SQLException {
+    executeBatch(stmt, sql);
+    List<Integer> ids = getGeneratedIds(stmt);
+    if(ids.size() != rows) {
+      throw new SQLException("Expected " + rows + " generated keys but got " + ids.size());
+    }
+    return ids;
+  }
+
+  /**
+   * reads the children of a set of projects into their lists
+   */
+  @FunctionalInterface
+  private interface ChildQuery<T> {
+    void fetch(Connection conn, int[] ids, IntFunction<List<T>> targets) throws SQLException;
+  }
+
+  /**
+   * the projects returned by one call with a fetch plan. Their lazy lists load through the group,
+   * so each lazy collection is read for all of the projects at once, from the shard, if any, that
+   * the projects were read from
+   */
+  private class LazyGroup {
+    private final List<Project> projects;
+    private final RoutingDataSource shard;
+    private final Set<Association> loaded = EnumSet.noneOf(Association.class);
+
+    private LazyGroup(List<Project> projects) {
+      this.projects = projects;
+      this.shard = DbConnection.currentShard();
+    }
+
+    private synchronized void load(Association association) {
+      if(!loaded.add(association)) {
+        return;
+      }
+      try(DaoMetrics.Scope op = DaoMetrics.start("loadLazyLists")) {
+        DbConnection.onShard(shard, () -> {
+          switch(association) {
+            case MATERIALS:
+              loadLazyLists(projects, Project::getMaterials, ProjectDao.this::fetchMaterials);
+              break;
+            case STEPS:
+              loadLazyLists(projects, Project::getSteps, ProjectDao.this::fetchSteps);
+              break;
+            case CATEGORIES:
+              loadLazyLists(projects, Project::getCategories, ProjectDao.this::fetchCategories);
+              break;
+          }
+          return null;
+        });
+      } catch (RuntimeException e) {
+        loaded.remove(association);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * the seek key behind a page token: the name and ID of the last project on a page
+   */
+  private static class PageKey {
+    private final String projectName;
+    private final Integer projectId;
+
+    private PageKey(String projectName, Integer projectId) {
+      this.projectName = projectName;
+      this.projectId = projectId;
+    }
+
+    private String encode() {
+      String key = projectId + ":" + projectName;
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PageKey decode(String pageToken) {
+      try {
+        String key = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+        int separator = key.indexOf(':');
+        return new PageKey(key.substring(separator + 1),
+            Integer.valueOf(key.substring(0, separator)));
+      } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new DbException("Invalid page token: " + pageToken, e);
+      }
+    }
+  }
 }
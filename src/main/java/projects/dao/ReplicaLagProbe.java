@@ -0,0 +1,44 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * measures how far a replica is behind the primary. The health check calls it on a connection of
+ * its own to the replica; an SQLException marks the replica down until the next check
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+  /**
+   * reads Seconds_Behind_Source from SHOW REPLICA STATUS. A server that is not a replica, or whose
+   * replication threads are stopped, fails the check
+   */
+  ReplicaLagProbe SHOW_REPLICA_STATUS = conn -> {
+    try(PreparedStatement stmt = conn.prepareStatement("SHOW REPLICA STATUS");
+        ResultSet rs = stmt.executeQuery()) {
+      if (!rs.next()) {
+        throw new SQLException("The server is not a replica.");
+      }
+      long seconds = rs.getLong("Seconds_Behind_Source");
+      if (rs.wasNull()) {
+        throw new SQLException("Replication is not running.");
+      }
+      return seconds * 1_000;
+    }
+  };
+
+  /**
+   * reports no lag, for nodes that are not replicated, such as embedded databases standing in for
+   * replicas
+   */
+  ReplicaLagProbe NONE = conn -> 0;
+
+  /**
+   * @param conn a read-only connection to the replica
+   * @return replication lag in milliseconds
+   * @throws SQLException if the replica cannot serve reads
+   */
+  long lagMillis(Connection conn) throws SQLException;
+}
@@ -0,0 +1,69 @@
+package projects.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * settings for a {@link RoutingDataSource}: one pool for the primary, one for each replica, and
+ * how replicas are checked. All times are in milliseconds.
+ */
+public class RoutingConfig {
+  private PoolConfig primary;
+  private final List<PoolConfig> replicas = new ArrayList<>();
+  private long maxReplicaLag = 5_000;
+  private long healthCheckPeriod = 1_000;
+  private ReplicaLagProbe lagProbe = ReplicaLagProbe.SHOW_REPLICA_STATUS;
+
+  public RoutingConfig() {
+  }
+
+  /**
+   * @param primary settings for the primary pool. There are no replicas until some are added
+   */
+  public RoutingConfig(PoolConfig primary) {
+    this.primary = primary;
+  }
+
+  public PoolConfig getPrimary() {
+    return primary;
+  }
+
+  public void setPrimary(PoolConfig primary) {
+    this.primary = primary;
+  }
+
+  public List<PoolConfig> getReplicas() {
+    return replicas;
+  }
+
+  public void addReplica(PoolConfig replica) {
+    replicas.add(replica);
+  }
+
+  /**
+   * replicas further behind the primary than this are not read from
+   */
+  public long getMaxReplicaLag() {
+    return maxReplicaLag;
+  }
+
+  public void setMaxReplicaLag(long maxReplicaLag) {
+    this.maxReplicaLag = maxReplicaLag;
+  }
+
+  public long getHealthCheckPeriod() {
+    return healthCheckPeriod;
+  }
+
+  public void setHealthCheckPeriod(long healthCheckPeriod) {
+    this.healthCheckPeriod = healthCheckPeriod;
+  }
+
+  public ReplicaLagProbe getLagProbe() {
+    return lagProbe;
+  }
+
+  public void setLagProbe(ReplicaLagProbe lagProbe) {
+    this.lagProbe = lagProbe;
+  }
+}
@@ -0,0 +1,344 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import projects.exception.DbException;
+
+/**
+ * splits connections between a primary and a set of read replicas, each with its own
+ * {@link ConnectionPool}. Writes always go to the primary. Reads are spread round robin over the
+ * replicas that passed their last health check and are no further behind than the maximum lag,
+ * and fall back to the primary when none qualify.
+ * <p>
+ * Reads are read-your-writes within a thread: after a thread hands back a read-write connection,
+ * its reads only go to a replica whose last check shows it had caught up to that point, measured
+ * as the check time minus the replica's lag minus the lag's resolution. Until then they are served
+ * by the primary.
+ */
+public class RoutingDataSource implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(RoutingDataSource.class.getName());
+  /*
+   * Seconds_Behind_Source is whole seconds, so a replica reporting a lag of 0 may still be up to a
+   * second behind
+   */
+  private static final long LAG_RESOLUTION = 1_000;
+
+  private final RoutingConfig config;
+  private final ConnectionPool primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  /* the time of each thread's last write, 0 if none. Threads working for another one share its mark */
+  private final ThreadLocal<AtomicLong> lastWriteAt = new ThreadLocal<>();
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private final LongAdder replicaReads = new LongAdder();
+  private final LongAdder primaryReads = new LongAdder();
+  private final ScheduledExecutorService healthChecker;
+
+  private RoutingDataSource(RoutingConfig config) {
+    this.config = config;
+    this.primary = new ConnectionPool(config.getPrimary());
+    for (PoolConfig replica : config.getReplicas()) {
+      replicas.add(new Replica(replica, new ConnectionPool(replica)));
+    }
+    this.healthChecker = replicas.isEmpty() ? null
+        : Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "projects-replica-health-check");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * opens the pools and, if there are replicas, starts checking them. Replicas are not read from
+   * until their first check passes
+   * @param config
+   * @return RoutingDataSource
+   */
+  public static RoutingDataSource open(RoutingConfig config) {
+    RoutingDataSource routing = new RoutingDataSource(config);
+    routing.primary.setWriteListener(
+        () -> routing.getWriteMark().accumulateAndGet(System.currentTimeMillis(), Math::max));
+    if (Objects.nonNull(routing.healthChecker)) {
+      routing.healthChecker.scheduleWithFixedDelay(routing::checkReplicas, 0,
+          config.getHealthCheckPeriod(), TimeUnit.MILLISECONDS);
+    }
+    return routing;
+  }
+
+  /**
+   * borrows a read-write connection from the primary
+   * @return Connection
+   * @throws DbException
+   */
+  public Connection getWriteConnection() {
+    return primary.getConnection();
+  }
+
+  /**
+   * borrows a read-only connection from the next replica that is healthy, within the maximum lag
+   * and has this thread's last write, or from the primary if there is no such replica
+   * @return Connection
+   * @throws DbException
+   */
+  public Connection getReadConnection() {
+    int count = replicas.size();
+    if (count > 0) {
+      Long writtenAt = getLastWriteAt();
+      int first = Math.floorMod(nextReplica.getAndIncrement(), count);
+      for (int offset = 0; offset < count; offset++) {
+        Replica replica = replicas.get((first + offset) % count);
+        if (!replica.canServe(writtenAt, config.getMaxReplicaLag())) {
+          continue;
+        }
+        try {
+          Connection conn = replica.pool.getReadOnlyConnection();
+          replicaReads.increment();
+          return conn;
+        } catch (DbException e) {
+          /* a pool timeout only means the replica is busy; a failure to connect means it is down */
+          if (e.getCause() instanceof SQLException) {
+            replica.markDown(e.getCause());
+          }
+        }
+      }
+    }
+    primaryReads.increment();
+    return primary.getReadOnlyConnection();
+  }
+
+  public ConnectionPool getPrimary() {
+    return primary;
+  }
+
+  /**
+   * @return when the current thread last handed back a read-write connection, or null
+   */
+  Long getLastWriteAt() {
+    AtomicLong mark = lastWriteAt.get();
+    if (Objects.isNull(mark) || mark.get() == 0) {
+      return null;
+    }
+    return mark.get();
+  }
+
+  /**
+   * records a write made on another thread on behalf of this one. An earlier time than the one
+   * already recorded is ignored
+   * @param writtenAt or null to clear the current thread's mark
+   */
+  void setLastWriteAt(Long writtenAt) {
+    if (Objects.isNull(writtenAt)) {
+      lastWriteAt.remove();
+    } else {
+      getWriteMark().accumulateAndGet(writtenAt, Math::max);
+    }
+  }
+
+  /**
+   * @return the current thread's write mark, created if it has none, for another thread to share
+   * with shareWriteMark
+   */
+  AtomicLong getWriteMark() {
+    AtomicLong mark = lastWriteAt.get();
+    if (Objects.isNull(mark)) {
+      mark = new AtomicLong();
+      lastWriteAt.set(mark);
+    }
+    return mark;
+  }
+
+  /**
+   * makes the current thread read after, and record its writes in, another thread's write mark,
+   * so the other thread sees those writes as its own as soon as they are made
+   * @param mark from getWriteMark on the other thread, or null to clear the current thread's mark
+   * @return the mark the current thread had before, or null
+   */
+  AtomicLong shareWriteMark(AtomicLong mark) {
+    AtomicLong previous = lastWriteAt.get();
+    if (Objects.isNull(mark)) {
+      lastWriteAt.remove();
+    } else {
+      lastWriteAt.set(mark);
+    }
+    return previous;
+  }
+
+  /**
+   * @return true if every replica that reads could be sent to already has the current thread's
+   * last write, so a read sees it from any node
+   */
+  boolean hasCaughtUp() {
+    Long writtenAt = getLastWriteAt();
+    if (Objects.isNull(writtenAt)) {
+      return true;
+    }
+    long maxLag = config.getMaxReplicaLag();
+    for (Replica replica : replicas) {
+      if (replica.canServe(null, maxLag) && !replica.canServe(writtenAt, maxLag)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * checks every replica once over its own probe connection, outside the pool, so a replica whose
+   * pool is saturated is still checked without waiting. Only a database error marks a replica
+   * down. Runs on the health check thread
+   */
+  private void checkReplicas() {
+    for (Replica replica : replicas) {
+      long checkedAt = System.currentTimeMillis();
+      try {
+        Connection conn = replica.getProbe();
+        int seconds = (int) Math.max(1,
+            TimeUnit.MILLISECONDS.toSeconds(replica.config.getValidationTimeout()));
+        if (!conn.isValid(seconds)) {
+          throw new SQLException("The connection is not valid.");
+        }
+        replica.markUp(config.getLagProbe().lagMillis(conn), checkedAt);
+      } catch (SQLException e) {
+        replica.closeProbe();
+        replica.markDown(e);
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Health check of replica " + replica.config.getJdbcUrl() + " failed.",
+            e);
+      }
+    }
+  }
+
+  /**
+   * stops the health checks and closes every pool
+   */
+  @Override
+  public void close() {
+    if (Objects.nonNull(healthChecker)) {
+      healthChecker.shutdownNow();
+      try {
+        healthChecker.awaitTermination(config.getHealthCheckPeriod(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    primary.close();
+    for (Replica replica : replicas) {
+      replica.closeProbe();
+      replica.pool.close();
+    }
+  }
+
+  /**
+   * returns the read counts and the state of each replica
+   */
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("replica reads = ").append(replicaReads.sum())
+        .append(", primary reads = ").append(primaryReads.sum());
+    for (Replica replica : replicas) {
+      result.append("\n   ").append(replica);
+    }
+    return result.toString();
+  }
+
+  /**
+   * a replica, its pool and the result of its last health check
+   */
+  private static final class Replica {
+    private final PoolConfig config;
+    private final ConnectionPool pool;
+    private volatile Health health = Health.UNCHECKED;
+    /* used only by the health check thread */
+    private Connection probe;
+
+    private Replica(PoolConfig config, ConnectionPool pool) {
+      this.config = config;
+      this.pool = pool;
+    }
+
+    /**
+     * @return the read-only connection the health checks run on, opened if there is none
+     * @throws SQLException
+     */
+    private Connection getProbe() throws SQLException {
+      if (Objects.isNull(probe)) {
+        probe = DriverManager.getConnection(config.getJdbcUrl(), config.getUsername(),
+            config.getPassword());
+        probe.setReadOnly(true);
+      }
+      return probe;
+    }
+
+    private void closeProbe() {
+      if (Objects.nonNull(probe)) {
+        try {
+          probe.close();
+        } catch (SQLException e) {
+          LOG.log(Level.FINE, "Closing a replica probe connection failed.", e);
+        }
+        probe = null;
+      }
+    }
+
+    /**
+     * @param writtenAt when the reading thread last wrote to the primary, or null
+     * @param maxLag
+     * @return true if the replica may serve the read
+     */
+    private boolean canServe(Long writtenAt, long maxLag) {
+      Health current = health;
+      return current.up && current.lag <= maxLag
+          && (Objects.isNull(writtenAt)
+              || current.checkedAt - current.lag - LAG_RESOLUTION >= writtenAt);
+    }
+
+    private void markUp(long lag, long checkedAt) {
+      if (!health.up) {
+        LOG.info("Replica " + config.getJdbcUrl() + " is up.");
+      }
+      health = new Health(true, lag, checkedAt);
+    }
+
+    private void markDown(Throwable cause) {
+      if (health.up || health == Health.UNCHECKED) {
+        LOG.log(Level.WARNING, "Replica " + config.getJdbcUrl() + " is down: " + cause.getMessage());
+      }
+      health = Health.DOWN;
+    }
+
+    @Override
+    public String toString() {
+      Health current = health;
+      return config.getJdbcUrl() + (current.up ? " up, lag = " + current.lag + " ms" : " down")
+          + ", " + pool.getStats();
+    }
+  }
+
+  /**
+   * the outcome of one health check
+   */
+  private static final class Health {
+    private static final Health UNCHECKED = new Health(false, 0, 0);
+    private static final Health DOWN = new Health(false, 0, 0);
+
+    private final boolean up;
+    private final long lag;
+    private final long checkedAt;
+
+    private Health(boolean up, long lag, long checkedAt) {
+      this.up = up;
+      this.lag = lag;
+      this.checkedAt = checkedAt;
+    }
+  }
+}
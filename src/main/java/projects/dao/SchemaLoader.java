@@ -0,0 +1,80 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import projects.exception.DbException;
+
+/**
+ * runs projects-schema.sql against a connection. Used to build the schema in embedded MySQL-mode
+ * databases for benchmarks and load tests
+ */
+public class SchemaLoader {
+  private static final String SCHEMA_RESOURCE = "/projects-schema.sql";
+
+  /**
+   * drops and recreates the projects tables, including the sample projects
+   * @param conn
+   * @throws DbException
+   */
+  public static void load(Connection conn) {
+    try(InputStream in = SchemaLoader.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+      if(Objects.isNull(in)) {
+        throw new DbException("Resource " + SCHEMA_RESOURCE + " was not found.");
+      }
+      String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+      try(Statement stmt = conn.createStatement()) {
+        for(String sql : splitStatements(script)) {
+          stmt.execute(sql);
+        }
+      }
+    } catch (IOException | SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * splits a script on the semicolons that are outside string literals, dropping -- comments
+   * @param script
+   * @return the statements, without their semicolons
+   */
+  static List<String> splitStatements(String script) {
+    List<String> statements = new ArrayList<>();
+    StringBuilder statement = new StringBuilder();
+    boolean inString = false;
+
+    for(int i = 0; i < script.length(); i++) {
+      char ch = script.charAt(i);
+
+      if(!inString && ch == '-' && script.startsWith("--", i)) {
+        int lineEnd = script.indexOf('\n', i);
+        i = lineEnd < 0 ? script.length() : lineEnd;
+        statement.append('\n');
+      } else if(!inString && ch == ';') {
+        addStatement(statements, statement);
+      } else {
+        if(ch == '\'') {
+          inString = !inString;
+        }
+        statement.append(ch);
+      }
+    }
+    addStatement(statements, statement);
+    return statements;
+  }
+
+  private static void addStatement(List<String> statements, StringBuilder statement) {
+    String sql = statement.toString().trim();
+    if(!sql.isEmpty()) {
+      statements.add(sql);
+    }
+    statement.setLength(0);
+  }
+}
@@ -0,0 +1,40 @@
+package projects.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * settings for a {@link ShardedDataSource}: a name and routing settings for every shard. The names
+ * decide which shard owns each project, so a shard must keep its name when it moves to a new host.
+ */
+public class ShardConfig {
+  private final Map<String, RoutingConfig> shards = new LinkedHashMap<>();
+  private int virtualNodes = 64;
+
+  /**
+   * adds a shard. The first shard added also holds the project ID sequence
+   * @param name
+   * @param routing settings for the shard's primary and replicas
+   */
+  public void addShard(String name, RoutingConfig routing) {
+    if (Objects.nonNull(shards.putIfAbsent(name, routing))) {
+      throw new IllegalArgumentException("Shard " + name + " was added twice.");
+    }
+  }
+
+  public Map<String, RoutingConfig> getShards() {
+    return shards;
+  }
+
+  /**
+   * points per shard on the hash ring. Every process using the shards must use the same value
+   */
+  public int getVirtualNodes() {
+    return virtualNodes;
+  }
+
+  public void setVirtualNodes(int virtualNodes) {
+    this.virtualNodes = virtualNodes;
+  }
+}
@@ -0,0 +1,190 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import projects.entity.Category;
+import projects.entity.Project;
+import projects.exception.DbException;
+
+/**
+ * moves projects between shards after shards are added or removed, so that every project ends up
+ * on the shard the new ring assigns it to. Run with the old and the new comma-separated shard
+ * lists:
+ *
+ * <pre>
+ * java -cp target/classes:&lt;dependencies&gt; projects.dao.ShardRebalancer from=db1:3306,db2:3306 to=db1:3306,db2:3306,db3:3306
+ * </pre>
+ *
+ * Each shard of the old layout is scanned in project ID order. Projects whose new shard has a
+ * different name are copied there, with their materials, steps and categories, in one transaction
+ * per batch and then deleted from the old shard. A batch that fails part way can be run again:
+ * copies left on the new shard by an earlier run are replaced.
+ * <p>
+ * Writes to the projects should be paused while it runs. Page tokens issued before the move do
+ * not fit the new layout, and the first shard should stay first so that the project ID sequence
+ * stays on the same node.
+ */
+public class ShardRebalancer {
+  private final ShardedDataSource from;
+  private final ShardedDataSource to;
+  private final ProjectDao projectDao = new ProjectDao();
+  private int batchSize = 500;
+
+  /**
+   * @param from the shards as they are now
+   * @param to the shards as they should be. New shards must already have the projects schema
+   */
+  public ShardRebalancer(ShardedDataSource from, ShardedDataSource to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  public static void main(String[] args) {
+    String fromHosts = null;
+    String toHosts = null;
+    int batchSize = 500;
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value but got " + arg);
+      }
+      String value = arg.substring(separator + 1);
+      switch (arg.substring(0, separator)) {
+        case "from":
+          fromHosts = value;
+          break;
+        case "to":
+          toHosts = value;
+          break;
+        case "batchSize":
+          batchSize = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown setting " + arg);
+      }
+    }
+    if (Objects.isNull(fromHosts) || Objects.isNull(toHosts)) {
+      throw new IllegalArgumentException("Both from=host:port,... and to=host:port,... are required.");
+    }
+
+    try(ShardedDataSource from = new ShardedDataSource(DbConnection.defaultShardConfig(fromHosts));
+        ShardedDataSource to = new ShardedDataSource(DbConnection.defaultShardConfig(toHosts))) {
+      ShardRebalancer rebalancer = new ShardRebalancer(from, to);
+      rebalancer.setBatchSize(batchSize);
+      System.out.println("Moved " + rebalancer.rebalance() + " projects.");
+    }
+  }
+
+  /**
+   * moves every project that is not on the shard the new layout assigns it to
+   * @return number of projects moved
+   * @throws DbException
+   */
+  public int rebalance() {
+    int moved = 0;
+    for (String shard : from.getShardNames()) {
+      RoutingDataSource source = from.getShard(shard);
+      int afterId = 0;
+      List<Integer> ids;
+      do {
+        int after = afterId;
+        ids = DbConnection.onShard(source, () -> scanIds(after));
+        Map<String, List<Integer>> moves = new LinkedHashMap<>();
+        for (Integer projectId : ids) {
+          String target = to.shardFor(projectId);
+          if (!target.equals(shard)) {
+            moves.computeIfAbsent(target, name -> new ArrayList<>()).add(projectId);
+          }
+          afterId = projectId;
+        }
+        for (Map.Entry<String, List<Integer>> entry : moves.entrySet()) {
+          moved += move(source, to.getShard(entry.getKey()), entry.getValue());
+        }
+        if (!moves.isEmpty()) {
+          System.out.println(shard + ": " + moved + " projects moved so far, up to ID " + afterId);
+        }
+      } while (ids.size() == batchSize);
+    }
+    return moved;
+  }
+
+  /**
+   * copies projects to the target shard in one transaction and then deletes them from the source
+   * @param source
+   * @param target
+   * @param projectIds
+   * @return number of projects moved
+   * @throws DbException
+   */
+  private int move(RoutingDataSource source, RoutingDataSource target, List<Integer> projectIds) {
+    List<Project> projects = DbConnection.onShard(source,
+        () -> projectDao.fetchProjectsByIds(projectIds, FetchPlan.ALL));
+    if (projects.isEmpty()) {
+      return 0;
+    }
+    Set<Category> categories = new LinkedHashSet<>();
+    List<Integer> found = new ArrayList<>(projects.size());
+    for (Project project : projects) {
+      categories.addAll(project.getCategories());
+      found.add(project.getProjectId());
+    }
+
+    DbConnection.onShard(target, () -> {
+      try(UnitOfWork unitOfWork = UnitOfWork.begin();
+          Connection conn = DbConnection.getConnection()) {
+        projectDao.insertCategoriesIfAbsent(conn, categories);
+        projectDao.deleteProjects(found);
+        projectDao.insertWithIds(projects);
+        unitOfWork.commit();
+        return null;
+      } catch (SQLException e) {
+        throw new DbException(e);
+      }
+    });
+    return DbConnection.onShard(source, () -> projectDao.deleteProjects(found));
+  }
+
+  /**
+   * reads the next batch of project IDs on the bound shard
+   * @param afterId
+   * @return up to batchSize IDs greater than afterId, in order
+   * @throws DbException
+   */
+  private List<Integer> scanIds(int afterId) {
+    String sql = "SELECT project_id FROM project WHERE project_id > ? ORDER BY project_id LIMIT ?";
+    try(Connection conn = DbConnection.getConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+      stmt.setInt(1, afterId);
+      stmt.setInt(2, batchSize);
+      try(ResultSet rs = stmt.executeQuery()) {
+        List<Integer> ids = new ArrayList<>(batchSize);
+        while (rs.next()) {
+          ids.add(rs.getInt(1));
+        }
+        return ids;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * number of projects read and moved at a time
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+}
@@ -0,0 +1,77 @@
+package projects.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * a consistent-hash ring that assigns project IDs to shards. Every shard is placed on the ring at
+ * virtualNodes points derived from its name, and a project belongs to the first point at or after
+ * the hash of its ID. Adding or removing a shard therefore only moves the projects between it and
+ * its neighbours, about 1/N of them, and the assignment depends only on the shard names, never on
+ * their order
+ */
+public class ShardRing {
+  private final List<String> shards;
+  private final long[] points;
+  private final int[] owners;
+
+  /**
+   * @param shards the shard names, which must be unique
+   * @param virtualNodes points per shard. More points spread the projects more evenly
+   */
+  public ShardRing(List<String> shards, int virtualNodes) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("A shard ring needs at least one shard.");
+    }
+    this.shards = List.copyOf(shards);
+    long[][] entries = new long[shards.size() * virtualNodes][];
+    for (int shard = 0; shard < shards.size(); shard++) {
+      long seed = hash(shards.get(shard));
+      for (int node = 0; node < virtualNodes; node++) {
+        entries[shard * virtualNodes + node] = new long[] {mix(seed + node), shard};
+      }
+    }
+    Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+    points = new long[entries.length];
+    owners = new int[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      points[i] = entries[i][0];
+      owners[i] = (int) entries[i][1];
+    }
+  }
+
+  /**
+   * @param projectId
+   * @return the name of the shard that owns the project
+   */
+  public String shardFor(int projectId) {
+    int index = Arrays.binarySearch(points, mix(projectId));
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return shards.get(owners[index == points.length ? 0 : index]);
+  }
+
+  public List<String> getShards() {
+    return shards;
+  }
+
+  private static long hash(String name) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+      hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * the SplitMix64 finalizer, which spreads neighbouring IDs evenly over the ring
+   */
+  private static long mix(long value) {
+    long z = value + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
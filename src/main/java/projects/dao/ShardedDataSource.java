@@ -0,0 +1,288 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import projects.exception.DbException;
+import projects.metrics.DaoMetrics;
+import projects.metrics.OperationMetrics;
+
+/**
+ * a set of database nodes that each hold part of the projects, with a {@link RoutingDataSource}
+ * per shard. A {@link ShardRing} maps each project ID to its shard; the project's materials,
+ * steps and project_category rows live on the same shard. DAO calls made inside callOn use the
+ * connections of the chosen shard.
+ * <p>
+ * Project IDs are unique across shards. They are handed out in blocks from the
+ * project_id_sequence table on the home shard, the first one configured, which is created and
+ * seeded with the highest existing ID on first use.
+ */
+public class ShardedDataSource implements AutoCloseable {
+  private static final String SEQUENCE_TABLE = "project_id_sequence";
+  private static final int ID_BLOCK_SIZE = 100;
+
+  private final Map<String, RoutingDataSource> shards = new LinkedHashMap<>();
+  private final ShardRing ring;
+  private final String home;
+  private final ExecutorService fanOut;
+  private boolean sequenceReady;
+  private int nextId;
+  private int blockEnd;
+
+  /**
+   * opens the pools of every shard
+   * @param config
+   */
+  public ShardedDataSource(ShardConfig config) {
+    config.getShards().forEach((name, routing) -> shards.put(name, RoutingDataSource.open(routing)));
+    this.ring = new ShardRing(new ArrayList<>(shards.keySet()), config.getVirtualNodes());
+    this.home = ring.getShards().get(0);
+    this.fanOut = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "projects-shard-fan-out");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return the shard names in the order they were configured
+   */
+  public List<String> getShardNames() {
+    return ring.getShards();
+  }
+
+  /**
+   * @param projectId
+   * @return the name of the shard that owns the project
+   */
+  public String shardFor(int projectId) {
+    return ring.shardFor(projectId);
+  }
+
+  /**
+   * @return the shard that holds the project ID sequence and hands out new category IDs
+   */
+  public String getHomeShard() {
+    return home;
+  }
+
+  /**
+   * @param shard
+   * @return the shard's primary and replica pools
+   * @throws DbException if there is no shard with that name
+   */
+  public RoutingDataSource getShard(String shard) {
+    RoutingDataSource routing = shards.get(shard);
+    if (Objects.isNull(routing)) {
+      throw new DbException("There is no shard named " + shard);
+    }
+    return routing;
+  }
+
+  /**
+   * runs work on the current thread with DbConnection bound to a shard, so every DAO call in it
+   * borrows that shard's connections
+   * @param <T>
+   * @param shard
+   * @param work
+   * @return the result of work
+   */
+  public <T> T callOn(String shard, Supplier<T> work) {
+    return DbConnection.onShard(getShard(shard), work);
+  }
+
+  /**
+   * runs work once for every shard, bound to that shard, and waits for all of them
+   * @param <T>
+   * @param work called with the shard name
+   * @return the results by shard name, in configuration order
+   * @throws DbException or the RuntimeException thrown by work on any shard
+   * @see #callOnEach(Collection, Function)
+   */
+  public <T> Map<String, T> callOnAll(Function<String, T> work) {
+    return callOnEach(ring.getShards(), work);
+  }
+
+  /**
+   * runs work once for each of the given shards, bound to that shard, and waits for all of them.
+   * The shards run in parallel, except inside a unit of work, whose connections belong to the
+   * current thread, so there they run one after another. Reads on the other threads still see the
+   * current thread's earlier writes, and their writes and metrics count as the current thread's
+   * @param <T>
+   * @param shardNames
+   * @param work called with the shard name
+   * @return the results by shard name, in the order of shardNames
+   * @throws DbException or the RuntimeException thrown by work on any shard
+   */
+  public <T> Map<String, T> callOnEach(Collection<String> shardNames, Function<String, T> work) {
+    Map<String, T> results = new LinkedHashMap<>();
+    if (shardNames.size() == 1 || Objects.nonNull(UnitOfWork.current())) {
+      for (String shard : shardNames) {
+        results.put(shard, callOn(shard, () -> work.apply(shard)));
+      }
+      return results;
+    }
+
+    OperationMetrics operation = DaoMetrics.current();
+    Map<String, Long> writes = new ConcurrentHashMap<>();
+    Map<String, Future<T>> futures = new LinkedHashMap<>();
+    for (String shard : shardNames) {
+      RoutingDataSource routing = getShard(shard);
+      Long writtenAt = routing.getLastWriteAt();
+      futures.put(shard, fanOut.submit(() -> {
+        routing.setLastWriteAt(writtenAt);
+        try {
+          return DaoMetrics.within(operation,
+              () -> DbConnection.onShard(routing, () -> work.apply(shard)));
+        } finally {
+          Long lastWrite = routing.getLastWriteAt();
+          if (Objects.nonNull(lastWrite) && !lastWrite.equals(writtenAt)) {
+            writes.put(shard, lastWrite);
+          }
+          routing.setLastWriteAt(null);
+        }
+      }));
+    }
+    try {
+      for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+        results.put(entry.getKey(), entry.getValue().get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbException(e);
+    } catch (ExecutionException e) {
+      DaoMetrics.failed();
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new DbException(e.getCause());
+    } finally {
+      futures.values().forEach(future -> future.cancel(true));
+      writes.forEach((shard, writtenAt) -> getShard(shard).setLastWriteAt(writtenAt));
+    }
+  }
+
+  /**
+   * hands out project IDs that no other project on any shard has or will get
+   * @param count
+   * @return the IDs, in increasing order
+   * @throws DbException
+   */
+  public synchronized int[] allocateProjectIds(int count) {
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      if (nextId == blockEnd) {
+        int size = Math.max(ID_BLOCK_SIZE, count - i);
+        nextId = reserveBlock(size);
+        blockEnd = nextId + size;
+      }
+      ids[i] = nextId++;
+    }
+    return ids;
+  }
+
+  /**
+   * advances the sequence on the home shard by size in its own transaction
+   * @param size
+   * @return the first ID of the block
+   * @throws DbException
+   */
+  private int reserveBlock(int size) {
+    String select = "SELECT next_id FROM " + SEQUENCE_TABLE + " WHERE sequence_id = 1 FOR UPDATE";
+    String update = "UPDATE " + SEQUENCE_TABLE + " SET next_id = ? WHERE sequence_id = 1";
+    try(Connection conn = getShard(home).getWriteConnection()) {
+      createSequence(conn);
+      conn.setAutoCommit(false);
+      try {
+        Integer first = null;
+        while (Objects.isNull(first)) {
+          try(PreparedStatement stmt = conn.prepareStatement(select);
+              ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+              first = rs.getInt(1);
+            }
+          }
+          if (Objects.isNull(first) && !seedSequence(conn)) {
+            /* another process seeded the sequence first, so read its row */
+            conn.rollback();
+          }
+        }
+        try(PreparedStatement stmt = conn.prepareStatement(update)) {
+          stmt.setInt(1, first + size);
+          stmt.executeUpdate();
+        }
+        conn.commit();
+        return first;
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private void createSequence(Connection conn) throws SQLException {
+    if (sequenceReady) {
+      return;
+    }
+    try(Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE IF NOT EXISTS " + SEQUENCE_TABLE
+          + " (sequence_id INT NOT NULL, next_id INT NOT NULL, PRIMARY KEY (sequence_id))");
+    }
+    sequenceReady = true;
+  }
+
+  /**
+   * inserts the sequence row, starting after the highest project ID on any shard
+   * @param conn a connection to the home shard, in a transaction
+   * @return false if the row was inserted by someone else in the meantime
+   * @throws SQLException
+   */
+  private boolean seedSequence(Connection conn) throws SQLException {
+    int highest = 0;
+    for (RoutingDataSource routing : shards.values()) {
+      try(Connection shard = routing.getWriteConnection();
+          PreparedStatement stmt = shard.prepareStatement("SELECT MAX(project_id) FROM project");
+          ResultSet rs = stmt.executeQuery()) {
+        if (rs.next()) {
+          highest = Math.max(highest, rs.getInt(1));
+        }
+      }
+    }
+    try(PreparedStatement stmt = conn.prepareStatement(
+        "INSERT INTO " + SEQUENCE_TABLE + " (sequence_id, next_id) VALUES (1, ?)")) {
+      stmt.setInt(1, highest + 1);
+      stmt.executeUpdate();
+      return true;
+    } catch (SQLIntegrityConstraintViolationException e) {
+      return false;
+    }
+  }
+
+  /**
+   * stops the fan-out threads and closes the pools of every shard
+   */
+  @Override
+  public void close() {
+    fanOut.shutdownNow();
+    shards.values().forEach(RoutingDataSource::close);
+  }
+}
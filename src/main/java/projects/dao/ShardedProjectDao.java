@@ -0,0 +1,639 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.ProjectFilter;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectSummaryPage;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.metrics.DaoMetrics;
+import provided.util.RowMapper;
+
+/**
+ * a ProjectDao over projects that are spread across the shards of a {@link ShardedDataSource}.
+ * Calls about one project run on the shard that owns it. Listings run on every shard in parallel
+ * and their results are merged in the order each shard returns them in. New projects get their
+ * IDs from the shards' ID sequence before they are inserted.
+ * <p>
+ * Categories have the same ID on every shard. A new category name gets its ID on the home shard,
+ * and a category row is copied to a shard before any project there is linked to it. Material and
+ * step IDs are only unique within a shard.
+ * <p>
+ * Names are merged in code point order. The schema gives project_name the binary utf8mb4_0900_bin
+ * collation, so every shard sorts and seeks names in that order too. H2 ignores the collation and
+ * compares UTF-16 code units, which only differs for names with characters above U+FFFF. Page
+ * tokens hold a position for every shard, so they stop working when shards are added or removed.
+ */
+@SuppressWarnings("try") // DaoMetrics.Scope resources are opened only to be closed at the end
+public class ShardedProjectDao extends ProjectDao {
+  private static final String CATEGORY_TABLE = "category";
+  private static final Comparator<Project> BY_NAME =
+      Comparator.comparing(Project::getProjectName, ShardedProjectDao::compareNames)
+          .thenComparing(Project::getProjectId);
+  private static final Comparator<ProjectSummary> SUMMARY_BY_NAME =
+      Comparator.comparing(ProjectSummary::getProjectName,
+          Comparator.nullsFirst(ShardedProjectDao::compareNames))
+          .thenComparing(ProjectSummary::getProjectId);
+  private static final Comparator<Project> BY_ID = Comparator.comparing(Project::getProjectId);
+  private static final String START = "";
+  private static final String EXHAUSTED = "~";
+
+  private final ShardedDataSource shards;
+
+  /**
+   * @param shards
+   */
+  public ShardedProjectDao(ShardedDataSource shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * adds the project to the shard that owns the ID it is given
+   */
+  @Override
+  public Project insertProject(Project project) {
+    project.setProjectId(shards.allocateProjectIds(1)[0]);
+    return shards.callOn(shardOf(project.getProjectId()), () -> insertWithId(project));
+  }
+
+  @Override
+  public List<Project> fetchAllProjects() {
+    return merge(callOnAll("fetchAllProjects", shard -> super.fetchAllProjects()).values(),
+        BY_NAME);
+  }
+
+  @Override
+  public ProjectPage fetchProjectPage(String pageToken, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be at least 1 but is " + pageSize);
+    }
+    Map<String, String> positions = decodePositions(pageToken);
+    Map<String, ProjectPage> pages = callOnEach("fetchProjectPage", activeShards(positions),
+        shard -> super.fetchProjectPage(startOf(positions, shard), pageSize));
+
+    Map<String, List<Project>> rows = new LinkedHashMap<>();
+    Map<String, Boolean> more = new HashMap<>();
+    pages.forEach((shard, page) -> {
+      rows.put(shard, page.getProjects());
+      more.put(shard, page.hasNextPage());
+    });
+    List<Project> projects = new ArrayList<>(pageSize);
+    String nextPageToken = mergePage(rows, more, positions, pageSize, BY_NAME,
+        project -> pageToken(project.getProjectName(), project.getProjectId()), projects);
+    return new ProjectPage(projects, nextPageToken);
+  }
+
+  @Override
+  public List<ProjectSummary> fetchProjectSummaries(Set<SummaryColumn> columns, ProjectFilter filter) {
+    return merge(callOnAll("fetchProjectSummaries",
+        shard -> super.fetchProjectSummaries(columns, filter)).values(), SUMMARY_BY_NAME);
+  }
+
+  @Override
+  public ProjectSummaryPage fetchProjectSummaryPage(Set<SummaryColumn> columns, ProjectFilter filter,
+      String pageToken, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be at least 1 but is " + pageSize);
+    }
+    Map<String, String> positions = decodePositions(pageToken);
+    Map<String, ProjectSummaryPage> pages = callOnEach("fetchProjectSummaryPage",
+        activeShards(positions),
+        shard -> super.fetchProjectSummaryPage(columns, filter, startOf(positions, shard), pageSize));
+
+    Map<String, List<ProjectSummary>> rows = new LinkedHashMap<>();
+    Map<String, Boolean> more = new HashMap<>();
+    pages.forEach((shard, page) -> {
+      rows.put(shard, page.getSummaries());
+      more.put(shard, page.hasNextPage());
+    });
+    List<ProjectSummary> summaries = new ArrayList<>(pageSize);
+    String nextPageToken = mergePage(rows, more, positions, pageSize, SUMMARY_BY_NAME,
+        summary -> pageToken(summary.getProjectName(), summary.getProjectId()), summaries);
+    return new ProjectSummaryPage(summaries, nextPageToken);
+  }
+
+  @Override
+  public Stream<Project> streamAllProjects(int fetchSize) {
+    return mergeStreams("streamAllProjects", shard -> super.streamAllProjects(fetchSize), BY_NAME);
+  }
+
+  @Override
+  public Stream<Project> streamAllProjectAggregates(int fetchSize) {
+    return mergeStreams("streamAllProjectAggregates",
+        shard -> super.streamAllProjectAggregates(fetchSize), BY_ID);
+  }
+
+  @Override
+  public Optional<Project> fetchProjectById(Integer projectId, AggregateLoadMode mode) {
+    if (Objects.isNull(projectId)) {
+      return Optional.empty();
+    }
+    return shards.callOn(shardOf(projectId), () -> super.fetchProjectById(projectId, mode));
+  }
+
+  @Override
+  public List<Material> fetchProjectMaterials(Integer projectId) {
+    return shards.callOn(shardOf(projectId), () -> super.fetchProjectMaterials(projectId));
+  }
+
+  @Override
+  public List<Step> fetchProjectSteps(Integer projectId) {
+    return shards.callOn(shardOf(projectId), () -> super.fetchProjectSteps(projectId));
+  }
+
+  @Override
+  public List<Category> fetchProjectCategories(Integer projectId) {
+    return shards.callOn(shardOf(projectId), () -> super.fetchProjectCategories(projectId));
+  }
+
+  @Override
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds, FetchPlan plan) {
+    Map<String, List<Integer>> idsByShard = groupByShard(projectIds, Function.identity());
+    Map<Integer, Project> projectsById = new HashMap<>();
+    callOnEach("fetchProjectsByIds", idsByShard.keySet(),
+        shard -> super.fetchProjectsByIds(idsByShard.get(shard), plan))
+        .values().forEach(fetched -> fetched.forEach(
+            project -> projectsById.put(project.getProjectId(), project)));
+
+    List<Project> projects = new ArrayList<>(projectsById.size());
+    for (Integer projectId : new LinkedHashSet<>(projectIds)) {
+      Project project = projectsById.get(projectId);
+      if (Objects.nonNull(project)) {
+        projects.add(project);
+      }
+    }
+    return projects;
+  }
+
+  @Override
+  public List<Project> fetchAllProjectsWithChildren(FetchPlan plan) {
+    return merge(callOnAll("fetchAllProjectsWithChildren",
+        shard -> super.fetchAllProjectsWithChildren(plan)).values(), BY_NAME);
+  }
+
+  @Override
+  public boolean modifyProjectDetails(Project updatedProject) {
+    if (Objects.isNull(updatedProject.getProjectId())) {
+      return false;
+    }
+    return shards.callOn(shardOf(updatedProject.getProjectId()),
+        () -> super.modifyProjectDetails(updatedProject));
+  }
+
+  @Override
+  public boolean deleteProject(Integer projectId) {
+    if (Objects.isNull(projectId)) {
+      return false;
+    }
+    return shards.callOn(shardOf(projectId), () -> super.deleteProject(projectId));
+  }
+
+  @Override
+  public int deleteProjects(Collection<Integer> projectIds) {
+    Map<String, List<Integer>> idsByShard = groupByShard(projectIds, Function.identity());
+    return callOnEach("deleteProjects", idsByShard.keySet(),
+        shard -> super.deleteProjects(idsByShard.get(shard)))
+        .values().stream().mapToInt(Integer::intValue).sum();
+  }
+
+  /**
+   * returns the categories of every shard, merged by ID. They are read once and then served from
+   * the process-wide category cache until its time to live runs out
+   */
+  @Override
+  public List<Category> fetchAllCategories() {
+    if (CATEGORIES.isComplete()) {
+      return CATEGORIES.getAll();
+    }
+    Map<Integer, Category> categories = new TreeMap<>();
+    callOnAll("fetchAllCategories", shard -> readCategories()).values().forEach(
+        shardCategories -> shardCategories.forEach(
+            category -> categories.putIfAbsent(category.getCategoryId(), category)));
+    CATEGORIES.load(new ArrayList<>(categories.values()));
+    return CATEGORIES.getAll();
+  }
+
+  @Override
+  public boolean addCategoryToProject(Integer projectId, String categoryName) {
+    String shard = shardOf(projectId);
+    shareCategories(shard, List.of(categoryName));
+    return shards.callOn(shard, () -> super.addCategoryToProject(projectId, categoryName));
+  }
+
+  @Override
+  public boolean addMaterialToProject(Integer projectId, Material material) {
+    return shards.callOn(shardOf(projectId), () -> super.addMaterialToProject(projectId, material));
+  }
+
+  /**
+   * adds the projects to the shards that own the IDs they are given. Each shard writes its
+   * projects in its own transaction, in parallel
+   */
+  @Override
+  public List<Project> insertProjectAggregates(List<Project> projects) {
+    int[] ids = shards.allocateProjectIds(projects.size());
+    for (int i = 0; i < ids.length; i++) {
+      projects.get(i).setProjectId(ids[i]);
+    }
+
+    Map<String, List<Project>> projectsByShard = groupByShard(projects, Project::getProjectId);
+    projectsByShard.forEach((shard, shardProjects) -> shareCategories(shard,
+        shardProjects.stream().flatMap(project -> project.getCategories().stream())
+            .map(Category::getCategoryName).collect(Collectors.toSet())));
+    callOnEach("insertProjectAggregates", projectsByShard.keySet(),
+        shard -> insertWithIds(projectsByShard.get(shard)));
+    return projects;
+  }
+
+  @Override
+  public List<Integer> addMaterialsToProject(Integer projectId, List<Material> materials) {
+    return shards.callOn(shardOf(projectId), () -> super.addMaterialsToProject(projectId, materials));
+  }
+
+  @Override
+  public List<Integer> addStepsToProject(Integer projectId, List<Step> steps) {
+    return shards.callOn(shardOf(projectId), () -> super.addStepsToProject(projectId, steps));
+  }
+
+  @Override
+  public List<Integer> addMaterials(List<Material> materials) {
+    Map<String, List<Material>> materialsByShard = groupByShard(materials, Material::getProjectId);
+    callOnEach("addMaterials", materialsByShard.keySet(),
+        shard -> super.addMaterials(materialsByShard.get(shard)));
+    return materials.stream().map(Material::getMaterialId).collect(Collectors.toList());
+  }
+
+  @Override
+  public void addCategoriesToProjects(Map<Integer, List<String>> categoryNames) {
+    Map<String, Map<Integer, List<String>>> namesByShard = new LinkedHashMap<>();
+    categoryNames.forEach((projectId, names) -> namesByShard
+        .computeIfAbsent(shardOf(projectId), shard -> new LinkedHashMap<>()).put(projectId, names));
+    namesByShard.forEach((shard, links) -> shareCategories(shard,
+        links.values().stream().flatMap(List::stream).collect(Collectors.toSet())));
+    callOnEach("addCategoriesToProjects", namesByShard.keySet(), shard -> {
+      super.addCategoriesToProjects(namesByShard.get(shard));
+      return null;
+    });
+  }
+
+  /**
+   * makes sure that the named categories exist on a shard with their global IDs. Names that are not
+   * in the category cache are added on the home shard first, which gives them their IDs
+   * @param shard
+   * @param categoryNames
+   * @throws DbException
+   */
+  private void shareCategories(String shard, Collection<String> categoryNames) {
+    if (categoryNames.isEmpty()) {
+      return;
+    }
+    List<String> unknown = categoryNames.stream()
+        .filter(name -> Objects.isNull(CATEGORIES.getId(name))).collect(Collectors.toList());
+    if (!unknown.isEmpty()) {
+      shards.callOn(shards.getHomeShard(), () -> {
+        runInTransaction(conn -> {
+          Map<String, Integer> added = new HashMap<>();
+          for (String name : unknown) {
+            added.put(name, upsertCategory(conn, name));
+          }
+          return added;
+        }).forEach((name, id) -> cacheCategory(id, name));
+        return null;
+      });
+    }
+    if (shard.equals(shards.getHomeShard())) {
+      return;
+    }
+
+    List<Category> categories = new ArrayList<>();
+    for (String name : categoryNames) {
+      Category category = new Category();
+      category.setCategoryId(CATEGORIES.getId(name));
+      category.setCategoryName(name);
+      categories.add(category);
+    }
+    shards.callOn(shard, () -> runInTransaction(conn -> {
+      insertCategoriesIfAbsent(conn, categories);
+      return null;
+    }));
+  }
+
+  /**
+   * runs work in a transaction on a connection to the primary of the bound shard
+   * @param <T>
+   * @param work
+   * @return the result of work
+   * @throws DbException
+   */
+  private <T> T runInTransaction(ShardWork<T> work) {
+    try(Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+      try {
+        T result = work.run(conn);
+        commitTransaction(conn);
+        return result;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * reads the category table of the bound shard
+   * @return List of categories
+   * @throws DbException
+   */
+  private List<Category> readCategories() {
+    String sql = "SELECT * FROM " + CATEGORY_TABLE + " ORDER BY category_id;";
+    try(Connection conn = DbConnection.getReadOnlyConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        ResultSet rs = executeQuery(stmt, sql)) {
+      List<Category> categories = new ArrayList<>();
+      RowMapper<Category> mapper = rowMapper(rs, Category.class);
+      mapRows(rs, mapper, categories::add);
+      return categories;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private String shardOf(Integer projectId) {
+    return shards.shardFor(projectId);
+  }
+
+  /**
+   * groups items by the shard that owns their project, keeping their order within each shard
+   * @param <T>
+   * @param items
+   * @param projectId gets the project ID of an item
+   * @return items by shard name
+   */
+  private <T> Map<String, List<T>> groupByShard(Collection<T> items, Function<T, Integer> projectId) {
+    Map<String, List<T>> itemsByShard = new LinkedHashMap<>();
+    for (T item : items) {
+      Integer id = projectId.apply(item);
+      if (Objects.nonNull(id)) {
+        itemsByShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(item);
+      }
+    }
+    return itemsByShard;
+  }
+
+  /**
+   * runs work on every shard, in parallel, as one call of a DAO method, so the rows read and
+   * written on the shards are counted once, toward that method
+   * @param <T>
+   * @param operation the method name
+   * @param work called with the shard name
+   * @return the results by shard name
+   * @throws DbException
+   */
+  private <T> Map<String, T> callOnAll(String operation, Function<String, T> work) {
+    try (DaoMetrics.Scope op = DaoMetrics.start(operation)) {
+      return shards.callOnAll(work);
+    }
+  }
+
+  /**
+   * runs work on each of the given shards, in parallel, as one call of a DAO method
+   * @param <T>
+   * @param operation the method name
+   * @param shardNames
+   * @param work called with the shard name
+   * @return the results by shard name
+   * @throws DbException
+   * @see #callOnAll(String, Function)
+   */
+  private <T> Map<String, T> callOnEach(String operation, Collection<String> shardNames,
+      Function<String, T> work) {
+    try (DaoMetrics.Scope op = DaoMetrics.start(operation)) {
+      return shards.callOnEach(shardNames, work);
+    }
+  }
+
+  /**
+   * compares project names by code point, the order of utf8mb4_0900_bin
+   */
+  private static int compareNames(String a, String b) {
+    int i = 0;
+    while (i < a.length() && i < b.length()) {
+      int codePoint = a.codePointAt(i);
+      int other = b.codePointAt(i);
+      if (codePoint != other) {
+        return Integer.compare(codePoint, other);
+      }
+      i += Character.charCount(codePoint);
+    }
+    return Integer.compare(a.length(), b.length());
+  }
+
+  /**
+   * merges lists that are each sorted into one sorted list
+   */
+  private static <T> List<T> merge(Collection<List<T>> lists, Comparator<? super T> order) {
+    List<Iterator<T>> iterators = new ArrayList<>();
+    int size = 0;
+    for (List<T> list : lists) {
+      iterators.add(list.iterator());
+      size += list.size();
+    }
+    List<T> merged = new ArrayList<>(size);
+    new MergingIterator<>(iterators, order).forEachRemaining(merged::add);
+    return merged;
+  }
+
+  /**
+   * opens a stream on every shard, one after another so that a failure can close the ones already
+   * open, and merges them as they are read
+   * @param operation the DAO method the streams count toward
+   * @param open opens the stream of the bound shard
+   * @param order the order of each shard's stream
+   * @return Stream that closes every shard's stream when it is closed
+   * @throws DbException
+   */
+  private Stream<Project> mergeStreams(String operation, Function<String, Stream<Project>> open,
+      Comparator<Project> order) {
+    List<Stream<Project>> streams = new ArrayList<>();
+    try (DaoMetrics.Scope op = DaoMetrics.start(operation)) {
+      for (String shard : shards.getShardNames()) {
+        streams.add(shards.callOn(shard, () -> open.apply(shard)));
+      }
+    } catch (RuntimeException e) {
+      streams.forEach(Stream::close);
+      throw e;
+    }
+    List<Iterator<Project>> iterators =
+        streams.stream().map(Stream::iterator).collect(Collectors.toList());
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+        new MergingIterator<>(iterators, order), Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(() -> streams.forEach(Stream::close));
+  }
+
+  /**
+   * fills a page from the rows each shard returned after its own position, in merged order, and
+   * works out where each shard continues from
+   * @param <T>
+   * @param rows the rows of each shard still being read
+   * @param more whether each shard has rows after the ones returned
+   * @param positions the positions the rows were read from
+   * @param pageSize
+   * @param order
+   * @param tokenOf the single-shard page token that continues after a row
+   * @param page receives the rows of the page
+   * @return the next page token, or null if every shard is exhausted
+   */
+  private <T> String mergePage(Map<String, List<T>> rows, Map<String, Boolean> more,
+      Map<String, String> positions, int pageSize, Comparator<? super T> order,
+      Function<T, String> tokenOf, List<T> page) {
+    Map<String, Integer> taken = new HashMap<>();
+    while (page.size() < pageSize) {
+      String next = null;
+      T nextRow = null;
+      for (Map.Entry<String, List<T>> entry : rows.entrySet()) {
+        int index = taken.getOrDefault(entry.getKey(), 0);
+        if (index < entry.getValue().size()) {
+          T row = entry.getValue().get(index);
+          if (Objects.isNull(next) || order.compare(row, nextRow) < 0) {
+            next = entry.getKey();
+            nextRow = row;
+          }
+        }
+      }
+      if (Objects.isNull(next)) {
+        break;
+      }
+      page.add(nextRow);
+      taken.merge(next, 1, Integer::sum);
+    }
+
+    Map<String, String> nextPositions = new LinkedHashMap<>();
+    boolean remaining = false;
+    for (String shard : shards.getShardNames()) {
+      List<T> shardRows = rows.get(shard);
+      int count = taken.getOrDefault(shard, 0);
+      if (Objects.isNull(shardRows) || (count == shardRows.size() && !more.get(shard))) {
+        nextPositions.put(shard, EXHAUSTED);
+      } else {
+        remaining = true;
+        nextPositions.put(shard, count == 0 ? positions.get(shard) : tokenOf.apply(shardRows.get(count - 1)));
+      }
+    }
+    return remaining ? String.join(".", nextPositions.values()) : null;
+  }
+
+  /**
+   * @param pageToken a token from mergePage, or null for the first page
+   * @return the position of every shard: START, EXHAUSTED or a single-shard page token
+   * @throws DbException if the token does not fit the shards
+   */
+  private Map<String, String> decodePositions(String pageToken) {
+    List<String> names = shards.getShardNames();
+    Map<String, String> positions = new LinkedHashMap<>();
+    String[] parts = Objects.isNull(pageToken) ? null : pageToken.split("\\.", -1);
+    if (Objects.nonNull(parts) && parts.length != names.size()) {
+      throw new DbException("Invalid page token: " + pageToken);
+    }
+    for (int i = 0; i < names.size(); i++) {
+      positions.put(names.get(i), Objects.isNull(parts) ? START : parts[i]);
+    }
+    return positions;
+  }
+
+  private List<String> activeShards(Map<String, String> positions) {
+    List<String> active = new ArrayList<>();
+    positions.forEach((shard, position) -> {
+      if (!EXHAUSTED.equals(position)) {
+        active.add(shard);
+      }
+    });
+    return active;
+  }
+
+  private String startOf(Map<String, String> positions, String shard) {
+    String position = positions.get(shard);
+    return START.equals(position) ? null : position;
+  }
+
+  /**
+   * work to run on one open connection
+   */
+  @FunctionalInterface
+  private interface ShardWork<T> {
+    T run(Connection conn) throws SQLException;
+  }
+
+  /**
+   * merges iterators that are each sorted, keeping the head of each in a priority queue
+   */
+  private static class MergingIterator<T> implements Iterator<T> {
+    private final PriorityQueue<Head<T>> heads;
+
+    private MergingIterator(List<Iterator<T>> iterators, Comparator<? super T> order) {
+      this.heads = new PriorityQueue<>(Math.max(1, iterators.size()),
+          (a, b) -> order.compare(a.value, b.value));
+      for (Iterator<T> iterator : iterators) {
+        if (iterator.hasNext()) {
+          heads.add(new Head<>(iterator.next(), iterator));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      Head<T> head = heads.poll();
+      if (Objects.isNull(head)) {
+        throw new NoSuchElementException();
+      }
+      if (head.iterator.hasNext()) {
+        heads.add(new Head<>(head.iterator.next(), head.iterator));
+      }
+      return head.value;
+    }
+  }
+
+  private static class Head<T> {
+    private final T value;
+    private final Iterator<T> iterator;
+
+    private Head(T value, Iterator<T> iterator) {
+      this.value = value;
+      this.iterator = iterator;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package projects.dao;
+
+/**
+ * the project columns a ProjectSummary can be loaded with. The project ID is always loaded
+ */
+public enum SummaryColumn {
+  PROJECT_NAME("project_name"),
+  DIFFICULTY("difficulty"),
+  ESTIMATED_HOURS("estimated_hours"),
+  ACTUAL_HOURS("actual_hours");
+
+  private final String columnName;
+
+  private SummaryColumn(String columnName) {
+    this.columnName = columnName;
+  }
+
+  public String getColumnName() {
+    return columnName;
+  }
+}
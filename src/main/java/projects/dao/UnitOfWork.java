@@ -0,0 +1,233 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import projects.exception.DbException;
+
+/**
+ * one pooled connection and one transaction shared by every DAO call made on the thread that began
+ * it. While it is open, DbConnection.getConnection and getReadOnlyConnection return views of its
+ * connection in which close, commit, setAutoCommit, setReadOnly and setTransactionIsolation do
+ * nothing and rollback marks the unit of work rollback-only. The DAO
+ * methods therefore join the shared transaction without changes, and only the owner's commit or
+ * rollback ends it. Closing without committing rolls back.
+ * <p>
+ * With sharding, the unit of work opens one connection and transaction on each shard it touches,
+ * the first time a DAO call uses that shard. They are committed one after another, so a failure
+ * part way through a commit can leave the shards committed before it.
+ *
+ * <pre>
+ * try(UnitOfWork unitOfWork = UnitOfWork.begin()) {
+ *   projectDao.addMaterialToProject(projectId, material);
+ *   projectDao.fetchProjectById(projectId);
+ *   unitOfWork.commit();
+ * }
+ * </pre>
+ */
+public final class UnitOfWork implements AutoCloseable {
+  private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+  private final Map<RoutingDataSource, Connection> connections = new LinkedHashMap<>();
+  private final Thread owner;
+  private final List<Runnable> rollbackActions = new ArrayList<>();
+  private boolean rollbackOnly;
+  private boolean closed;
+
+  private UnitOfWork() {
+    this.owner = Thread.currentThread();
+  }
+
+  /**
+   * binds a new unit of work to the current thread. A primary connection is borrowed and its
+   * transaction started when the first DAO call joins it
+   * @return UnitOfWork
+   * @throws DbException if a unit of work is already open on this thread
+   */
+  public static UnitOfWork begin() {
+    if (Objects.nonNull(CURRENT.get())) {
+      throw new DbException("A unit of work is already open on this thread.");
+    }
+    UnitOfWork unitOfWork = new UnitOfWork();
+    CURRENT.set(unitOfWork);
+    return unitOfWork;
+  }
+
+  /**
+   * @return the unit of work open on the current thread, or null
+   */
+  public static UnitOfWork current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * @param routing the data source the DAO call would otherwise borrow from
+   * @return a view of the shared connection to the routing's primary for one DAO call
+   * @throws DbException
+   */
+  Connection join(RoutingDataSource routing) {
+    if (closed) {
+      throw new DbException("The unit of work is closed.");
+    }
+    Connection conn = connections.get(routing);
+    if (Objects.isNull(conn)) {
+      conn = routing.getWriteConnection();
+      try {
+        conn.setAutoCommit(false);
+      } catch (SQLException e) {
+        try {
+          conn.close();
+        } catch (SQLException closeFailure) {
+          e.addSuppressed(closeFailure);
+        }
+        throw new DbException(e);
+      }
+      connections.put(routing, conn);
+    }
+    Connection shared = conn;
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class},
+        (proxy, method, args) -> invoke(shared, proxy, method, args));
+  }
+
+  /**
+   * registers an action to undo in-memory state, like a cache entry, that describes uncommitted
+   * rows. The actions run if the unit of work is rolled back and are dropped when it commits
+   * @param action
+   */
+  public void onRollback(Runnable action) {
+    rollbackActions.add(action);
+  }
+
+  /**
+   * commits everything done since the last commit or rollback. The unit of work stays open for
+   * further calls
+   * @throws DbException if a DAO call failed since the last commit. The work is rolled back
+   */
+  public void commit() {
+    checkOwner();
+    if (rollbackOnly) {
+      rollback();
+      throw new DbException("The unit of work was rolled back because one of its calls failed.");
+    }
+    try {
+      for (Connection conn : connections.values()) {
+        conn.commit();
+      }
+      rollbackActions.clear();
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * rolls back everything done since the last commit or rollback
+   * @throws DbException
+   */
+  public void rollback() {
+    checkOwner();
+    try {
+      SQLException failure = null;
+      for (Connection conn : connections.values()) {
+        try {
+          conn.rollback();
+        } catch (SQLException e) {
+          if (Objects.isNull(failure)) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+      if (Objects.nonNull(failure)) {
+        throw new DbException(failure);
+      }
+    } finally {
+      rollbackOnly = false;
+      rollbackActions.forEach(Runnable::run);
+      rollbackActions.clear();
+    }
+  }
+
+  /**
+   * rolls back anything not committed, unbinds the unit of work from the thread and returns the
+   * connections to their pools
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    checkOwner();
+    closed = true;
+    CURRENT.remove();
+    rollbackActions.forEach(Runnable::run);
+    SQLException failure = null;
+    for (Connection conn : connections.values()) {
+      try {
+        conn.close();
+      } catch (SQLException e) {
+        if (Objects.isNull(failure)) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    connections.clear();
+    if (Objects.nonNull(failure)) {
+      throw new DbException(failure);
+    }
+  }
+
+  private void checkOwner() {
+    if (Thread.currentThread() != owner) {
+      throw new DbException("A unit of work can only be used on the thread that began it.");
+    }
+  }
+
+  private Object invoke(Connection conn, Object proxy, Method method, Object[] args)
+      throws Throwable {
+    switch (method.getName()) {
+      case "close":
+      case "commit":
+      case "setAutoCommit":
+      case "setReadOnly":
+      case "setTransactionIsolation":
+        return null;
+      case "rollback":
+        if (Objects.isNull(args)) {
+          rollbackOnly = true;
+          return null;
+        }
+        break;
+      case "getAutoCommit":
+        return false;
+      case "isClosed":
+        return closed || conn.isClosed();
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "Unit of work on " + conn;
+      default:
+        break;
+    }
+    if (closed) {
+      throw new SQLException("The unit of work is closed.");
+    }
+    try {
+      return method.invoke(conn, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -75,14 +75,26 @@ public class Project {
     return materials;
   }
 
+  public void setMaterials(List<Material> materials) {
+    this.materials = materials;
+  }
+
   public List<Step> getSteps() {
     return steps;
   }
 
+  public void setSteps(List<Step> steps) {
+    this.steps = steps;
+  }
+
   public List<Category> getCategories() {
     return categories;
   }
 
+  public void setCategories(List<Category> categories) {
+    this.categories = categories;
+  }
+
   /**
    * returns all project details
    */
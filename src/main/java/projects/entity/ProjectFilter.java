@@ -0,0 +1,67 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * optional conditions on a project listing. Every bound is inclusive and a null bound is not
+ * checked, so an empty filter matches every project
+ */
+public class ProjectFilter {
+  private Integer minDifficulty;
+  private Integer maxDifficulty;
+  private BigDecimal minEstimatedHours;
+  private BigDecimal maxEstimatedHours;
+  private BigDecimal minActualHours;
+  private BigDecimal maxActualHours;
+
+  public Integer getMinDifficulty() {
+    return minDifficulty;
+  }
+
+  public void setMinDifficulty(Integer minDifficulty) {
+    this.minDifficulty = minDifficulty;
+  }
+
+  public Integer getMaxDifficulty() {
+    return maxDifficulty;
+  }
+
+  public void setMaxDifficulty(Integer maxDifficulty) {
+    this.maxDifficulty = maxDifficulty;
+  }
+
+  public BigDecimal getMinEstimatedHours() {
+    return minEstimatedHours;
+  }
+
+  public void setMinEstimatedHours(BigDecimal minEstimatedHours) {
+    this.minEstimatedHours = minEstimatedHours;
+  }
+
+  public BigDecimal getMaxEstimatedHours() {
+    return maxEstimatedHours;
+  }
+
+  public void setMaxEstimatedHours(BigDecimal maxEstimatedHours) {
+    this.maxEstimatedHours = maxEstimatedHours;
+  }
+
+  public BigDecimal getMinActualHours() {
+    return minActualHours;
+  }
+
+  public void setMinActualHours(BigDecimal minActualHours) {
+    this.minActualHours = minActualHours;
+  }
+
+  public BigDecimal getMaxActualHours() {
+    return maxActualHours;
+  }
+
+  public void setMaxActualHours(BigDecimal maxActualHours) {
+    this.maxActualHours = maxActualHours;
+  }
+}
@@ -0,0 +1,35 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * one page of a project listing and the token that continues it
+ */
+public class ProjectPage {
+  private final List<Project> projects;
+  private final String nextPageToken;
+
+  public ProjectPage(List<Project> projects, String nextPageToken) {
+    this.projects = projects;
+    this.nextPageToken = nextPageToken;
+  }
+
+  public List<Project> getProjects() {
+    return projects;
+  }
+
+  /**
+   * opaque token to pass back for the following page, or null if this is the last page
+   */
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public boolean hasNextPage() {
+    return Objects.nonNull(nextPageToken);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * the header fields of a project for list views. Only the columns that were asked for are
+ * filled in; the others stay null. Unlike Project it has no notes and no child lists
+ */
+public class ProjectSummary {
+  private Integer projectId;
+  private String projectName;
+  private Integer difficulty;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(Integer projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  public Integer getDifficulty() {
+    return difficulty;
+  }
+
+  public void setDifficulty(Integer difficulty) {
+    this.difficulty = difficulty;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public void setEstimatedHours(BigDecimal estimatedHours) {
+    this.estimatedHours = estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public void setActualHours(BigDecimal actualHours) {
+    this.actualHours = actualHours;
+  }
+
+  /**
+   * returns the ID followed by the fields that were loaded
+   */
+  @Override
+  public String toString() {
+    String result = projectId + ":";
+    if(Objects.nonNull(projectName)) {
+      result += " " + projectName;
+    }
+    if(Objects.nonNull(difficulty)) {
+      result += ", difficulty " + difficulty;
+    }
+    if(Objects.nonNull(estimatedHours)) {
+      result += ", estimated hours " + estimatedHours;
+    }
+    if(Objects.nonNull(actualHours)) {
+      result += ", actual hours " + actualHours;
+    }
+    return result;
+  }
+}
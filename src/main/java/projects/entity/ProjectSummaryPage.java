@@ -0,0 +1,35 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * one page of a project summary listing and the token that continues it
+ */
+public class ProjectSummaryPage {
+  private final List<ProjectSummary> summaries;
+  private final String nextPageToken;
+
+  public ProjectSummaryPage(List<ProjectSummary> summaries, String nextPageToken) {
+    this.summaries = summaries;
+    this.nextPageToken = nextPageToken;
+  }
+
+  public List<ProjectSummary> getSummaries() {
+    return summaries;
+  }
+
+  /**
+   * opaque token to pass back for the following page, or null if this is the last page
+   */
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public boolean hasNextPage() {
+    return Objects.nonNull(nextPageToken);
+  }
+}
@@ -0,0 +1,147 @@
+package projects.load;
+
+/**
+ * settings for a {@link DatasetGenerator} run, read from key=value arguments:
+ * <ul>
+ * <li>target: mysql for the schema behind DbConnection, or embedded:NAME for an in-memory
+ * MySQL-mode database (default mysql)</li>
+ * <li>projects: number of projects to add (default 1000000)</li>
+ * <li>seed: random seed. The same seed and settings always generate the same rows (default 42)</li>
+ * <li>threads: parallel writer connections (default 8)</li>
+ * <li>chunkSize: projects written and committed together by one writer (default 10000)</li>
+ * <li>batchSize: projects per JDBC batch (default 1000)</li>
+ * <li>materialsMean, stepsMean: mean number of materials and steps per project, Poisson
+ * distributed (default 5 and 8)</li>
+ * <li>categories: size of the category dictionary (default 200)</li>
+ * <li>categoriesMean: mean number of categories per project, Poisson distributed (default 2)</li>
+ * <li>categorySkew: Zipf exponent of category popularity. 0 is uniform (default 1.1)</li>
+ * <li>notesMedian, stepTextMedian: median length in characters of the notes and step_text TEXT
+ * values, log-normally distributed (default 200 and 80)</li>
+ * </ul>
+ */
+public class DatasetConfig {
+  private String target = "mysql";
+  private int projects = 1_000_000;
+  private long seed = 42;
+  private int threads = 8;
+  private int chunkSize = 10_000;
+  private int batchSize = 1_000;
+  private double materialsMean = 5;
+  private double stepsMean = 8;
+  private int categories = 200;
+  private double categoriesMean = 2;
+  private double categorySkew = 1.1;
+  private int notesMedian = 200;
+  private int stepTextMedian = 80;
+
+  /**
+   * @param args key=value settings. Settings that are not given keep their defaults
+   * @return DatasetConfig
+   */
+  public static DatasetConfig fromArgs(String[] args) {
+    DatasetConfig config = new DatasetConfig();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value but got " + arg);
+      }
+      String value = arg.substring(separator + 1);
+      switch (arg.substring(0, separator)) {
+        case "target":
+          config.target = value;
+          break;
+        case "projects":
+          config.projects = Integer.parseInt(value);
+          break;
+        case "seed":
+          config.seed = Long.parseLong(value);
+          break;
+        case "threads":
+          config.threads = Integer.parseInt(value);
+          break;
+        case "chunkSize":
+          config.chunkSize = Integer.parseInt(value);
+          break;
+        case "batchSize":
+          config.batchSize = Integer.parseInt(value);
+          break;
+        case "materialsMean":
+          config.materialsMean = Double.parseDouble(value);
+          break;
+        case "stepsMean":
+          config.stepsMean = Double.parseDouble(value);
+          break;
+        case "categories":
+          config.categories = Integer.parseInt(value);
+          break;
+        case "categoriesMean":
+          config.categoriesMean = Double.parseDouble(value);
+          break;
+        case "categorySkew":
+          config.categorySkew = Double.parseDouble(value);
+          break;
+        case "notesMedian":
+          config.notesMedian = Integer.parseInt(value);
+          break;
+        case "stepTextMedian":
+          config.stepTextMedian = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown setting: " + arg);
+      }
+    }
+    return config;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public int getProjects() {
+    return projects;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public double getMaterialsMean() {
+    return materialsMean;
+  }
+
+  public double getStepsMean() {
+    return stepsMean;
+  }
+
+  public int getCategories() {
+    return categories;
+  }
+
+  public double getCategoriesMean() {
+    return categoriesMean;
+  }
+
+  public double getCategorySkew() {
+    return categorySkew;
+  }
+
+  public int getNotesMedian() {
+    return notesMedian;
+  }
+
+  public int getStepTextMedian() {
+    return stepTextMedian;
+  }
+}
@@ -0,0 +1,316 @@
+package projects.load;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import projects.dao.DbConnection;
+import projects.dao.EmbeddedDatabase;
+import projects.dao.PoolConfig;
+import projects.exception.DbException;
+
+/**
+ * fills the project, material, step, category and project_category tables with a synthetic
+ * dataset for scale testing. See {@link DatasetConfig} for the settings. Run with:
+ *
+ * <pre>
+ * java -cp target/classes:&lt;dependencies&gt; projects.load.DatasetGenerator projects=10000000 threads=16
+ * </pre>
+ *
+ * Every project draws its values from its own random generator, seeded from the run seed and the
+ * project's position in the dataset. The generated rows are therefore the same for a given seed no
+ * matter how many threads write them or in what order. Project IDs are assigned by the generator
+ * after the highest existing ID; material and step IDs come from AUTO_INCREMENT, so their numbering
+ * depends on the order the writers commit in.
+ * <p>
+ * The projects are split into chunks that the writer threads take in turn. Each writer inserts its
+ * chunk with JDBC batches on its own pooled connection and commits once per chunk. With
+ * rewriteBatchedStatements on the connection URL the driver sends each batch as multi-row INSERTs.
+ */
+public class DatasetGenerator {
+  private static final String[] WORDS = {"cut", "glue", "sand", "paint", "measure", "knit", "purl",
+      "stitch", "dig", "plant", "water", "prune", "drill", "screw", "board", "yarn", "needle",
+      "hole", "tree", "seed", "soil", "frame", "edge", "corner", "carefully", "twice", "slowly",
+      "then", "and", "the", "a", "with", "until", "before", "after", "each", "every", "small",
+      "large", "round", "square", "outdoor", "indoor", "wooden", "wool", "cotton", "steel"};
+  private static final double TEXT_LENGTH_SIGMA = 0.8;
+
+  private final DatasetConfig config;
+  private final double[] categoryCdf;
+  private final AtomicLong rowsWritten = new AtomicLong();
+  private int[] categoryIds;
+  private int firstProjectId;
+
+  public DatasetGenerator(DatasetConfig config) {
+    this.config = config;
+    this.categoryCdf = zipfCdf(config.getCategories(), config.getCategorySkew());
+  }
+
+  public static void main(String[] args) {
+    DatasetConfig config = DatasetConfig.fromArgs(args);
+    PoolConfig poolConfig = config.getTarget().startsWith("embedded:")
+        ? EmbeddedDatabase.create(config.getTarget().substring("embedded:".length()))
+        : DbConnection.defaultConfig();
+    poolConfig.setMaxSize(config.getThreads() + 1);
+    poolConfig.setMinIdle(0);
+    DbConnection.configure(poolConfig);
+
+    new DatasetGenerator(config).generate();
+    DbConnection.getPool().close();
+  }
+
+  /**
+   * writes the category dictionary, then the projects and their children on the writer threads
+   * @throws DbException
+   */
+  public void generate() {
+    long start = System.nanoTime();
+    try(Connection conn = DbConnection.getConnection()) {
+      categoryIds = writeCategories(conn);
+      firstProjectId = nextProjectId(conn);
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+
+    ExecutorService writers = Executors.newFixedThreadPool(config.getThreads());
+    try {
+      List<Future<?>> chunks = new ArrayList<>();
+      for(int from = 0; from < config.getProjects(); from += config.getChunkSize()) {
+        int first = from;
+        int last = Math.min(config.getProjects(), from + config.getChunkSize());
+        chunks.add(writers.submit(() -> {
+          writeChunk(first, last);
+          reportProgress(start, last);
+          return null;
+        }));
+      }
+      for(Future<?> chunk : chunks) {
+        chunk.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbException(e);
+    } catch (ExecutionException e) {
+      throw new DbException(e.getCause());
+    } finally {
+      writers.shutdownNow();
+    }
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(Locale.ROOT, "Generated %d projects and %d rows in %.1f s (%.0f rows/s)%n",
+        config.getProjects(), rowsWritten.get(), seconds, rowsWritten.get() / seconds);
+  }
+
+  /**
+   * adds the category names that are not in the dictionary yet
+   * @param conn
+   * @return the category IDs, most popular first
+   * @throws SQLException
+   */
+  private int[] writeCategories(Connection conn) throws SQLException {
+    String insert = "INSERT INTO category (category_name) VALUES (?)"
+        + " ON DUPLICATE KEY UPDATE category_name = category_name";
+    conn.setAutoCommit(false);
+    try(PreparedStatement stmt = conn.prepareStatement(insert)) {
+      for(int rank = 0; rank < config.getCategories(); rank++) {
+        stmt.setString(1, categoryName(rank));
+        stmt.addBatch();
+      }
+      stmt.executeBatch();
+    }
+    conn.commit();
+
+    int[] ids = new int[config.getCategories()];
+    try(PreparedStatement stmt = conn.prepareStatement(
+        "SELECT category_id, category_name FROM category WHERE category_name LIKE 'generated %'");
+        ResultSet rs = stmt.executeQuery()) {
+      while(rs.next()) {
+        int rank = Integer.parseInt(rs.getString(2).substring("generated ".length()));
+        if(rank < ids.length) {
+          ids[rank] = rs.getInt(1);
+        }
+      }
+    }
+    return ids;
+  }
+
+  private int nextProjectId(Connection conn) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(project_id), 0) FROM project");
+        ResultSet rs = stmt.executeQuery()) {
+      rs.next();
+      return rs.getInt(1) + 1;
+    }
+  }
+
+  /**
+   * writes the projects at positions first (inclusive) to last (exclusive) in one transaction
+   * @param first
+   * @param last
+   * @throws SQLException
+   */
+  private void writeChunk(int first, int last) throws SQLException {
+    try(Connection conn = DbConnection.getConnection()) {
+      conn.setAutoCommit(false);
+      try(PreparedStatement project = conn.prepareStatement("INSERT INTO project"
+          + " (project_id, project_name, estimated_hours, actual_hours, difficulty, notes)"
+          + " VALUES (?, ?, ?, ?, ?, ?)");
+          PreparedStatement material = conn.prepareStatement("INSERT INTO material"
+              + " (project_id, material_name, num_required, cost) VALUES (?, ?, ?, ?)");
+          PreparedStatement step = conn.prepareStatement("INSERT INTO step"
+              + " (project_id, step_text, step_order) VALUES (?, ?, ?)");
+          PreparedStatement category = conn.prepareStatement("INSERT INTO project_category"
+              + " (project_id, category_id) VALUES (?, ?)")) {
+        long rows = 0;
+        int pending = 0;
+
+        for(int position = first; position < last; position++) {
+          SplittableRandom random = new SplittableRandom(config.getSeed() ^ (position * 0x9E3779B97F4A7C15L));
+          int projectId = firstProjectId + position;
+
+          project.setInt(1, projectId);
+          project.setString(2, "generated project " + position);
+          project.setBigDecimal(3, BigDecimal.valueOf(random.nextInt(100, 20_000), 2));
+          project.setBigDecimal(4, BigDecimal.valueOf(random.nextInt(100, 20_000), 2));
+          project.setInt(5, random.nextInt(1, 6));
+          project.setString(6, text(random, config.getNotesMedian()));
+          project.addBatch();
+          rows++;
+
+          int materials = poisson(random, config.getMaterialsMean());
+          for(int i = 1; i <= materials; i++) {
+            material.setInt(1, projectId);
+            material.setString(2, WORDS[random.nextInt(WORDS.length)] + " " + i);
+            material.setInt(3, random.nextInt(1, 20));
+            material.setBigDecimal(4, BigDecimal.valueOf(random.nextInt(0, 50_000), 2));
+            material.addBatch();
+          }
+
+          int steps = poisson(random, config.getStepsMean());
+          for(int i = 1; i <= steps; i++) {
+            step.setInt(1, projectId);
+            step.setString(2, text(random, config.getStepTextMedian()));
+            step.setInt(3, i);
+            step.addBatch();
+          }
+
+          int[] projectCategories = pickCategories(random);
+          for(int categoryId : projectCategories) {
+            category.setInt(1, projectId);
+            category.setInt(2, categoryId);
+            category.addBatch();
+          }
+          rows += materials + steps + projectCategories.length;
+
+          if(++pending == config.getBatchSize()) {
+            executeBatches(project, material, step, category);
+            pending = 0;
+          }
+        }
+        executeBatches(project, material, step, category);
+        conn.commit();
+        rowsWritten.addAndGet(rows);
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * sends the pending rows, parents first so the foreign keys are satisfied
+   */
+  private void executeBatches(PreparedStatement... batches) throws SQLException {
+    for(PreparedStatement batch : batches) {
+      batch.executeBatch();
+    }
+  }
+
+  private void reportProgress(long start, int last) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(Locale.ROOT, "  up to project %d written, %d rows, %.0f rows/s%n", last,
+        rowsWritten.get(), rowsWritten.get() / seconds);
+  }
+
+  /**
+   * draws a Poisson-distributed count
+   */
+  private int poisson(SplittableRandom random, double mean) {
+    double limit = Math.exp(-mean);
+    double product = random.nextDouble();
+    int count = 0;
+    while(product > limit) {
+      count++;
+      product *= random.nextDouble();
+    }
+    return count;
+  }
+
+  /**
+   * draws distinct categories for one project, weighted by Zipf popularity
+   */
+  private int[] pickCategories(SplittableRandom random) {
+    int count = Math.min(categoryIds.length, poisson(random, config.getCategoriesMean()));
+    int[] picked = new int[count];
+    int found = 0;
+    while(found < count) {
+      int rank = Arrays.binarySearch(categoryCdf, random.nextDouble());
+      int categoryId = categoryIds[rank < 0 ? Math.min(-rank - 1, categoryIds.length - 1) : rank];
+      boolean duplicate = false;
+      for(int i = 0; i < found && !duplicate; i++) {
+        duplicate = picked[i] == categoryId;
+      }
+      if(!duplicate) {
+        picked[found++] = categoryId;
+      }
+    }
+    return picked;
+  }
+
+  /**
+   * builds text of log-normally distributed length around the given median
+   */
+  private String text(SplittableRandom random, int median) {
+    int length = (int) Math.max(1, Math.min(65_000,
+        median * Math.exp(TEXT_LENGTH_SIGMA * random.nextGaussian())));
+    StringBuilder text = new StringBuilder(length + 16);
+    while(text.length() < length) {
+      if(text.length() > 0) {
+        text.append(' ');
+      }
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    text.setLength(length);
+    return text.toString();
+  }
+
+  private static String categoryName(int rank) {
+    return String.format(Locale.ROOT, "generated %05d", rank);
+  }
+
+  /**
+   * @return the cumulative Zipf distribution over category ranks
+   */
+  private static double[] zipfCdf(int categories, double skew) {
+    double[] cdf = new double[categories];
+    double total = 0;
+    for(int rank = 0; rank < categories; rank++) {
+      total += 1 / Math.pow(rank + 1, skew);
+      cdf[rank] = total;
+    }
+    for(int rank = 0; rank < categories; rank++) {
+      cdf[rank] /= total;
+    }
+    return cdf;
+  }
+}
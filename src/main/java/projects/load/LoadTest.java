@@ -0,0 +1,242 @@
+package projects.load;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import projects.dao.DbConnection;
+import projects.dao.EmbeddedDatabase;
+import projects.dao.PoolConfig;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.metrics.PrometheusExporter;
+import projects.service.ProjectService;
+
+/**
+ * drives a mix of ProjectService operations from many virtual users against an embedded
+ * MySQL-mode database, and reports throughput, error rates and latency percentiles per operation.
+ * <p>
+ * The users follow a fixed schedule that adds up to rate operations per second. Each user runs its
+ * operations one after another, so a slow operation delays the user's later starts and the
+ * achieved rate can fall below the target. To keep those delays from hiding in the results,
+ * latency is measured from the scheduled start rather than the actual one, which corrects for
+ * coordinated omission. See {@link LoadTestConfig} for the settings. Run with:
+ * 
+ * <pre>
+ * java -cp target/classes:&lt;dependencies&gt; projects.load.LoadTest users=200 rate=2000 duration=60
+ * </pre>
+ */
+public class LoadTest {
+  private final LoadTestConfig config;
+  private final ProjectService projectService;
+  private final ConcurrentSkipListSet<Integer> projectIds = new ConcurrentSkipListSet<>();
+  private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+
+  public LoadTest(LoadTestConfig config, ProjectService projectService) {
+    this.config = config;
+    this.projectService = projectService;
+
+    Map<Operation, Integer> mix = config.getMix();
+    operations = mix.keySet().toArray(new Operation[0]);
+    cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total += mix.get(operations[i]);
+      cumulativeWeights[i] = total;
+      stats.put(operations[i], new OperationStats());
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    LoadTestConfig config = LoadTestConfig.fromArgs(args);
+    PoolConfig poolConfig = EmbeddedDatabase.create("loadtest");
+    poolConfig.setMaxSize(config.getPoolSize());
+    poolConfig.setMinIdle(config.getPoolSize());
+    DbConnection.configure(poolConfig);
+    PrometheusExporter.start();
+
+    LoadTest loadTest = new LoadTest(config, new ProjectService());
+    loadTest.seed();
+    loadTest.run();
+    loadTest.report();
+    DbConnection.getPool().close();
+  }
+
+  /**
+   * adds the seed projects, and picks up the sample projects from the schema script
+   */
+  public void seed() {
+    projectService.fetchAllProjects().forEach(project -> projectIds.add(project.getProjectId()));
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < config.getSeedProjects(); i++) {
+      projectIds.add(projectService.addProject(newProject(random)).getProjectId());
+    }
+  }
+
+  /**
+   * runs the warmup and measured periods. Each user runs on its own virtual thread
+   */
+  public void run() {
+    long start = System.nanoTime();
+    long measureFrom = start + TimeUnit.SECONDS.toNanos(config.getWarmup());
+    long end = measureFrom + TimeUnit.SECONDS.toNanos(config.getDuration());
+    long interval = TimeUnit.SECONDS.toNanos(config.getUsers()) / config.getRate();
+
+    try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int user = 0; user < config.getUsers(); user++) {
+        long firstStart = start + interval * user / config.getUsers();
+        users.submit(() -> runUser(firstStart, interval, measureFrom, end));
+      }
+    }
+  }
+
+  /**
+   * prints the results and writes them as JSON to the output file
+   * @throws IOException
+   */
+  public void report() throws IOException {
+    double seconds = config.getDuration();
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"config\": ").append(config)
+        .append(",\n  \"pool\": \"").append(DbConnection.getPoolStats()).append('"')
+        .append(",\n  \"operations\": {");
+
+    String separator = "\n";
+    for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+      System.out.println(entry.getValue().summary(entry.getKey(), seconds));
+      json.append(separator).append("    \"").append(entry.getKey().getMethodName())
+          .append("\": ").append(entry.getValue().toJson(seconds));
+      separator = ",\n";
+    }
+    json.append("\n  }\n}\n");
+
+    Path output = Paths.get(config.getOutput());
+    if (Objects.nonNull(output.getParent())) {
+      Files.createDirectories(output.getParent());
+    }
+    Files.writeString(output, json, StandardCharsets.UTF_8);
+    System.out.println("Results written to " + output.toAbsolutePath());
+  }
+
+  /**
+   * runs one user's share of the schedule. An operation that is still running when the next one is
+   * due delays it; the next one then starts at once, and its latency includes the delay
+   * @param firstStart nanoTime of the user's first operation
+   * @param interval nanoseconds between the user's scheduled starts
+   * @param measureFrom operations scheduled before this nanoTime are warmup and are not recorded
+   * @param end no operations are scheduled after this nanoTime
+   */
+  private void runUser(long firstStart, long interval, long measureFrom, long end) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (long scheduled = firstStart; scheduled < end; scheduled += interval) {
+      long wait = scheduled - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      Operation operation = pickOperation(random);
+      long actualStart = System.nanoTime();
+      boolean success = true;
+      try {
+        execute(operation, random);
+      } catch (RuntimeException e) {
+        success = false;
+      }
+      if (scheduled >= measureFrom) {
+        stats.get(operation).record(scheduled, actualStart, System.nanoTime(), success);
+      }
+    }
+  }
+
+  private Operation pickOperation(ThreadLocalRandom random) {
+    int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < operations.length; i++) {
+      if (pick < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    return operations[operations.length - 1];
+  }
+
+  private void execute(Operation operation, ThreadLocalRandom random) {
+    Integer projectId;
+    switch (operation) {
+      case ADD_PROJECT:
+        projectIds.add(projectService.addProject(newProject(random)).getProjectId());
+        break;
+      case FETCH_PROJECT_BY_ID:
+        projectId = pickProjectId(random);
+        if (Objects.nonNull(projectId)) {
+          projectService.fetchProjectById(projectId);
+        }
+        break;
+      case FETCH_ALL_PROJECTS:
+        projectService.fetchAllProjects();
+        break;
+      case ADD_MATERIAL_TO_PROJECT:
+        projectId = pickProjectId(random);
+        if (Objects.nonNull(projectId)) {
+          Material material = new Material();
+          material.setProjectId(projectId);
+          material.setMaterialName("material " + random.nextInt(1_000));
+          material.setNumRequired(random.nextInt(1, 10));
+          material.setCost(BigDecimal.valueOf(random.nextInt(100, 10_000), 2));
+          projectService.addMaterialToProject(projectId, material);
+        }
+        break;
+      case ADD_CATEGORY_TO_PROJECT:
+        projectId = pickProjectId(random);
+        if (Objects.nonNull(projectId)) {
+          projectService.addCategoryToProject(projectId, "category " + random.nextInt(50));
+        }
+        break;
+      case DELETE_PROJECT:
+        projectId = pickProjectId(random);
+        if (Objects.nonNull(projectId) && projectIds.remove(projectId)) {
+          projectService.deleteProject(projectId);
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unhandled operation " + operation);
+    }
+  }
+
+  /**
+   * @param random
+   * @return the ID of a project that has not been deleted, or null if there are none
+   */
+  private Integer pickProjectId(ThreadLocalRandom random) {
+    try {
+      int lowest = projectIds.first();
+      int highest = projectIds.last();
+      Integer projectId = projectIds.ceiling(lowest + random.nextInt(highest - lowest + 1));
+      return Objects.nonNull(projectId) ? projectId : projectIds.first();
+    } catch (NoSuchElementException e) {
+      return null;
+    }
+  }
+
+  private Project newProject(ThreadLocalRandom random) {
+    Project project = new Project();
+    project.setProjectName(String.format(Locale.ROOT, "load test project %08d", random.nextInt(100_000_000)));
+    project.setEstimatedHours(BigDecimal.valueOf(random.nextInt(100, 10_000), 2));
+    project.setActualHours(BigDecimal.valueOf(random.nextInt(100, 10_000), 2));
+    project.setDifficulty(random.nextInt(1, 6));
+    project.setNotes("generated by the load test");
+    return project;
+  }
+}
@@ -0,0 +1,138 @@
+package projects.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * settings for a {@link LoadTest} run, read from key=value arguments:
+ * <ul>
+ * <li>users: number of virtual users, each running on its own virtual thread (default 100)</li>
+ * <li>rate: total operations per second the users try to start (default 1000)</li>
+ * <li>duration: seconds to measure for (default 30)</li>
+ * <li>warmup: seconds to run before measuring (default 5)</li>
+ * <li>seedProjects: projects created before the run (default 1000)</li>
+ * <li>poolSize: maximum pooled connections (default 20)</li>
+ * <li>mix: weighted operations, for example fetchProjectById:60,addProject:10 (default below)</li>
+ * <li>output: file the JSON results are written to (default target/loadtest-result.json)</li>
+ * </ul>
+ */
+public class LoadTestConfig {
+  private static final String DEFAULT_MIX = "fetchProjectById:60,addProject:10,"
+      + "addMaterialToProject:10,addCategoryToProject:10,fetchAllProjects:5,deleteProject:5";
+
+  private int users = 100;
+  private int rate = 1_000;
+  private int duration = 30;
+  private int warmup = 5;
+  private int seedProjects = 1_000;
+  private int poolSize = 20;
+  private Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+  private String output = "target/loadtest-result.json";
+
+  /**
+   * @param args key=value settings. Settings that are not given keep their defaults
+   * @return LoadTestConfig
+   */
+  public static LoadTestConfig fromArgs(String[] args) {
+    LoadTestConfig config = new LoadTestConfig();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value but got " + arg);
+      }
+      String value = arg.substring(separator + 1);
+      switch (arg.substring(0, separator)) {
+        case "users":
+          config.users = Integer.parseInt(value);
+          break;
+        case "rate":
+          config.rate = Integer.parseInt(value);
+          break;
+        case "duration":
+          config.duration = Integer.parseInt(value);
+          break;
+        case "warmup":
+          config.warmup = Integer.parseInt(value);
+          break;
+        case "seedProjects":
+          config.seedProjects = Integer.parseInt(value);
+          break;
+        case "poolSize":
+          config.poolSize = Integer.parseInt(value);
+          break;
+        case "mix":
+          config.mix = parseMix(value);
+          break;
+        case "output":
+          config.output = value;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown setting: " + arg);
+      }
+    }
+    return config;
+  }
+
+  private static Map<Operation, Integer> parseMix(String mix) {
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.trim().split(":");
+      weights.put(Operation.forMethodName(parts[0]), Integer.parseInt(parts[1]));
+    }
+    return weights;
+  }
+
+  public int getUsers() {
+    return users;
+  }
+
+  public int getRate() {
+    return rate;
+  }
+
+  public int getDuration() {
+    return duration;
+  }
+
+  public int getWarmup() {
+    return warmup;
+  }
+
+  public int getSeedProjects() {
+    return seedProjects;
+  }
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  public Map<Operation, Integer> getMix() {
+    return mix;
+  }
+
+  public String getOutput() {
+    return output;
+  }
+
+  /**
+   * returns the settings as a JSON object
+   */
+  @Override
+  public String toString() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"users\": ").append(users)
+        .append(", \"rate\": ").append(rate)
+        .append(", \"duration\": ").append(duration)
+        .append(", \"warmup\": ").append(warmup)
+        .append(", \"seedProjects\": ").append(seedProjects)
+        .append(", \"poolSize\": ").append(poolSize)
+        .append(", \"mix\": {");
+    String separator = "";
+    for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+      json.append(separator).append('"').append(weight.getKey().getMethodName()).append("\": ")
+          .append(weight.getValue());
+      separator = ", ";
+    }
+    return json.append("}}").toString();
+  }
+}
@@ -0,0 +1,39 @@
+package projects.load;
+
+/**
+ * the ProjectService calls a load test can drive
+ */
+public enum Operation {
+  ADD_PROJECT("addProject"),
+  FETCH_PROJECT_BY_ID("fetchProjectById"),
+  FETCH_ALL_PROJECTS("fetchAllProjects"),
+  ADD_MATERIAL_TO_PROJECT("addMaterialToProject"),
+  ADD_CATEGORY_TO_PROJECT("addCategoryToProject"),
+  DELETE_PROJECT("deleteProject");
+
+  private final String methodName;
+
+  Operation(String methodName) {
+    this.methodName = methodName;
+  }
+
+  /**
+   * the name of the ProjectService method, used in the mix setting and in reports
+   */
+  public String getMethodName() {
+    return methodName;
+  }
+
+  /**
+   * @param methodName
+   * @return the operation for a ProjectService method name
+   */
+  public static Operation forMethodName(String methodName) {
+    for (Operation operation : values()) {
+      if (operation.methodName.equals(methodName)) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("Unknown operation: " + methodName);
+  }
+}
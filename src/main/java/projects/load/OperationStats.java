@@ -0,0 +1,81 @@
+package projects.load;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * latency histograms and error count for one operation. Values are recorded in microseconds.
+ * <p>
+ * latency is measured from the time the operation was scheduled to start, not from the time it
+ * actually started. When the service falls behind, the time operations spend waiting for their
+ * turn is counted as well, which corrects for coordinated omission. serviceTime is measured from the
+ * actual start and shows how much of the latency is the call itself
+ */
+class OperationStats {
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private final ConcurrentHistogram latency = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+  private final ConcurrentHistogram serviceTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+  private final LongAdder errors = new LongAdder();
+
+  /**
+   * @param scheduledStart nanoTime the operation was scheduled to start
+   * @param actualStart nanoTime the operation started
+   * @param end nanoTime the operation finished
+   * @param success false if the operation threw an exception
+   */
+  void record(long scheduledStart, long actualStart, long end, boolean success) {
+    latency.recordValue(Math.max(0, (end - scheduledStart) / 1_000));
+    serviceTime.recordValue(Math.max(0, (end - actualStart) / 1_000));
+    if (!success) {
+      errors.increment();
+    }
+  }
+
+  long getCount() {
+    return latency.getTotalCount();
+  }
+
+  long getErrors() {
+    return errors.sum();
+  }
+
+  /**
+   * @param operation
+   * @param seconds length of the measured period
+   * @return a one-line summary with throughput, error rate and latency percentiles
+   */
+  String summary(Operation operation, double seconds) {
+    return String.format(Locale.ROOT,
+        "%-22s %10.1f ops/s  errors %6.2f%%  p50 %8d us  p99 %8d us  p99.9 %8d us  max %8d us",
+        operation.getMethodName(), getCount() / seconds, errorRate() * 100,
+        latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+        latency.getValueAtPercentile(99.9), latency.getMaxValue());
+  }
+
+  /**
+   * @param seconds length of the measured period
+   * @return the counters and percentiles as a JSON object
+   */
+  String toJson(double seconds) {
+    return String.format(Locale.ROOT,
+        "{\"count\": %d, \"errors\": %d, \"errorRate\": %.6f, \"throughput\": %.3f,"
+            + " \"latencyMicros\": %s, \"serviceTimeMicros\": %s}",
+        getCount(), getErrors(), errorRate(), getCount() / seconds, percentiles(latency),
+        percentiles(serviceTime));
+  }
+
+  private double errorRate() {
+    return getCount() == 0 ? 0 : (double) getErrors() / getCount();
+  }
+
+  private static String percentiles(Histogram histogram) {
+    return String.format(Locale.ROOT,
+        "{\"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}",
+        histogram.getMean(), histogram.getValueAtPercentile(50),
+        histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+        histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+  }
+}
@@ -0,0 +1,189 @@
+package projects.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * records what the DAO methods do: per method the calls, errors, latency, rows read and written
+ * and the time spent borrowing connections. A DAO method opens a scope with start in a
+ * try-with-resources block; the row, failure and acquire counts recorded while the scope is open
+ * go to that method. Scopes opened inside another scope are part of the outer one, so each method
+ * the caller invoked is counted once. Rows and failures are reported by the DaoBase statement and
+ * mapping helpers and by DbConnection, not by the DAO methods themselves.
+ * <p>
+ * Every operation is registered with the platform MBean server as
+ * projects.dao:type=Operation,name=&lt;method&gt; unless projects.metrics.jmx is false. A
+ * Prometheus text dump can be exported with PrometheusExporter.
+ */
+public final class DaoMetrics {
+  private static final String JMX_DOMAIN = "projects.dao";
+
+  private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+  private static final ThreadLocal<Scope> SCOPE = ThreadLocal.withInitial(Scope::new);
+  private static final boolean JMX = Boolean.parseBoolean(System.getProperty("projects.metrics.jmx", "true"));
+
+  private DaoMetrics() {
+  }
+
+  /**
+   * opens the scope of a DAO method. The call is recorded when the outermost scope on the thread
+   * is closed. The scope belongs to the thread and is reused, so it must be closed on the thread
+   * that opened it, by try-with-resources
+   * @param operation the method name
+   * @return the thread's scope
+   */
+  public static Scope start(String operation) {
+    Scope scope = SCOPE.get();
+    if (scope.depth++ == 0) {
+      scope.operation = operation(operation);
+      scope.failed = false;
+      scope.start = System.nanoTime();
+    }
+    return scope;
+  }
+
+  /**
+   * counts the current operation as failed. A scope cannot see the exception that closes it, so
+   * the places where a statement, a transaction or a connection borrow fails report it here
+   */
+  public static void failed() {
+    Scope scope = SCOPE.get();
+    if (scope.depth > 0) {
+      scope.failed = true;
+    }
+  }
+
+  /**
+   * runs work on a helper thread as part of an operation running on another thread, so its rows
+   * and connection borrows count toward that operation. Its failures reach the operation as the
+   * exception the other thread rethrows
+   * @param <T>
+   * @param operation from current on the other thread, or null
+   * @param work
+   * @return the result of work
+   */
+  public static <T> T within(OperationMetrics operation, Supplier<T> work) {
+    Scope scope = SCOPE.get();
+    if (Objects.isNull(operation) || scope.depth > 0) {
+      return work.get();
+    }
+    scope.operation = operation;
+    scope.depth = 1;
+    try {
+      return work.get();
+    } finally {
+      scope.operation = null;
+      scope.depth = 0;
+    }
+  }
+
+  /**
+   * @return the operation running on the current thread, or null
+   */
+  public static OperationMetrics current() {
+    return SCOPE.get().operation;
+  }
+
+  /**
+   * counts rows read by the current operation
+   * @param rows
+   */
+  public static void rowsRead(long rows) {
+    OperationMetrics operation = current();
+    if (Objects.nonNull(operation)) {
+      operation.addRowsRead(rows);
+    }
+  }
+
+  /**
+   * counts rows written by the current operation
+   * @param rows
+   */
+  public static void rowsWritten(long rows) {
+    OperationMetrics operation = current();
+    if (Objects.nonNull(operation)) {
+      operation.addRowsWritten(rows);
+    }
+  }
+
+  /**
+   * records the time the current operation spent waiting for a pooled connection
+   * @param nanos
+   */
+  public static void connectionAcquired(long nanos) {
+    OperationMetrics operation = current();
+    if (Objects.nonNull(operation)) {
+      operation.recordAcquire(nanos);
+    }
+  }
+
+  /**
+   * @return every operation recorded so far, by name
+   */
+  public static List<OperationMetrics> getOperations() {
+    List<OperationMetrics> operations = new ArrayList<>(OPERATIONS.values());
+    operations.sort(Comparator.comparing(OperationMetrics::getName));
+    return operations;
+  }
+
+  /**
+   * @param name
+   * @return the metrics of the named operation, created and registered on first use
+   */
+  public static OperationMetrics operation(String name) {
+    OperationMetrics operation = OPERATIONS.get(name);
+    if (Objects.nonNull(operation)) {
+      return operation;
+    }
+    return OPERATIONS.computeIfAbsent(name, key -> {
+      OperationMetrics created = new OperationMetrics(key);
+      register(created);
+      return created;
+    });
+  }
+
+  private static void register(OperationMetrics operation) {
+    if (!JMX) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(operation,
+          new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + operation.getName()));
+    } catch (JMException e) {
+      System.err.println("Could not register metrics for " + operation.getName() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * the operation a thread is running and how deeply scopes are nested in it
+   */
+  public static final class Scope implements AutoCloseable {
+    private OperationMetrics operation;
+    private int depth;
+    private long start;
+    private boolean failed;
+
+    private Scope() {
+    }
+
+    /**
+     * records the call if this closes the outermost scope
+     */
+    @Override
+    public void close() {
+      if (--depth == 0) {
+        OperationMetrics finished = operation;
+        operation = null;
+        finished.recordCall(System.nanoTime() - start, failed);
+      }
+    }
+  }
+}
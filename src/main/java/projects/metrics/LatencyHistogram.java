@@ -0,0 +1,125 @@
+package projects.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free histogram of durations in microseconds. Buckets are log-linear: each power of two is
+ * split into four equal buckets, so a percentile read from the histogram is at most 25% above the
+ * true value, from 1 microsecond up to about two minutes. Longer values go to an overflow bucket.
+ * Recording never allocates or blocks.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKETS = 4;
+  private static final long[] BOUNDS = bounds(1L << 27);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+  private final LongAdder sumMicros = new LongAdder();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  /**
+   * @param nanos a duration from System.nanoTime differences
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1_000);
+    int bucket = Arrays.binarySearch(BOUNDS, micros);
+    counts.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+    sumMicros.add(micros);
+    long max = maxMicros.get();
+    while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+      max = maxMicros.get();
+    }
+  }
+
+  /**
+   * @return the count of every bucket, the overflow bucket last. Buckets are read one at a time,
+   * so a snapshot taken while values are recorded may be off by the values recorded meanwhile
+   */
+  public long[] getCounts() {
+    long[] snapshot = new long[counts.length()];
+    for (int bucket = 0; bucket < snapshot.length; bucket++) {
+      snapshot[bucket] = counts.get(bucket);
+    }
+    return snapshot;
+  }
+
+  /**
+   * @return the upper bound of every bucket but the overflow bucket, in microseconds
+   */
+  public static long[] getBounds() {
+    return BOUNDS.clone();
+  }
+
+  public long getSumMicros() {
+    return sumMicros.sum();
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+
+  /**
+   * @return number of values recorded
+   */
+  public long getCount() {
+    long count = 0;
+    for (int bucket = 0; bucket < counts.length(); bucket++) {
+      count += counts.get(bucket);
+    }
+    return count;
+  }
+
+  /**
+   * @return the mean of the values recorded, in microseconds
+   */
+  public double getMeanMicros() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) getSumMicros() / count;
+  }
+
+  /**
+   * estimates a percentile from the buckets
+   * @param percentile between 0 and 100
+   * @return upper bound of the bucket holding the percentile, in microseconds, but no more than the
+   * largest value recorded
+   */
+  public long getPercentileMicros(double percentile) {
+    long[] snapshot = getCounts();
+    long total = 0;
+    for (long count : snapshot) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+    long seen = 0;
+    for (int bucket = 0; bucket < BOUNDS.length; bucket++) {
+      seen += snapshot[bucket];
+      if (seen >= target) {
+        return Math.min(BOUNDS[bucket], getMaxMicros());
+      }
+    }
+    return getMaxMicros();
+  }
+
+  /**
+   * builds the bucket bounds: 1, 2, 3 and 4 microseconds, then four equal steps per power of two
+   * @param limit the last bound
+   * @return the bounds in increasing order
+   */
+  private static long[] bounds(long limit) {
+    List<Long> bounds = new ArrayList<>(List.of(1L, 2L, 3L, 4L));
+    for (long base = 4; base < limit; base *= 2) {
+      long step = base / SUB_BUCKETS;
+      for (int sub = 1; sub <= SUB_BUCKETS; sub++) {
+        bounds.add(base + step * sub);
+      }
+    }
+    return bounds.stream().mapToLong(Long::longValue).toArray();
+  }
+}
@@ -0,0 +1,127 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counters and histograms of one DAO operation, named after the DAO method. The counters are
+ * striped LongAdders, so threads recording at the same time do not contend
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+  private final String name;
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder rowsRead = new LongAdder();
+  private final LongAdder rowsWritten = new LongAdder();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LatencyHistogram acquireTime = new LatencyHistogram();
+
+  OperationMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @param nanos how long the call took
+   * @param failed true if the call threw an exception
+   */
+  void recordCall(long nanos, boolean failed) {
+    calls.increment();
+    if (failed) {
+      errors.increment();
+    }
+    latency.record(nanos);
+  }
+
+  void recordAcquire(long nanos) {
+    acquireTime.record(nanos);
+  }
+
+  /**
+   * adds rows read by this operation. Streams use this for rows read after the call has returned
+   * @param rows
+   */
+  public void addRowsRead(long rows) {
+    rowsRead.add(rows);
+  }
+
+  void addRowsWritten(long rows) {
+    rowsWritten.add(rows);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public LatencyHistogram getAcquireTime() {
+    return acquireTime;
+  }
+
+  @Override
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  @Override
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  @Override
+  public long getRowsRead() {
+    return rowsRead.sum();
+  }
+
+  @Override
+  public long getRowsWritten() {
+    return rowsWritten.sum();
+  }
+
+  @Override
+  public double getLatencyMeanMicros() {
+    return latency.getMeanMicros();
+  }
+
+  @Override
+  public long getLatencyP50Micros() {
+    return latency.getPercentileMicros(50);
+  }
+
+  @Override
+  public long getLatencyP99Micros() {
+    return latency.getPercentileMicros(99);
+  }
+
+  @Override
+  public long getLatencyP999Micros() {
+    return latency.getPercentileMicros(99.9);
+  }
+
+  @Override
+  public long getLatencyMaxMicros() {
+    return latency.getMaxMicros();
+  }
+
+  @Override
+  public double getAcquireMeanMicros() {
+    return acquireTime.getMeanMicros();
+  }
+
+  @Override
+  public long getAcquireP99Micros() {
+    return acquireTime.getPercentileMicros(99);
+  }
+
+  /**
+   * returns the counters and latency percentiles
+   */
+  @Override
+  public String toString() {
+    return name + ": calls = " + getCalls() + ", errors = " + getErrors() + ", rows read = "
+        + getRowsRead() + ", rows written = " + getRowsWritten() + ", p50 <= "
+        + getLatencyP50Micros() + "us, p99 <= " + getLatencyP99Micros() + "us, max = "
+        + getLatencyMaxMicros() + "us";
+  }
+}
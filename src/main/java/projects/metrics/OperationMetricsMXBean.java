@@ -0,0 +1,31 @@
+package projects.metrics;
+
+/**
+ * the JMX view of one DAO operation. Latencies and acquire times are in microseconds
+ */
+public interface OperationMetricsMXBean {
+  long getCalls();
+
+  long getErrors();
+
+  long getRowsRead();
+
+  long getRowsWritten();
+
+  double getLatencyMeanMicros();
+
+  long getLatencyP50Micros();
+
+  long getLatencyP99Micros();
+
+  long getLatencyP999Micros();
+
+  long getLatencyMaxMicros();
+
+  /**
+   * time spent borrowing connections from the pool, per connection borrowed
+   */
+  double getAcquireMeanMicros();
+
+  long getAcquireP99Micros();
+}
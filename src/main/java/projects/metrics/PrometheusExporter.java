@@ -0,0 +1,221 @@
+package projects.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * publishes the DAO metrics in the Prometheus text format, over HTTP at /metrics or as a file
+ * that is replaced atomically, for a node exporter's textfile collector. Latencies are histograms
+ * in seconds with two buckets per power of two, so a p99 alert can be written as
+ *
+ * <pre>
+ * histogram_quantile(0.99, sum by (le, operation) (rate(projects_dao_latency_seconds_bucket[5m])))
+ * </pre>
+ * Nothing is exported until an application calls start or one of serve and writeEvery.
+ */
+public class PrometheusExporter implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(PrometheusExporter.class.getName());
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final long DEFAULT_FILE_PERIOD = 10_000;
+  private static final long[] BOUNDS = LatencyHistogram.getBounds();
+
+  private HttpServer server;
+  private ScheduledExecutorService writer;
+
+  /**
+   * writes every operation's counters and histograms
+   * @param out
+   * @throws IOException
+   */
+  public static void write(Appendable out) throws IOException {
+    List<OperationMetrics> operations = DaoMetrics.getOperations();
+    counter(out, operations, "projects_dao_calls_total", "DAO method calls.",
+        OperationMetrics::getCalls);
+    counter(out, operations, "projects_dao_errors_total",
+        "DAO method calls in which a statement, transaction or connection borrow failed.",
+        OperationMetrics::getErrors);
+    counter(out, operations, "projects_dao_rows_read_total", "Rows read by DAO methods.",
+        OperationMetrics::getRowsRead);
+    counter(out, operations, "projects_dao_rows_written_total", "Rows written by DAO methods.",
+        OperationMetrics::getRowsWritten);
+    histogram(out, operations, "projects_dao_latency_seconds", "DAO method latency.",
+        OperationMetrics::getLatency);
+    histogram(out, operations, "projects_dao_connection_acquire_seconds",
+        "Time DAO methods waited for a pooled connection.", OperationMetrics::getAcquireTime);
+  }
+
+  /**
+   * @return the metrics in the Prometheus text format
+   */
+  public static String scrape() {
+    StringBuilder text = new StringBuilder();
+    try {
+      write(text);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return text.toString();
+  }
+
+  /**
+   * starts the exports asked for with the projects.metrics.port and projects.metrics.file system
+   * properties. An export that cannot be started is logged and left out, so the application runs
+   * on without it
+   * @return the exporter, or null if neither property is set
+   */
+  public static PrometheusExporter start() {
+    Integer port = Integer.getInteger("projects.metrics.port");
+    String file = System.getProperty("projects.metrics.file");
+    if (Objects.isNull(port) && Objects.isNull(file)) {
+      return null;
+    }
+    PrometheusExporter exporter = new PrometheusExporter();
+    if (Objects.nonNull(port)) {
+      try {
+        exporter.serve(port);
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Could not serve metrics on port " + port, e);
+      }
+    }
+    if (Objects.nonNull(file)) {
+      try {
+        exporter.writeEvery(Path.of(file),
+            Long.getLong("projects.metrics.filePeriod", DEFAULT_FILE_PERIOD));
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Could not write metrics to " + file, e);
+      }
+    }
+    return exporter;
+  }
+
+  /**
+   * serves the metrics at http://host:port/metrics
+   * @param port
+   * @throws UncheckedIOException if the port cannot be bound
+   */
+  public synchronized void serve(int port) {
+    try {
+      server = HttpServer.create(new InetSocketAddress(port), 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    server.createContext("/metrics", exchange -> {
+      byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-metrics-http");
+      thread.setDaemon(true);
+      return thread;
+    }));
+    server.start();
+    LOG.info("Serving metrics on port " + port + ".");
+  }
+
+  /**
+   * writes the metrics to a file now and then every periodMillis. Each write goes to a temporary
+   * file that is moved over the old one, so readers never see a partial file
+   * @param file
+   * @param periodMillis
+   */
+  public synchronized void writeEvery(Path file, long periodMillis) {
+    writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-metrics-file");
+      thread.setDaemon(true);
+      return thread;
+    });
+    writer.scheduleAtFixedRate(() -> writeFile(file), 0, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void writeFile(Path file) {
+    Path absolute = file.toAbsolutePath();
+    Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+    try {
+      Files.writeString(temp, scrape(), StandardCharsets.UTF_8);
+      Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Could not write metrics to " + absolute, e);
+    }
+  }
+
+  /**
+   * stops serving and writing
+   */
+  @Override
+  public synchronized void close() {
+    if (Objects.nonNull(server)) {
+      server.stop(0);
+    }
+    if (Objects.nonNull(writer)) {
+      writer.shutdownNow();
+    }
+  }
+
+  private static void counter(Appendable out, List<OperationMetrics> operations, String name,
+      String help, Function<OperationMetrics, Long> value) throws IOException {
+    header(out, name, help, "counter");
+    for (OperationMetrics operation : operations) {
+      out.append(name).append("{operation=\"").append(operation.getName()).append("\"} ")
+          .append(String.valueOf(value.apply(operation))).append('\n');
+    }
+  }
+
+  /**
+   * writes a histogram, using every other bucket of the LatencyHistogram as a Prometheus bucket
+   */
+  private static void histogram(Appendable out, List<OperationMetrics> operations, String name,
+      String help, Function<OperationMetrics, LatencyHistogram> histogram) throws IOException {
+    header(out, name, help, "histogram");
+    for (OperationMetrics operation : operations) {
+      LatencyHistogram values = histogram.apply(operation);
+      long[] counts = values.getCounts();
+      String label = "{operation=\"" + operation.getName() + "\"";
+      long cumulative = 0;
+      for (int bucket = 0; bucket < BOUNDS.length; bucket++) {
+        cumulative += counts[bucket];
+        if (bucket % 2 == 1 || bucket == BOUNDS.length - 1) {
+          out.append(name).append("_bucket").append(label).append(",le=\"")
+              .append(seconds(BOUNDS[bucket])).append("\"} ").append(String.valueOf(cumulative))
+              .append('\n');
+        }
+      }
+      cumulative += counts[BOUNDS.length];
+      out.append(name).append("_bucket").append(label).append(",le=\"+Inf\"} ")
+          .append(String.valueOf(cumulative)).append('\n');
+      out.append(name).append("_sum").append(label).append("} ")
+          .append(seconds(values.getSumMicros())).append('\n');
+      out.append(name).append("_count").append(label).append("} ")
+          .append(String.valueOf(cumulative)).append('\n');
+    }
+  }
+
+  private static void header(Appendable out, String name, String help, String type)
+      throws IOException {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static String seconds(long micros) {
+    return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+  }
+}
@@ -0,0 +1,340 @@
+package projects.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import projects.dao.DbConnection;
+import projects.dao.FetchPlan;
+import projects.dao.ProjectDao;
+import projects.dao.SummaryColumn;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.ProjectFilter;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectSummaryPage;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * the project service with methods that return at once with a CompletableFuture, so a caller can
+ * start independent lookups and wait for them together. Get one from ProjectService.async and
+ * close it when done.
+ * <p>
+ * Every call runs the blocking JDBC work of the service on a virtual thread of its own. At most
+ * maxConcurrency calls hold a database connection at a time, and setOperationLimit caps single
+ * operations, by method name, below that, so a burst of one kind of call cannot take every
+ * connection. Calls over a limit wait on their virtual thread, not on the caller's thread.
+ * <p>
+ * The work runs bound to the caller's shard and sees the caller's earlier writes, and the
+ * caller's reads after the future completes see the writes the work made. It runs outside any
+ * session open on the caller's thread. Failures complete the future exceptionally
+ * with the exception the service threw.
+ */
+public class AsyncProjectService implements AutoCloseable {
+  private final ProjectService projectService;
+  private final ProjectDao projectDao;
+  private final ProjectCache projectCache;
+  private final Semaphore connections;
+  private final Map<String, Semaphore> operationLimits = new ConcurrentHashMap<>();
+  private final ExecutorService executor;
+
+  /**
+   * @param projectService the service the calls are passed to
+   * @param projectDao the service's DAO, for the parallel child loads
+   * @param projectCache the service's cache
+   * @param maxConcurrency maximum number of calls running JDBC work at once. Usually no more than
+   * the pool's maximum size
+   */
+  AsyncProjectService(ProjectService projectService, ProjectDao projectDao, ProjectCache projectCache,
+      int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be at least 1 but is " + maxConcurrency);
+    }
+    this.projectService = projectService;
+    this.projectDao = projectDao;
+    this.projectCache = projectCache;
+    this.connections = new Semaphore(maxConcurrency);
+    this.executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("projects-async-", 0).factory());
+  }
+
+  /**
+   * caps how many calls of one operation may run JDBC work at once. Set limits before making calls
+   * @param operation the method name, for example fetchAllProjects
+   * @param permits
+   */
+  public void setOperationLimit(String operation, int permits) {
+    if (permits < 1) {
+      throw new IllegalArgumentException("An operation limit must be at least 1 but is " + permits);
+    }
+    operationLimits.put(operation, new Semaphore(permits));
+  }
+
+  /**
+   * fetches a project with its materials, steps and categories, from the project cache if it is
+   * there
+   * @param projectId
+   * @return future of the project. Fails with NoSuchElementException if there is no such project
+   */
+  public CompletableFuture<Project> fetchProjectById(Integer projectId) {
+    return supply("fetchProjectById", () -> projectService.fetchProjectById(projectId));
+  }
+
+  /**
+   * fetches a project like fetchProjectById, but loads the project row and its materials, steps
+   * and categories with four queries that run at the same time on separate pooled connections.
+   * The queries do not share a transaction, so a write that commits while they run may be seen by
+   * some of them only. The result goes through the project cache, and a cache miss reads like
+   * ProjectService.fetchProjectById from replicas caught up with the project's latest invalidation
+   * @param projectId
+   * @return future of the project. Fails with NoSuchElementException if there is no such project
+   */
+  public CompletableFuture<Project> fetchProjectByIdParallel(Integer projectId) {
+    Supplier<Project> load = () -> projectCache.get(projectId, id -> DbConnection.readAfter(
+        projectCache.getInvalidatedAt(id), () -> loadParallel(id)).join());
+    return CompletableFuture.supplyAsync(DbConnection.carryOver(load), executor);
+  }
+
+  /**
+   * starts the four queries of fetchProjectByIdParallel
+   * @param projectId
+   * @return future of the project
+   */
+  private CompletableFuture<Project> loadParallel(Integer projectId) {
+    String operation = "fetchProjectByIdParallel";
+    CompletableFuture<Project> header = supply(operation,
+        () -> projectDao.fetchProjectById(projectId, FetchPlan.HEADER_ONLY).orElseThrow(
+            () -> new NoSuchElementException("Project number " + projectId + " does not exist.")));
+    CompletableFuture<List<Material>> materials =
+        supply(operation, () -> projectDao.fetchProjectMaterials(projectId));
+    CompletableFuture<List<Step>> steps =
+        supply(operation, () -> projectDao.fetchProjectSteps(projectId));
+    CompletableFuture<List<Category>> categories =
+        supply(operation, () -> projectDao.fetchProjectCategories(projectId));
+
+    return CompletableFuture.allOf(header, materials, steps, categories).thenApply(done -> {
+      Project project = header.join();
+      project.setMaterials(materials.join());
+      project.setSteps(steps.join());
+      project.setCategories(categories.join());
+      return project;
+    });
+  }
+
+  /**
+   * fetches the projects with the given IDs, including their materials, steps and categories
+   * @param projectIds
+   * @return future of the projects in the order their IDs were given
+   */
+  public CompletableFuture<List<Project>> fetchProjectsByIds(Collection<Integer> projectIds) {
+    return supply("fetchProjectsByIds", () -> projectService.fetchProjectsByIds(projectIds));
+  }
+
+  /**
+   * fetches the projects with the given IDs with the child collections in the plan
+   * @param projectIds
+   * @param plan
+   * @return future of the projects in the order their IDs were given
+   */
+  public CompletableFuture<List<Project>> fetchProjectsByIds(Collection<Integer> projectIds,
+      FetchPlan plan) {
+    return supply("fetchProjectsByIds", () -> projectService.fetchProjectsByIds(projectIds, plan));
+  }
+
+  /**
+   * fetches all the projects
+   * @return future of the projects
+   */
+  public CompletableFuture<List<Project>> fetchAllProjects() {
+    return supply("fetchAllProjects", projectService::fetchAllProjects);
+  }
+
+  /**
+   * fetches one page of projects ordered by name
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize
+   * @return future of the page
+   */
+  public CompletableFuture<ProjectPage> fetchProjectPage(String pageToken, int pageSize) {
+    return supply("fetchProjectPage", () -> projectService.fetchProjectPage(pageToken, pageSize));
+  }
+
+  /**
+   * fetches summaries of the projects that match the filter, ordered by name
+   * @param columns columns to load besides the project ID
+   * @param filter conditions on the projects, or null for all of them
+   * @return future of the summaries
+   */
+  public CompletableFuture<List<ProjectSummary>> fetchProjectSummaries(Set<SummaryColumn> columns,
+      ProjectFilter filter) {
+    return supply("fetchProjectSummaries", () -> projectService.fetchProjectSummaries(columns, filter));
+  }
+
+  /**
+   * fetches one page of project summaries ordered by name
+   * @param columns columns to load besides the project ID and name
+   * @param filter conditions on the projects, or null for all of them
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize
+   * @return future of the page
+   */
+  public CompletableFuture<ProjectSummaryPage> fetchProjectSummaryPage(Set<SummaryColumn> columns,
+      ProjectFilter filter, String pageToken, int pageSize) {
+    return supply("fetchProjectSummaryPage",
+        () -> projectService.fetchProjectSummaryPage(columns, filter, pageToken, pageSize));
+  }
+
+  /**
+   * @return future of the categories in the database
+   */
+  public CompletableFuture<List<Category>> fetchAllCategories() {
+    return supply("fetchAllCategories", projectService::fetchAllCategories);
+  }
+
+  /**
+   * adds a project
+   * @param project
+   * @return future of the project with its ID set
+   */
+  public CompletableFuture<Project> addProject(Project project) {
+    return supply("addProject", () -> projectService.addProject(project));
+  }
+
+  /**
+   * adds a project together with its materials, steps and categories
+   * @param project
+   * @return future of the project with all generated IDs set
+   */
+  public CompletableFuture<Project> addProjectAggregate(Project project) {
+    return supply("addProjectAggregate", () -> projectService.addProjectAggregate(project));
+  }
+
+  /**
+   * adds many projects together with their materials, steps and categories in one transaction
+   * @param projects
+   * @return future of the projects with all generated IDs set
+   */
+  public CompletableFuture<List<Project>> addProjectAggregates(List<Project> projects) {
+    return supply("addProjectAggregates", () -> projectService.addProjectAggregates(projects));
+  }
+
+  /**
+   * modifies the details of a project
+   * @param updatedProject
+   * @return future that fails with DbException if there is no such project
+   */
+  public CompletableFuture<Void> modifyProjectDetails(Project updatedProject) {
+    return run("modifyProjectDetails", () -> projectService.modifyProjectDetails(updatedProject));
+  }
+
+  /**
+   * deletes a project
+   * @param projectId
+   * @return future that fails with DbException if there is no such project
+   */
+  public CompletableFuture<Void> deleteProject(Integer projectId) {
+    return run("deleteProject", () -> projectService.deleteProject(projectId));
+  }
+
+  /**
+   * adds a category to a project
+   * @param projectId
+   * @param categoryName
+   * @return future that fails with DbException if there is no such project
+   */
+  public CompletableFuture<Void> addCategoryToProject(Integer projectId, String categoryName) {
+    return run("addCategoryToProject", () -> projectService.addCategoryToProject(projectId, categoryName));
+  }
+
+  /**
+   * adds a material to a project
+   * @param projectId
+   * @param material
+   * @return future that fails with DbException if the material could not be added
+   */
+  public CompletableFuture<Void> addMaterialToProject(Integer projectId, Material material) {
+    return run("addMaterialToProject", () -> projectService.addMaterialToProject(projectId, material));
+  }
+
+  /**
+   * adds many materials to a project
+   * @param projectId
+   * @param materials
+   * @return future of the generated material IDs
+   */
+  public CompletableFuture<List<Integer>> addMaterialsToProject(Integer projectId,
+      List<Material> materials) {
+    return supply("addMaterialsToProject", () -> projectService.addMaterialsToProject(projectId, materials));
+  }
+
+  /**
+   * adds many steps to a project
+   * @param projectId
+   * @param steps
+   * @return future of the generated step IDs
+   */
+  public CompletableFuture<List<Integer>> addStepsToProject(Integer projectId, List<Step> steps) {
+    return supply("addStepsToProject", () -> projectService.addStepsToProject(projectId, steps));
+  }
+
+  /**
+   * waits for the calls already started to finish and stops the executor
+   */
+  @Override
+  public void close() {
+    executor.close();
+  }
+
+  private CompletableFuture<Void> run(String operation, Runnable work) {
+    return supply(operation, () -> {
+      work.run();
+      return null;
+    });
+  }
+
+  /**
+   * runs work on a virtual thread once a permit of the operation, if it has a limit, and a
+   * connection permit are free
+   * @param <T>
+   * @param operation
+   * @param work
+   * @return future of the result of work
+   */
+  private <T> CompletableFuture<T> supply(String operation, Supplier<T> work) {
+    Supplier<T> carried = DbConnection.carryOver(work);
+    return CompletableFuture.supplyAsync(() -> {
+      Semaphore operationLimit = operationLimits.get(operation);
+      try {
+        if (Objects.nonNull(operationLimit)) {
+          operationLimit.acquire();
+        }
+        try {
+          connections.acquire();
+          try {
+            return carried.get();
+          } finally {
+            connections.release();
+          }
+        } finally {
+          if (Objects.nonNull(operationLimit)) {
+            operationLimit.release();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DbException(e);
+      }
+    }, executor);
+  }
+}
@@ -0,0 +1,51 @@
+package projects.service;
+
+/**
+ * point-in-time snapshot of a {@link ProjectCache}
+ */
+public class CacheStats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final int size;
+
+  CacheStats(long hits, long misses, long evictions, int size) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.size = size;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * entries dropped because the cache was full or they had expired. Invalidations are not counted
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public double getHitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  /**
+   * returns the cache counters
+   */
+  @Override
+  public String toString() {
+    return "hits = " + hits + ", misses = " + misses + ", evictions = " + evictions
+        + ", size = " + size + ", hit rate = " + String.format("%.2f", getHitRate());
+  }
+}
@@ -0,0 +1,258 @@
+package projects.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * bounded read-through cache of project aggregates. Entries are evicted least recently used first
+ * once the cache is full, and expire after a fixed time to live. The cache keeps its own copy of
+ * each project and hands every caller a fresh copy, so changing a returned project changes neither
+ * the cache nor what other callers see.
+ * <p>
+ * Invalidations are tracked per project, so a change to one project neither discards the loads in
+ * flight for others nor holds back where their misses may be read from. The invalidation of a
+ * project is remembered for one time to live; after that it counts as happening no later than the
+ * oldest invalidation forgotten so far.
+ */
+public class ProjectCache {
+  private final int maxSize;
+  private final long ttlNanos;
+  private final long ttlMillis;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /*
+   * the latest invalidation of each recently invalidated project, oldest first. A load only stores
+   * its result if its project was not invalidated while it was reading, so a write racing with a
+   * load can never leave a stale project in the cache. Invalidations follow the write that caused
+   * them, so a load that reads only from replicas caught up to the invalidation's time cannot see
+   * a row older than any write the cache has been told about
+   */
+  private final LinkedHashMap<Integer, Invalidation> invalidations = new LinkedHashMap<>();
+
+  /* numbers the invalidations */
+  private long sequence;
+
+  /* every project not in invalidations was last invalidated no later than this */
+  private Invalidation forgotten = new Invalidation(0, 0);
+
+  /**
+   * @param maxSize maximum number of cached projects
+   * @param ttlMillis how long a project stays cached after it is loaded
+   */
+  public ProjectCache(int maxSize, long ttlMillis) {
+    this.maxSize = maxSize;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * returns a copy of the cached project, or loads and caches it
+   * @param projectId
+   * @param loader reads the project from the database. Exceptions are passed on and nothing is cached
+   * @return project
+   */
+  public Project get(Integer projectId, Function<Integer, Project> loader) {
+    long loadSequence;
+    Project cached = null;
+    lock.lock();
+    try {
+      Entry entry = entries.get(projectId);
+      if (Objects.nonNull(entry)) {
+        if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+          hits.increment();
+          cached = entry.project;
+        } else {
+          entries.remove(projectId);
+          evictions.increment();
+        }
+      }
+      loadSequence = sequence;
+    } finally {
+      lock.unlock();
+    }
+    if (Objects.nonNull(cached)) {
+      return copyOf(cached);
+    }
+
+    misses.increment();
+    Project project = loader.apply(projectId);
+    Project copy = copyOf(project);
+
+    lock.lock();
+    try {
+      if (lastInvalidation(projectId).sequence <= loadSequence) {
+        entries.put(projectId, new Entry(copy, System.nanoTime()));
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+          eldest.next();
+          eldest.remove();
+          evictions.increment();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return project;
+  }
+
+  /**
+   * drops a project after it has been changed or deleted
+   * @param projectId
+   */
+  public void invalidate(Integer projectId) {
+    lock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      invalidations.remove(projectId);
+      invalidations.put(projectId, new Invalidation(++sequence, now));
+      entries.remove(projectId);
+
+      /* forget invalidations older than the time to live */
+      Iterator<Invalidation> oldest = invalidations.values().iterator();
+      while (oldest.hasNext()) {
+        Invalidation invalidation = oldest.next();
+        if (now - invalidation.at < ttlMillis) {
+          break;
+        }
+        forgotten = invalidation;
+        oldest.remove();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * drops every cached project
+   */
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      forgotten = new Invalidation(++sequence, System.currentTimeMillis());
+      invalidations.clear();
+      entries.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param projectId
+   * @return wall-clock time of the project's latest invalidation in milliseconds, or 0 if there
+   * was none. Loads that fill the cache must not read from a replica that is behind this time
+   */
+  public long getInvalidatedAt(Integer projectId) {
+    lock.lock();
+    try {
+      return lastInvalidation(projectId).at;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * call with the lock held
+   * @param projectId
+   * @return the project's latest invalidation, or one no earlier than it
+   */
+  private Invalidation lastInvalidation(Integer projectId) {
+    Invalidation invalidation = invalidations.get(projectId);
+    return Objects.nonNull(invalidation) ? invalidation : forgotten;
+  }
+
+  /**
+   * copies a project together with its materials, steps and categories
+   * @param project
+   * @return the copy
+   */
+  private static Project copyOf(Project project) {
+    Project copy = new Project();
+    copy.setProjectId(project.getProjectId());
+    copy.setProjectName(project.getProjectName());
+    copy.setEstimatedHours(project.getEstimatedHours());
+    copy.setActualHours(project.getActualHours());
+    copy.setDifficulty(project.getDifficulty());
+    copy.setNotes(project.getNotes());
+
+    List<Material> materials = new ArrayList<>(project.getMaterials().size());
+    for (Material material : project.getMaterials()) {
+      Material materialCopy = new Material();
+      materialCopy.setMaterialId(material.getMaterialId());
+      materialCopy.setProjectId(material.getProjectId());
+      materialCopy.setMaterialName(material.getMaterialName());
+      materialCopy.setNumRequired(material.getNumRequired());
+      materialCopy.setCost(material.getCost());
+      materials.add(materialCopy);
+    }
+    copy.setMaterials(materials);
+
+    List<Step> steps = new ArrayList<>(project.getSteps().size());
+    for (Step step : project.getSteps()) {
+      Step stepCopy = new Step();
+      stepCopy.setStepId(step.getStepId());
+      stepCopy.setProjectId(step.getProjectId());
+      stepCopy.setStepText(step.getStepText());
+      stepCopy.setStepOrder(step.getStepOrder());
+      steps.add(stepCopy);
+    }
+    copy.setSteps(steps);
+
+    List<Category> categories = new ArrayList<>(project.getCategories().size());
+    for (Category category : project.getCategories()) {
+      Category categoryCopy = new Category();
+      categoryCopy.setCategoryId(category.getCategoryId());
+      categoryCopy.setCategoryName(category.getCategoryName());
+      categories.add(categoryCopy);
+    }
+    copy.setCategories(categories);
+    return copy;
+  }
+
+  /**
+   * @return a snapshot of the cache counters
+   */
+  public CacheStats getStats() {
+    lock.lock();
+    try {
+      return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static class Invalidation {
+    private final long sequence;
+    private final long at;
+
+    private Invalidation(long sequence, long at) {
+      this.sequence = sequence;
+      this.at = at;
+    }
+  }
+
+  private static class Entry {
+    private final Project project;
+    private final long loadedAt;
+
+    private Entry(Project project, long loadedAt) {
+      this.project = project;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package projects.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import projects.dao.DbConnection;
+import projects.dao.ProjectDao;
+import projects.dao.UnitOfWork;
+import projects.entity.Project;
+import projects.exception.DbException;
+
+/**
+ * coalesces concurrent requests for single projects into set-based fetches. The IDs requested
+ * within batchWindowMillis of the first one, or until maxBatchSize distinct IDs are waiting, are
+ * loaded together with one ProjectDao.fetchProjectsByIds call, and every waiting caller is
+ * completed from its result. A request for an ID that is already waiting shares that request, so
+ * callers asking for the same project at the same time get the same object, which must be treated
+ * as read-only. A request for an ID that is already being fetched waits for the next batch
+ * instead, because the running fetch may have read the project before a change the caller has
+ * already seen.
+ * <p>
+ * The fetches run on virtual threads of their own, bound to no shard and without any caller's
+ * write marks. fetchProjectById therefore reads directly, without coalescing, when the calling
+ * thread has a UnitOfWork open or has written something a replica may not have yet.
+ */
+public class ProjectLoader implements AutoCloseable {
+  private final ProjectDao projectDao;
+  private final long batchWindowMillis;
+  private final int maxBatchSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ScheduledExecutorService timer;
+  private final ExecutorService fetchers;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder shared = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder direct = new LongAdder();
+
+  /* guarded by lock */
+  private Map<Integer, CompletableFuture<Optional<Project>>> waiting = new LinkedHashMap<>();
+  private ScheduledFuture<?> flushTimer;
+
+  /**
+   * @param projectDao
+   * @param batchWindowMillis how long the first request of a batch waits for others to join it
+   * @param maxBatchSize number of distinct IDs that starts a fetch without waiting for the window
+   */
+  public ProjectLoader(ProjectDao projectDao, long batchWindowMillis, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be at least 1 but is " + maxBatchSize);
+    }
+    this.projectDao = projectDao;
+    this.batchWindowMillis = batchWindowMillis;
+    this.maxBatchSize = maxBatchSize;
+    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-loader-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.fetchers = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("projects-loader-", 0).factory());
+  }
+
+  /**
+   * fetches a project with its materials, steps and categories, together with the projects other
+   * threads are asking for at the same time
+   * @param projectId
+   * @return project with the given ID
+   * @throws DbException
+   */
+  public Optional<Project> fetchProjectById(Integer projectId) {
+    if (Objects.nonNull(UnitOfWork.current()) || !DbConnection.hasCaughtUp()) {
+      direct.increment();
+      return projectDao.fetchProjectById(projectId);
+    }
+    try {
+      return load(projectId).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new DbException(e.getCause());
+    }
+  }
+
+  /**
+   * queues a project ID for the next batch. The read does not carry the calling thread's write
+   * marks or unit of work
+   * @param projectId
+   * @return future of the project, completed when its batch has been fetched
+   */
+  public CompletableFuture<Optional<Project>> load(Integer projectId) {
+    if (Objects.isNull(projectId)) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+    requests.increment();
+    Map<Integer, CompletableFuture<Optional<Project>>> full = null;
+    CompletableFuture<Optional<Project>> result;
+
+    lock.lock();
+    try {
+      result = waiting.get(projectId);
+      if (Objects.nonNull(result)) {
+        shared.increment();
+        return result;
+      }
+      result = new CompletableFuture<>();
+      waiting.put(projectId, result);
+      if (waiting.size() >= maxBatchSize) {
+        full = takeBatch();
+      } else if (waiting.size() == 1) {
+        flushTimer = timer.schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (Objects.nonNull(full)) {
+      dispatch(full);
+    }
+    return result;
+  }
+
+  /**
+   * starts fetching the waiting IDs at the end of the batch window. Runs on the timer thread
+   */
+  private void flush() {
+    Map<Integer, CompletableFuture<Optional<Project>>> batch;
+    lock.lock();
+    try {
+      if (waiting.isEmpty()) {
+        return;
+      }
+      batch = takeBatch();
+    } finally {
+      lock.unlock();
+    }
+    dispatch(batch);
+  }
+
+  /**
+   * takes the waiting requests for fetching and starts a new batch. Call with the lock held
+   * @return the requests to fetch
+   */
+  private Map<Integer, CompletableFuture<Optional<Project>>> takeBatch() {
+    Map<Integer, CompletableFuture<Optional<Project>>> batch = waiting;
+    waiting = new LinkedHashMap<>();
+    if (Objects.nonNull(flushTimer)) {
+      flushTimer.cancel(false);
+      flushTimer = null;
+    }
+    return batch;
+  }
+
+  private void dispatch(Map<Integer, CompletableFuture<Optional<Project>>> batch) {
+    batches.increment();
+    fetchers.execute(() -> fetch(batch));
+  }
+
+  /**
+   * fetches a batch with one set-based query per table and completes its requests
+   * @param batch
+   */
+  private void fetch(Map<Integer, CompletableFuture<Optional<Project>>> batch) {
+    Map<Integer, Project> projects = new HashMap<>();
+    RuntimeException failure = null;
+    try {
+      for (Project project : projectDao.fetchProjectsByIds(batch.keySet())) {
+        projects.put(project.getProjectId(), project);
+      }
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+
+    for (Map.Entry<Integer, CompletableFuture<Optional<Project>>> entry : batch.entrySet()) {
+      if (Objects.nonNull(failure)) {
+        entry.getValue().completeExceptionally(failure);
+      } else {
+        entry.getValue().complete(Optional.ofNullable(projects.get(entry.getKey())));
+      }
+    }
+  }
+
+  /**
+   * fetches the requests still waiting, waits for every fetch to finish and stops the threads
+   */
+  @Override
+  public void close() {
+    timer.shutdownNow();
+    flush();
+    fetchers.close();
+  }
+
+  /**
+   * returns the request and batch counts
+   */
+  @Override
+  public String toString() {
+    return "requests = " + requests.sum() + ", shared = " + shared.sum() + ", batches = "
+        + batches.sum() + ", direct = " + direct.sum();
+  }
+}
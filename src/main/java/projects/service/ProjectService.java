@@ -1,16 +1,114 @@
 package projects.service;
 
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import projects.bulk.CatalogExporter;
+import projects.bulk.CatalogFormat;
+import projects.bulk.CatalogImporter;
+import projects.bulk.ImportConfig;
+import projects.bulk.ImportResult;
+import projects.dao.DbConnection;
+import projects.dao.FetchPlan;
 import projects.dao.ProjectDao;
+import projects.dao.ShardedDataSource;
+import projects.dao.ShardedProjectDao;
+import projects.dao.SummaryColumn;
 import projects.entity.Category;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectFilter;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectSummaryPage;
+import projects.entity.Step;
 import projects.exception.DbException;
 
 public class ProjectService {
-  private ProjectDao projectDao = new ProjectDao();
+  private static final int DEFAULT_CACHE_SIZE = 1_000;
+  private static final long DEFAULT_CACHE_TTL = 300_000;
+  private static final int DEFAULT_LOADER_BATCH_SIZE = 100;
   
+  private final ProjectDao projectDao;
+  private final ProjectCache projectCache;
+  private final ProjectLoader projectLoader;
+  
+  /**
+   * creates a service with a project cache sized by the projects.cache.maxSize and
+   * projects.cache.ttl (milliseconds) system properties. The projects are spread over shards when
+   * DbConnection has shards configured. Cache misses are coalesced by a ProjectLoader when
+   * projects.loader.batchWindow (milliseconds) is set, with batches of up to
+   * projects.loader.maxBatchSize IDs
+   */
+  public ProjectService() {
+    this(defaultDao());
+  }
+  
+  private ProjectService(ProjectDao projectDao) {
+    this(projectDao, new ProjectCache(
+        Integer.getInteger("projects.cache.maxSize", DEFAULT_CACHE_SIZE),
+        Long.getLong("projects.cache.ttl", DEFAULT_CACHE_TTL)), defaultLoader(projectDao));
+  }
+  
+  /**
+   * @param projectDao
+   * @param projectCache
+   */
+  public ProjectService(ProjectDao projectDao, ProjectCache projectCache) {
+    this(projectDao, projectCache, null);
+  }
+  
+  /**
+   * @param projectDao
+   * @param projectCache
+   * @param projectLoader loads the projects fetchProjectById misses in the cache, or null to read
+   * them one at a time
+   */
+  public ProjectService(ProjectDao projectDao, ProjectCache projectCache, ProjectLoader projectLoader) {
+    this.projectDao = projectDao;
+    this.projectCache = projectCache;
+    this.projectLoader = projectLoader;
+  }
+  
+  private static ProjectDao defaultDao() {
+    ShardedDataSource shards = DbConnection.getShards();
+    return Objects.nonNull(shards) ? new ShardedProjectDao(shards) : new ProjectDao();
+  }
+  
+  private static ProjectLoader defaultLoader(ProjectDao projectDao) {
+    long batchWindow = Long.getLong("projects.loader.batchWindow", 0);
+    if (batchWindow <= 0) {
+      return null;
+    }
+    return new ProjectLoader(projectDao, batchWindow,
+        Integer.getInteger("projects.loader.maxBatchSize", DEFAULT_LOADER_BATCH_SIZE));
+  }
+  
+  /**
+   * opens a session that runs several operations on one connection and commits them together. The
+   * session must be closed, and used only on the thread that opened it
+   * @return ProjectSession
+   * @throws DbException if a session is already open on this thread
+   */
+  public ProjectSession openSession() {
+    return new ProjectSession(projectDao, projectCache);
+  }
+
+  /**
+   * creates an asynchronous view of this service whose calls return CompletableFutures and run on
+   * virtual threads. It shares this service's DAO and cache and must be closed
+   * @param maxConcurrency maximum number of its calls running JDBC work at once
+   * @return AsyncProjectService
+   */
+  public AsyncProjectService async(int maxConcurrency) {
+    return new AsyncProjectService(this, projectDao, projectCache, maxConcurrency);
+  }
+
   /**
    * adds a project
    * @param project
@@ -21,6 +119,24 @@ public class ProjectService {
     
   }
 
+  /**
+   * adds a project together with its materials, steps and categories
+   * @param project
+   * @return project with all generated IDs set
+   */
+  public Project addProjectAggregate(Project project) {
+    return projectDao.insertProjectAggregate(project);
+  }
+
+  /**
+   * adds many projects together with their materials, steps and categories in one transaction
+   * @param projects
+   * @return projects with all generated IDs set
+   */
+  public List<Project> addProjectAggregates(List<Project> projects) {
+    return projectDao.insertProjectAggregates(projects);
+  }
+
   /**
    * fetches all the projects
    * @return List of projects
@@ -30,23 +146,171 @@ public class ProjectService {
   }
 
   /**
-   * fetches the project with a given project ID
+   * fetches one page of projects ordered by name
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize
+   * @return ProjectPage
+   */
+  public ProjectPage fetchProjectPage(String pageToken, int pageSize) {
+    return projectDao.fetchProjectPage(pageToken, pageSize);
+  }
+
+  /**
+   * fetches summaries of the projects that match the filter, ordered by name
+   * @param columns columns to load besides the project ID
+   * @param filter conditions on the projects, or null for all of them
+   * @return List of summaries
+   */
+  public List<ProjectSummary> fetchProjectSummaries(Set<SummaryColumn> columns, ProjectFilter filter) {
+    return projectDao.fetchProjectSummaries(columns, filter);
+  }
+
+  /**
+   * fetches one page of project summaries ordered by name
+   * @param columns columns to load besides the project ID and name
+   * @param filter conditions on the projects, or null for all of them
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize
+   * @return ProjectSummaryPage
+   */
+  public ProjectSummaryPage fetchProjectSummaryPage(Set<SummaryColumn> columns, ProjectFilter filter,
+      String pageToken, int pageSize) {
+    return projectDao.fetchProjectSummaryPage(columns, filter, pageToken, pageSize);
+  }
+
+  /**
+   * streams all the projects without holding them all in memory. The stream must be closed
+   * @return Stream of projects
+   */
+  public Stream<Project> streamAllProjects() {
+    return projectDao.streamAllProjects();
+  }
+
+  /**
+   * streams all the projects, reading fetchSize rows per round trip. The stream must be closed
+   * @param fetchSize
+   * @return Stream of projects
+   */
+  public Stream<Project> streamAllProjects(int fetchSize) {
+    return projectDao.streamAllProjects(fetchSize);
+  }
+
+  /**
+   * writes every project with its materials, steps and categories to a file
+   * @param file
+   * @param format
+   * @param gzip
+   * @return the number of projects exported
+   * @throws DbException
+   */
+  public long exportCatalog(Path file, CatalogFormat format, boolean gzip) {
+    return new CatalogExporter(projectDao).export(file, format, gzip);
+  }
+
+  /**
+   * loads projects with their materials, steps and categories from a catalog file. Records that
+   * cannot be imported are written to the reject file
+   * @param config
+   * @return ImportResult
+   * @throws DbException
+   */
+  public ImportResult importCatalog(ImportConfig config) {
+    return new CatalogImporter(projectDao, config).importCatalog();
+  }
+
+  /**
+   * fetches the project with a given project ID. A cache miss reads from the primary or from a
+   * replica that has caught up with the project's latest cache invalidation, so a write made on
+   * another thread cannot be cached over with an older row
    * @param projectId
    * @return project
    */
   public Project fetchProjectById(Integer projectId) {
-    return projectDao.fetchProjectById(projectId).orElseThrow(
+    return projectCache.get(projectId,
+        id -> DbConnection.readAfter(projectCache.getInvalidatedAt(id), () -> load(id))
+            .orElseThrow(() -> new NoSuchElementException(
+                "Project number " + id + " does not exist.")));
+  }
+
+  private Optional<Project> load(Integer projectId) {
+    return Objects.nonNull(projectLoader)
+        ? projectLoader.fetchProjectById(projectId)
+        : projectDao.fetchProjectById(projectId);
+  }
+
+  /**
+   * fetches the project with a given project ID, loading the child collections in the plan up
+   * front and the others when they are first used. Only FetchPlan.ALL goes through the project
+   * cache
+   * @param projectId
+   * @param plan
+   * @return project
+   */
+  public Project fetchProjectById(Integer projectId, FetchPlan plan) {
+    if(plan.isAll()) {
+      return fetchProjectById(projectId);
+    }
+    return projectDao.fetchProjectById(projectId, plan).orElseThrow(
         () -> new NoSuchElementException("Project number " + projectId + " does not exist."));
   }
 
+  /**
+   * @return a snapshot of the project cache counters
+   */
+  public CacheStats getCacheStats() {
+    return projectCache.getStats();
+  }
+
+  /**
+   * fetches the projects with the given IDs, including their materials, steps and categories
+   * @param projectIds
+   * @return List of projects in the order their IDs were given
+   */
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+    return projectDao.fetchProjectsByIds(projectIds);
+  }
+
+  /**
+   * fetches the projects with the given IDs with the child collections in the plan. The other
+   * collections are loaded for all of the projects together when one of them is first used
+   * @param projectIds
+   * @param plan
+   * @return List of projects in the order their IDs were given
+   */
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds, FetchPlan plan) {
+    return projectDao.fetchProjectsByIds(projectIds, plan);
+  }
+
+  /**
+   * fetches all the projects, including their materials, steps and categories
+   * @return List of projects
+   */
+  public List<Project> fetchAllProjectsWithChildren() {
+    return projectDao.fetchAllProjectsWithChildren();
+  }
+
+  /**
+   * fetches all the projects with the child collections in the plan. The other collections are
+   * loaded for all projects together when one of them is first used
+   * @param plan
+   * @return List of projects
+   */
+  public List<Project> fetchAllProjectsWithChildren(FetchPlan plan) {
+    return projectDao.fetchAllProjectsWithChildren(plan);
+  }
+
   /**
    * modifies the details of a project
    * @param updatedProject
    * @throws DbExeption
    */
   public void modifyProjectDetails(Project updatedProject) {
-    if(!projectDao.modifyProjectDetails(updatedProject)) {
-      throw new DbException("Project with ID = " + updatedProject.getProjectId() + " does not exist.");
+    try {
+      if(!projectDao.modifyProjectDetails(updatedProject)) {
+        throw new DbException("Project with ID = " + updatedProject.getProjectId() + " does not exist.");
+      }
+    } finally {
+      projectCache.invalidate(updatedProject.getProjectId());
     }
   }
   /**
@@ -55,8 +319,12 @@ public class ProjectService {
    * @throws DbException
    */
   public void deleteProject(Integer projectId) {
-    if (!projectDao.deleteProject(projectId)) {
-      throw new DbException();
+    try {
+      if (!projectDao.deleteProject(projectId)) {
+        throw new DbException();
+      }
+    } finally {
+      projectCache.invalidate(projectId);
     }
   }
   /**
@@ -72,8 +340,38 @@ public class ProjectService {
    * @param categoryName
    */
   public void addCategoryToProject(Integer projectId, String categoryName) {
-    if(!projectDao.addCategoryToProject(projectId, categoryName)) {
-      throw new DbException("Project with ID = " + projectId + " does not exist.");
+    try {
+      if(!projectDao.addCategoryToProject(projectId, categoryName)) {
+        throw new DbException("Project with ID = " + projectId + " does not exist.");
+      }
+    } finally {
+      projectCache.invalidate(projectId);
+    }
+  }
+  /**
+   * adds many materials to a project
+   * @param projectId
+   * @param materials
+   * @return the generated material IDs
+   */
+  public List<Integer> addMaterialsToProject(Integer projectId, List<Material> materials) {
+    try {
+      return projectDao.addMaterialsToProject(projectId, materials);
+    } finally {
+      projectCache.invalidate(projectId);
+    }
+  }
+  /**
+   * adds many steps to a project
+   * @param projectId
+   * @param steps
+   * @return the generated step IDs
+   */
+  public List<Integer> addStepsToProject(Integer projectId, List<Step> steps) {
+    try {
+      return projectDao.addStepsToProject(projectId, steps);
+    } finally {
+      projectCache.invalidate(projectId);
     }
   }
   /**
@@ -82,8 +380,12 @@ public class ProjectService {
    * @param material
    */
   public void addMaterialToProject(Integer projectId, Material material) {
-    if(!projectDao.addMaterialToProject(projectId, material)) {
-      throw new DbException();
+    try {
+      if(!projectDao.addMaterialToProject(projectId, material)) {
+        throw new DbException();
+      }
+    } finally {
+      projectCache.invalidate(projectId);
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,290 @@
+package projects.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import projects.dao.ProjectDao;
+import projects.dao.SummaryColumn;
+import projects.dao.UnitOfWork;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.ProjectFilter;
+import projects.entity.ProjectSummaryPage;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * a unit of work over the project service: every call runs on one borrowed connection inside one
+ * transaction, which is committed by commit. Get one from ProjectService.openSession and use it on
+ * the thread that opened it only.
+ * <p>
+ * Projects are kept in an identity map, so fetching a project twice in a session returns the same
+ * object without a second query. Materials, steps and categories added to projects are held back
+ * and written as batches when the session is flushed. That happens at commit, and before any query
+ * or other write, so reads in the session always see its own writes. Held-back materials and steps
+ * have no IDs until then.
+ */
+public class ProjectSession implements AutoCloseable {
+  private final ProjectDao projectDao;
+  private final ProjectCache projectCache;
+  private final UnitOfWork unitOfWork;
+  private final Map<Integer, Project> projects = new HashMap<>();
+  private final Map<Integer, List<Material>> pendingMaterials = new LinkedHashMap<>();
+  private final Map<Integer, List<Step>> pendingSteps = new LinkedHashMap<>();
+  private final Map<Integer, List<String>> pendingCategories = new LinkedHashMap<>();
+  private final Set<Integer> modifiedProjectIds = new HashSet<>();
+
+  /**
+   * @param projectDao
+   * @param projectCache the shared cache, which is told about the projects this session changes
+   */
+  ProjectSession(ProjectDao projectDao, ProjectCache projectCache) {
+    this.projectDao = projectDao;
+    this.projectCache = projectCache;
+    this.unitOfWork = UnitOfWork.begin();
+  }
+
+  /**
+   * fetches a project with its materials, steps and categories, from the identity map if this
+   * session has already loaded it
+   * @param projectId
+   * @return project
+   * @throws NoSuchElementException if there is no such project
+   */
+  public Project fetchProjectById(Integer projectId) {
+    Project project = projects.get(projectId);
+    if(Objects.isNull(project)) {
+      flush();
+      project = projectDao.fetchProjectById(projectId).orElseThrow(
+          () -> new NoSuchElementException("Project number " + projectId + " does not exist."));
+      projects.put(projectId, project);
+    }
+    return project;
+  }
+
+  /**
+   * fetches the given projects with their children. Projects already in the identity map are not
+   * read again
+   * @param projectIds
+   * @return List of projects in the order their IDs were given. IDs without a project are skipped
+   */
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+    List<Integer> missing = new ArrayList<>();
+    for(Integer projectId : projectIds) {
+      if(Objects.nonNull(projectId) && !projects.containsKey(projectId)) {
+        missing.add(projectId);
+      }
+    }
+    if(!missing.isEmpty()) {
+      flush();
+      projectDao.fetchProjectsByIds(missing).forEach(project -> projects.put(project.getProjectId(), project));
+    }
+    
+    List<Project> found = new ArrayList<>(projectIds.size());
+    for(Integer projectId : projectIds) {
+      Project project = projects.get(projectId);
+      if(Objects.nonNull(project)) {
+        found.add(project);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * fetches one page of project summaries ordered by name
+   * @param columns columns to load besides the project ID and name
+   * @param filter conditions on the projects, or null for all of them
+   * @param pageToken token from the previous page, or null for the first page
+   * @param pageSize
+   * @return ProjectSummaryPage
+   */
+  public ProjectSummaryPage fetchProjectSummaryPage(Set<SummaryColumn> columns, ProjectFilter filter,
+      String pageToken, int pageSize) {
+    flush();
+    return projectDao.fetchProjectSummaryPage(columns, filter, pageToken, pageSize);
+  }
+
+  /**
+   * provides a list of the categories in the database
+   * @return List of categories
+   */
+  public List<Category> fetchAllCategories() {
+    flush();
+    return projectDao.fetchAllCategories();
+  }
+
+  /**
+   * adds a project. It is inserted straight away so its ID is known
+   * @param project
+   * @return project
+   */
+  public Project addProject(Project project) {
+    flush();
+    projectDao.insertProject(project);
+    projects.put(project.getProjectId(), project);
+    modifiedProjectIds.add(project.getProjectId());
+    return project;
+  }
+
+  /**
+   * queues a material to be added to a project. If the project is in the identity map, the
+   * material is added to its list right away
+   * @param projectId
+   * @param material
+   */
+  public void addMaterialToProject(Integer projectId, Material material) {
+    material.setProjectId(projectId);
+    pendingMaterials.computeIfAbsent(projectId, id -> new ArrayList<>()).add(material);
+    Project project = projects.get(projectId);
+    if(Objects.nonNull(project)) {
+      project.getMaterials().add(material);
+    }
+  }
+
+  /**
+   * queues a step to be added to a project. Steps without a step order are numbered after the
+   * project's existing steps when they are written
+   * @param projectId
+   * @param step
+   */
+  public void addStepToProject(Integer projectId, Step step) {
+    step.setProjectId(projectId);
+    pendingSteps.computeIfAbsent(projectId, id -> new ArrayList<>()).add(step);
+    projects.remove(projectId);
+  }
+
+  /**
+   * queues a category to be linked to a project, adding it to the dictionary if it is new
+   * @param projectId
+   * @param categoryName
+   */
+  public void addCategoryToProject(Integer projectId, String categoryName) {
+    pendingCategories.computeIfAbsent(projectId, id -> new ArrayList<>()).add(categoryName);
+    projects.remove(projectId);
+  }
+
+  /**
+   * modifies the details of a project
+   * @param updatedProject
+   * @throws DbException if there is no such project
+   */
+  public void modifyProjectDetails(Project updatedProject) {
+    flush();
+    Integer projectId = updatedProject.getProjectId();
+    projects.remove(projectId);
+    modifiedProjectIds.add(projectId);
+    if(!projectDao.modifyProjectDetails(updatedProject)) {
+      throw new DbException("Project with ID = " + projectId + " does not exist.");
+    }
+  }
+
+  /**
+   * deletes a project
+   * @param projectId
+   * @throws DbException if there is no such project
+   */
+  public void deleteProject(Integer projectId) {
+    flush();
+    projects.remove(projectId);
+    modifiedProjectIds.add(projectId);
+    if(!projectDao.deleteProject(projectId)) {
+      throw new DbException("Project with ID = " + projectId + " does not exist.");
+    }
+  }
+
+  /**
+   * writes the queued materials, steps and categories. Materials and category links for all
+   * projects each go out as one set of batches; steps are batched per project because they are
+   * numbered per project
+   */
+  public void flush() {
+    if(!pendingMaterials.isEmpty()) {
+      List<Material> materials = new ArrayList<>();
+      pendingMaterials.values().forEach(materials::addAll);
+      modifiedProjectIds.addAll(pendingMaterials.keySet());
+      pendingMaterials.clear();
+      projectDao.addMaterials(materials);
+    }
+    if(!pendingSteps.isEmpty()) {
+      modifiedProjectIds.addAll(pendingSteps.keySet());
+      Map<Integer, List<Step>> steps = new LinkedHashMap<>(pendingSteps);
+      pendingSteps.clear();
+      steps.forEach(projectDao::addStepsToProject);
+    }
+    if(!pendingCategories.isEmpty()) {
+      modifiedProjectIds.addAll(pendingCategories.keySet());
+      Map<Integer, List<String>> categories = new LinkedHashMap<>(pendingCategories);
+      pendingCategories.clear();
+      projectDao.addCategoriesToProjects(categories);
+    }
+  }
+
+  /**
+   * flushes the queued writes and commits the transaction. The session stays open
+   * @throws DbException if a write failed. Nothing since the last commit is kept
+   */
+  public void commit() {
+    try {
+      flush();
+      unitOfWork.commit();
+    } catch (RuntimeException e) {
+      discard();
+      try {
+        unitOfWork.rollback();
+      } catch (RuntimeException rollbackFailure) {
+        e.addSuppressed(rollbackFailure);
+      }
+      throw e;
+    } finally {
+      invalidateModified();
+    }
+  }
+
+  /**
+   * drops the queued writes and rolls back the transaction. The session stays open
+   */
+  public void rollback() {
+    try {
+      discard();
+      unitOfWork.rollback();
+    } finally {
+      invalidateModified();
+    }
+  }
+
+  /**
+   * rolls back anything not committed and returns the connection
+   */
+  @Override
+  public void close() {
+    try {
+      discard();
+      unitOfWork.close();
+    } finally {
+      invalidateModified();
+    }
+  }
+
+  /**
+   * forgets the queued writes and every loaded project, since they may describe rolled back rows
+   */
+  private void discard() {
+    pendingMaterials.clear();
+    pendingSteps.clear();
+    pendingCategories.clear();
+    projects.clear();
+  }
+
+  private void invalidateModified() {
+    modifiedProjectIds.forEach(projectCache::invalidate);
+    modifiedProjectIds.clear();
+  }
+}
@@ -2,27 +2,45 @@
  * 
  */
 package provided.util;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import projects.metrics.DaoMetrics;
 /**
  * This class contains utility methods for the DAO class.
  * 
+ * The transaction, statement and row mapping methods emit the Flight Recorder events
+ * projects.jdbc.Transaction, projects.jdbc.Statement and projects.jdbc.RowMapping. They are
+ * disabled by default and can be switched on in a running process with jcmd:
+ * 
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start name=jdbc +projects.jdbc.Statement#enabled=true \
+ *     +projects.jdbc.Transaction#enabled=true +projects.jdbc.RowMapping#enabled=true
+ * </pre>
+ * 
+ * The same methods report the rows read and written, and any failure, to the DAO operation that is
+ * running on the thread (see {@link DaoMetrics}).
+ * 
  * @author Promineo
  *
  */
 public abstract class DaoBase {
+  /* The transaction started on each thread, if the transaction event is enabled. */
+  private static final ThreadLocal<OpenTransaction> TRANSACTION = new ThreadLocal<>();
+
   /**
    * This starts a MySQL transaction. Normally MySQL starts a transaction before every request and
    * commits it after each request. By turning auto-commit off, the transaction is only committed
@@ -32,7 +50,15 @@ public abstract class DaoBase {
    * @throws SQLException Thrown if an error occurs starting the transaction.
    */
   protected void startTransaction(Connection conn) throws SQLException {
+    TRANSACTION.remove();
     conn.setAutoCommit(false);
+
+    JdbcTransactionEvent event = new JdbcTransactionEvent();
+
+    if(event.isEnabled()) {
+      event.begin();
+      TRANSACTION.set(new OpenTransaction(conn, event));
+    }
   }
 
   /**
@@ -42,7 +68,19 @@ public abstract class DaoBase {
    * @throws SQLException Thrown if an error occurs committing the transaction.
    */
   protected void commitTransaction(Connection conn) throws SQLException {
-    conn.commit();
+    boolean committed = false;
+
+    try {
+      conn.commit();
+      committed = true;
+    }
+    catch(SQLException e) {
+      DaoMetrics.failed();
+      throw e;
+    }
+    finally {
+      endTransaction(conn, committed ? "commit" : "failed commit");
+    }
   }
 
   /**
@@ -52,7 +90,133 @@ public abstract class DaoBase {
    * @throws SQLException Thrown if an error occurs rolling back the transaction.
    */
   protected void rollbackTransaction(Connection conn) throws SQLException {
-    conn.rollback();
+    DaoMetrics.failed();
+
+    try {
+      conn.rollback();
+    }
+    finally {
+      endTransaction(conn, "rollback");
+    }
+  }
+
+  /**
+   * Commits the transaction event of a transaction started on this thread by
+   * {@link #startTransaction(Connection)}. The thread's open transaction is cleared even if it
+   * belongs to another connection, so a transaction that was never ended does not keep its
+   * connection reachable from a pooled thread.
+   * 
+   * @param conn The connection of the transaction.
+   * @param outcome commit, failed commit or rollback
+   */
+  private void endTransaction(Connection conn, String outcome) {
+    OpenTransaction open = TRANSACTION.get();
+    TRANSACTION.remove();
+
+    if(Objects.nonNull(open) && open.conn == conn) {
+      open.event.outcome = outcome;
+      open.event.commit();
+    }
+  }
+
+  /**
+   * Executes a query and emits a statement event for it.
+   * 
+   * @param stmt The prepared and bound query.
+   * @param sql The SQL the statement was prepared with. It is only read if the event is enabled.
+   * @return The result set.
+   * @throws SQLException Thrown if the query fails.
+   */
+  protected ResultSet executeQuery(PreparedStatement stmt, String sql) throws SQLException {
+    JdbcStatementEvent event = new JdbcStatementEvent();
+    event.begin();
+
+    try {
+      return stmt.executeQuery();
+    }
+    catch(SQLException e) {
+      DaoMetrics.failed();
+      throw e;
+    }
+    finally {
+      commitStatement(event, sql, -1);
+    }
+  }
+
+  /**
+   * Executes an insert, update or delete and emits a statement event for it.
+   * 
+   * @param stmt The prepared and bound statement.
+   * @param sql The SQL the statement was prepared with. It is only read if the event is enabled.
+   * @return The number of rows changed.
+   * @throws SQLException Thrown if the statement fails.
+   */
+  protected int executeUpdate(PreparedStatement stmt, String sql) throws SQLException {
+    JdbcStatementEvent event = new JdbcStatementEvent();
+    long rows = -1;
+    event.begin();
+
+    try {
+      int count = stmt.executeUpdate();
+      rows = count;
+      DaoMetrics.rowsWritten(rows);
+      return count;
+    }
+    catch(SQLException e) {
+      DaoMetrics.failed();
+      throw e;
+    }
+    finally {
+      commitStatement(event, sql, rows);
+    }
+  }
+
+  /**
+   * Executes the batch added to a statement and emits one statement event for the whole batch.
+   * 
+   * @param stmt The prepared statement with its batch added.
+   * @param sql The SQL the statement was prepared with. It is only read if the event is enabled.
+   * @return The update count of every statement in the batch.
+   * @throws SQLException Thrown if the batch fails.
+   */
+  protected int[] executeBatch(PreparedStatement stmt, String sql) throws SQLException {
+    JdbcStatementEvent event = new JdbcStatementEvent();
+    long rows = -1;
+    event.begin();
+
+    try {
+      int[] counts = stmt.executeBatch();
+      rows = 0;
+
+      for(int count : counts) {
+        /* Drivers that cannot tell report SUCCESS_NO_INFO, which counts as one row. */
+        rows += count >= 0 ? count : 1;
+      }
+
+      DaoMetrics.rowsWritten(rows);
+      return counts;
+    }
+    catch(SQLException e) {
+      DaoMetrics.failed();
+      throw e;
+    }
+    finally {
+      commitStatement(event, sql, rows);
+    }
+  }
+
+  /**
+   * Fills in and commits a statement event if it is enabled and over its threshold.
+   */
+  private void commitStatement(JdbcStatementEvent event, String sql, long rows) {
+    event.end();
+
+    if(event.shouldCommit()) {
+      event.sql = sql;
+      event.parameterCount = (int)sql.chars().filter(ch -> ch == '?').count();
+      event.rows = rows;
+      event.commit();
+    }
   }
 
   /**
@@ -104,6 +268,27 @@ public abstract class DaoBase {
     }
   }
 
+  /**
+   * This builds a comma-separated list of parameter markers for IN lists and multi-row VALUES
+   * clauses. For example, placeholders(3) returns "?, ?, ?".
+   * 
+   * @param count The number of parameter markers
+   * @return The parameter markers
+   */
+  protected String placeholders(int count) {
+    StringBuilder markers = new StringBuilder(count * 3);
+
+    for(int i = 0; i < count; i++) {
+      if(i > 0) {
+        markers.append(", ");
+      }
+
+      markers.append('?');
+    }
+
+    return markers.toString();
+  }
+
   /**
    * Converts from a Java class to a java.sql.Types value.
    * 
@@ -153,7 +338,7 @@ public abstract class DaoBase {
     try(PreparedStatement stmt = conn.prepareStatement(sql)) {
       setParameter(stmt, 1, id, Integer.class);
 
-      try(ResultSet rs = stmt.executeQuery()) {
+      try(ResultSet rs = executeQuery(stmt, sql)) {
         if(rs.next()) {
           return rs.getInt(1) + 1;
         }
@@ -164,20 +349,21 @@ public abstract class DaoBase {
   }
 
   /**
-   * This returns the integer primary key value of the last row inserted into the given table. It
+   * This returns the integer primary key value of the last row inserted on this connection. It
    * allows the ID to be inserted into the entity object after inserting it into the table.
    * 
-   * The other way of doing this is to call {@link Statement#getGeneratedKeys()}, but this returns a
-   * result set that needs to be parsed for the ID. It's not really any easier than this approach
-   * but should be closer to database-agnostic.
+   * This costs a second round trip to the database. Prefer preparing the insert with
+   * {@link Statement#RETURN_GENERATED_KEYS} and calling {@link #getGeneratedId(Statement)}, which
+   * returns the key with the insert itself.
    * 
    * @param conn The connection
-   * @param table The name of the table on which to get the last inserted primary key value
+   * @param table The name of the table on which to get the last inserted primary key value. MySQL
+   *        tracks the last insert ID per connection, so this is not used in the query.
    * @return The primary key value
    * @throws SQLException Thrown if an error occurs
    */
   protected Integer getLastInsertId(Connection conn, String table) throws SQLException {
-    String sql = String.format("SELECT LAST_INSERT_ID() FROM %s", table);
+    String sql = "SELECT LAST_INSERT_ID()";
 
     try(Statement stmt = conn.createStatement()) {
       try(ResultSet rs = stmt.executeQuery(sql)) {
@@ -190,6 +376,46 @@ public abstract class DaoBase {
     }
   }
 
+  /**
+   * This returns the primary key generated by the insert that was just executed. The statement
+   * must have been prepared with {@link Statement#RETURN_GENERATED_KEYS}. The key comes back with
+   * the insert, so no extra query is run.
+   * 
+   * @param stmt The statement that executed the insert
+   * @return The primary key value
+   * @throws SQLException Thrown if no key was generated
+   */
+  protected Integer getGeneratedId(Statement stmt) throws SQLException {
+    try(ResultSet rs = stmt.getGeneratedKeys()) {
+      if(rs.next()) {
+        return rs.getInt(1);
+      }
+
+      throw new SQLException("Unable to retrieve the primary key value. No generated keys!");
+    }
+  }
+
+  /**
+   * This returns every primary key generated by the statement that was just executed, in insert
+   * order. Use it for multi-row inserts and for batches run with {@link Statement#executeBatch()}.
+   * The statement must have been prepared with {@link Statement#RETURN_GENERATED_KEYS}.
+   * 
+   * @param stmt The statement that executed the insert or batch
+   * @return The primary key values
+   * @throws SQLException Thrown if an error occurs
+   */
+  protected List<Integer> getGeneratedIds(Statement stmt) throws SQLException {
+    try(ResultSet rs = stmt.getGeneratedKeys()) {
+      List<Integer> ids = new ArrayList<>();
+
+      while(rs.next()) {
+        ids.add(rs.getInt(1));
+      }
+
+      return ids;
+    }
+  }
+
   /**
    * This extracts an object of the given type from a result set. The object must have a
    * zero-argument constructor. It builds an object from a result set using reflection as follows:
@@ -203,6 +429,10 @@ public abstract class DaoBase {
    * <li>The value is assigned to the field in the object.</li>
    * </ol>
    * 
+   * The reflective steps are done once per class and cached by {@link RowMapper}. This method still
+   * matches the fields to the result set columns on every call, so when extracting many rows from
+   * the same result set use {@link #rowMapper(ResultSet, Class)} instead.
+   * 
    * Example: if a query returns values for a recipe, a Recipe object is returned. So:
    * 
    * <pre>
@@ -229,80 +459,220 @@ public abstract class DaoBase {
    * @return A populated class.
    */
   protected <T> T extract(ResultSet rs, Class<T> classType) {
+    RowMappingEvent event = new RowMappingEvent();
+    event.begin();
+
     try {
-      /* Obtain the constructor and create an object of the correct type. */
-      Constructor<T> con = classType.getConstructor();
-      T obj = con.newInstance();
-
-      /* Get the list of fields and loop through them. */
-      for(Field field : classType.getDeclaredFields()) {
-        String colName = camelCaseToSnakeCase(field.getName());
-        Class<?> fieldType = field.getType();
-
-        /*
-         * Set the field accessible flag which means that we can populate even private fields
-         * without using the setter.
-         */
-        field.setAccessible(true);
-        Object fieldValue = null;
-
-        try {
-          fieldValue = rs.getObject(colName);
-        }
-        catch(SQLException e) {
-          /*
-           * An exception caught here means that the field name isn't in the result set. Don't take
-           * any action.
-           */
-        }
+      T obj = RowMapper.forResultSet(rs, classType).map(rs);
+      commitMapping(event, classType, 1);
+      DaoMetrics.rowsRead(1);
+      return obj;
+    }
+    catch(SQLException e) {
+      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
 
-        /*
-         * Only set the value in the object if there is a value with the same name in the result
-         * set. This will preserve instance variables (like lists) that are assigned values when the
-         * object is created.
-         */
-        if(Objects.nonNull(fieldValue)) {
-          /*
-           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
-           */
-          if(fieldValue instanceof Time && fieldType.equals(LocalTime.class)) {
-            fieldValue = ((Time)fieldValue).toLocalTime();
-          }
-          else if(fieldValue instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
-            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
-          }
-
-          field.set(obj, fieldValue);
-        }
-      }
+  /**
+   * This returns a mapper that extracts objects of the given type from every row of a result set.
+   * The fields are matched to the result set columns once, so mapping a row is just a loop over
+   * indexed getters.
+   * 
+   * <pre>
+   * RowMapper&lt;Recipe&gt; mapper = rowMapper(rs, Recipe.class);
+   * 
+   * while(rs.next()) {
+   *   recipes.add(mapper.map(rs));
+   * }
+   * </pre>
+   * 
+   * @param <T> The Generic for the type of object to create and return.
+   * @param rs The result set that will be mapped.
+   * @param classType The actual class type of the objects to create.
+   * @return A mapper bound to the result set's columns.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  protected <T> RowMapper<T> rowMapper(ResultSet rs, Class<T> classType) throws SQLException {
+    return RowMapper.forResultSet(rs, classType);
+  }
 
-      return obj;
+  /**
+   * This maps the remaining rows of a result set and hands each object to an action, emitting one
+   * row mapping event for all of them.
+   * 
+   * <pre>
+   * RowMapper&lt;Recipe&gt; mapper = rowMapper(rs, Recipe.class);
+   * 
+   * mapRows(rs, mapper, recipes::add);
+   * </pre>
+   * 
+   * @param <T> The Generic for the type of object to create.
+   * @param rs The result set to read.
+   * @param mapper A mapper built for the result set.
+   * @param action Called with every object, while the result set is still on its row.
+   * @return The number of rows mapped.
+   * @throws SQLException Thrown if a row cannot be read or the action fails.
+   */
+  protected <T> int mapRows(ResultSet rs, RowMapper<T> mapper, RowAction<T> action)
+      throws SQLException {
+    return mapRows(rs, mapper, Integer.MAX_VALUE, action);
+  }
 
+  /**
+   * This maps up to limit rows of a result set and hands each object to an action, emitting one
+   * row mapping event for all of them. The result set is not advanced past the last row mapped, so
+   * the caller can call next() to find out whether there are more rows.
+   * 
+   * @param <T> The Generic for the type of object to create.
+   * @param rs The result set to read.
+   * @param mapper A mapper built for the result set.
+   * @param limit The maximum number of rows to map.
+   * @param action Called with every object, while the result set is still on its row.
+   * @return The number of rows mapped.
+   * @throws SQLException Thrown if a row cannot be read or the action fails.
+   */
+  protected <T> int mapRows(ResultSet rs, RowMapper<T> mapper, int limit, RowAction<T> action)
+      throws SQLException {
+    RowMappingEvent event = new RowMappingEvent();
+    int rows = 0;
+    event.begin();
+
+    while(rows < limit && rs.next()) {
+      action.accept(mapper.map(rs));
+      rows++;
     }
-    catch(Exception e) {
-      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+
+    commitMapping(event, mapper.getEntityClass(), rows);
+    DaoMetrics.rowsRead(rows);
+    return rows;
+  }
+
+  /**
+   * Fills in and commits a row mapping event if it is enabled and over its threshold.
+   */
+  private void commitMapping(RowMappingEvent event, Class<?> classType, int rows) {
+    event.end();
+
+    if(event.shouldCommit()) {
+      event.entityClass = classType;
+      event.rows = rows;
+      event.commit();
     }
   }
 
   /**
-   * This converts a camel case value (rowInsertTime) to snake case (row_insert_time).
+   * This executes a query and returns its rows as a lazily populated stream. Rows are mapped one at
+   * a time as the stream is consumed, so together with a fetch size on the statement the memory use
+   * does not depend on the size of the result. The stream owns the connection, statement and result
+   * set and closes all three when it is closed, so it must be used in a try-with-resources block:
+   * 
+   * <pre>
+   * try(Stream&lt;Recipe&gt; recipes = stream(conn, stmt, sql, Recipe.class)) {
+   *   recipes.forEach(System.out::println);
+   * }
+   * </pre>
+   * 
+   * If the query fails, the resources are closed before the exception is thrown.
    * 
-   * @param identifier The name in camel case to convert.
-   * @return The name converted to snake case.
+   * @param <T> The Generic for the type of object to create and return.
+   * @param conn The connection the statement belongs to. It is closed with the stream.
+   * @param stmt The prepared and bound query. It is closed with the stream.
+   * @param sql The SQL the statement was prepared with. It is only read if the event is enabled.
+   * @param classType The actual class type of the objects to create.
+   * @return A sequential stream of mapped rows.
+   * @throws SQLException Thrown if the query cannot be executed.
    */
-  private String camelCaseToSnakeCase(String identifier) {
-    StringBuilder nameBuilder = new StringBuilder();
+  protected <T> Stream<T> stream(Connection conn, PreparedStatement stmt, String sql,
+      Class<T> classType) throws SQLException {
+    ResultSet rs = null;
 
-    for(char ch : identifier.toCharArray()) {
-      if(Character.isUpperCase(ch)) {
-        nameBuilder.append('_').append(Character.toLowerCase(ch));
+    try {
+      rs = executeQuery(stmt, sql);
+      RowMappingEvent event = new RowMappingEvent();
+      event.begin();
+      RowMapper<T> mapper = rowMapper(rs, classType);
+      ResultSet rows = rs;
+      int[] mapped = new int[1];
+
+      Spliterator<T> spliterator =
+          new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+              try {
+                if(!rows.next()) {
+                  return false;
+                }
+
+                action.accept(mapper.map(rows));
+                mapped[0]++;
+                return true;
+              }
+              catch(SQLException e) {
+                throw new DaoException("Unable to read the next " + classType.getName(), e);
+              }
+            }
+          };
+
+      return StreamSupport.stream(spliterator, false).onClose(() -> {
+        commitMapping(event, classType, mapped[0]);
+        closeAll(rows, stmt, conn);
+      });
+    }
+    catch(SQLException | RuntimeException e) {
+      closeAll(rs, stmt, conn);
+      throw e;
+    }
+  }
+
+  /**
+   * Closes JDBC resources in the given order. Every resource is closed even if an earlier one
+   * fails.
+   * 
+   * @param resources The resources to close. Null entries are skipped.
+   */
+  protected void closeAll(AutoCloseable... resources) {
+    DaoException failure = null;
+
+    for(AutoCloseable resource : resources) {
+      try {
+        if(Objects.nonNull(resource)) {
+          resource.close();
+        }
       }
-      else {
-        nameBuilder.append(ch);
+      catch(Exception e) {
+        if(Objects.isNull(failure)) {
+          failure = new DaoException("Unable to close " + resource, e);
+        }
       }
     }
 
-    return nameBuilder.toString();
+    if(Objects.nonNull(failure)) {
+      throw failure;
+    }
+  }
+
+  /**
+   * An action on each object mapped by {@link DaoBase#mapRows(ResultSet, RowMapper, RowAction)}.
+   * It may read other columns of the current row.
+   * 
+   * @param <T> The type of object mapped.
+   */
+  @FunctionalInterface
+  protected interface RowAction<T> {
+    void accept(T obj) throws SQLException;
+  }
+
+  /**
+   * A transaction whose event is waiting for the commit or rollback.
+   */
+  private static final class OpenTransaction {
+    private final Connection conn;
+    private final JdbcTransactionEvent event;
+
+    private OpenTransaction(Connection conn, JdbcTransactionEvent event) {
+      this.conn = conn;
+      this.event = event;
+    }
   }
 
   /**
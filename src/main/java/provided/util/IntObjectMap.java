@@ -0,0 +1,148 @@
+package provided.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A hash map from primitive int keys to objects. It uses open addressing with linear probing, so
+ * lookups do not box the key or allocate an entry object. It is used to stitch child rows onto their
+ * parents by ID. Null values are not allowed, and the map is not thread-safe.
+ *
+ * @param <V> The value type
+ */
+public class IntObjectMap<V> {
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private int[] keys;
+  private Object[] values;
+  private int size;
+  private int resizeAt;
+
+  /**
+   * Creates an empty map.
+   */
+  public IntObjectMap() {
+    this(16);
+  }
+
+  /**
+   * Creates a map that can hold the expected number of entries without resizing.
+   *
+   * @param expectedSize The expected number of entries
+   */
+  public IntObjectMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int)(expectedSize / LOAD_FACTOR)) - 1) << 1;
+    allocate(capacity);
+  }
+
+  /**
+   * @param key The key
+   * @return The value for the key, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    int mask = keys.length - 1;
+
+    for(int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+      if(keys[slot] == key) {
+        return (V)values[slot];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param key The key
+   * @return true if the map has a value for the key
+   */
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Adds or replaces the value for a key.
+   *
+   * @param key The key
+   * @param value The value, which must not be null
+   * @return The previous value, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    Objects.requireNonNull(value, "value");
+    int mask = keys.length - 1;
+    int slot = slot(key, mask);
+
+    for(; values[slot] != null; slot = (slot + 1) & mask) {
+      if(keys[slot] == key) {
+        V previous = (V)values[slot];
+        values[slot] = value;
+        return previous;
+      }
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+
+    if(++size >= resizeAt) {
+      resize();
+    }
+
+    return null;
+  }
+
+  /**
+   * @return The number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return The values in no particular order
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> values() {
+    List<V> result = new ArrayList<>(size);
+
+    for(Object value : values) {
+      if(value != null) {
+        result.add((V)value);
+      }
+    }
+
+    return result;
+  }
+
+  private static int slot(int key, int mask) {
+    int hash = key * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new Object[capacity];
+    resizeAt = (int)(capacity * LOAD_FACTOR);
+  }
+
+  private void resize() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(keys.length << 1);
+    int mask = keys.length - 1;
+
+    for(int i = 0; i < oldKeys.length; i++) {
+      if(oldValues[i] != null) {
+        int slot = slot(oldKeys[i], mask);
+
+        while(values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
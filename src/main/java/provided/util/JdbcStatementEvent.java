@@ -0,0 +1,35 @@
+package provided.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one execution of a JDBC statement by {@link DaoBase}. The event is
+ * disabled by default. While it is disabled, begin and shouldCommit do nothing and the JIT removes
+ * the event object, so the instrumented statements cost nothing extra.
+ */
+@Name("projects.jdbc.Statement")
+@Label("JDBC Statement")
+@Category({"Projects", "JDBC"})
+@Description("Execution of a prepared statement")
+@Enabled(false)
+@StackTrace(false)
+final class JdbcStatementEvent extends Event {
+  @Label("SQL")
+  @Description("The SQL template, with a placeholder for every parameter")
+  String sql;
+
+  @Label("Parameters")
+  @Description("Number of placeholders in the SQL, per row for a batch")
+  int parameterCount;
+
+  @Label("Rows")
+  @Description("Rows changed by an update or a batch, or -1 for a query or a failed statement."
+      + " The rows a query returns are counted by the Row Mapping event")
+  long rows;
+}
@@ -0,0 +1,25 @@
+package provided.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for a transaction started by {@link DaoBase#startTransaction}, from its
+ * start until it is committed or rolled back. The event is disabled by default.
+ */
+@Name("projects.jdbc.Transaction")
+@Label("JDBC Transaction")
+@Category({"Projects", "JDBC"})
+@Description("A transaction from start to commit or rollback")
+@Enabled(false)
+@StackTrace(false)
+final class JdbcTransactionEvent extends Event {
+  @Label("Outcome")
+  @Description("commit, failed commit or rollback")
+  String outcome;
+}
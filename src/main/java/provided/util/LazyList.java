@@ -0,0 +1,96 @@
+package provided.util;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A list whose contents are loaded the first time it is used. Until then it holds nothing and has
+ * cost no query. The first call to any list method runs the loader, which must hand the contents
+ * to {@link #initialize(List)}. A loader may initialize many lazy lists at once, so that touching
+ * one list loads its siblings in the same query.
+ * <p>
+ * Loading is safe to race: the loader may run more than once if two threads touch the list at the
+ * same time, but only the first contents handed to the list are kept. Once loaded, the list is only
+ * as thread-safe as its contents.
+ *
+ * @param <E> The element type
+ */
+public final class LazyList<E> extends AbstractList<E> {
+  private final Runnable loader;
+  private volatile List<E> contents;
+
+  /**
+   * @param loader Loads the contents and passes them to {@link #initialize(List)}
+   */
+  public LazyList(Runnable loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * Sets the contents of the list if it has not been loaded yet.
+   *
+   * @param loaded The loaded elements. The list keeps and modifies this list, so it should be a
+   *        mutable list with fast random access.
+   */
+  public void initialize(List<E> loaded) {
+    synchronized(this) {
+      if(Objects.isNull(contents)) {
+        contents = loaded;
+      }
+    }
+  }
+
+  /**
+   * @return true if the contents have been loaded
+   */
+  public boolean isLoaded() {
+    return Objects.nonNull(contents);
+  }
+
+  private List<E> contents() {
+    List<E> loaded = contents;
+
+    if(Objects.isNull(loaded)) {
+      loader.run();
+      loaded = contents;
+
+      if(Objects.isNull(loaded)) {
+        throw new IllegalStateException("The loader did not initialize the list");
+      }
+    }
+
+    return loaded;
+  }
+
+  @Override
+  public E get(int index) {
+    return contents().get(index);
+  }
+
+  @Override
+  public int size() {
+    return contents().size();
+  }
+
+  @Override
+  public E set(int index, E element) {
+    return contents().set(index, element);
+  }
+
+  @Override
+  public void add(int index, E element) {
+    contents().add(index, element);
+  }
+
+  @Override
+  public E remove(int index) {
+    return contents().remove(index);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return contents().iterator();
+  }
+}
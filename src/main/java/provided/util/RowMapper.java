@@ -0,0 +1,303 @@
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import provided.util.DaoBase.DaoException;
+
+/**
+ * Maps result set rows onto entity objects. This does the same job as
+ * {@link DaoBase#extract(ResultSet, Class)} but splits the work in two:
+ * <ol>
+ * <li>Once per entity class, the zero-argument constructor and a setter for every field are
+ * resolved as method handles and the field names are converted to snake case. This plan is
+ * cached for the life of the class.</li>
+ * <li>Once per result set, the plan is matched against the result set metadata so that every
+ * field knows the index of its column. Fields without a column are dropped from the mapper, so
+ * their initial values (like lists) are preserved.</li>
+ * </ol>
+ *
+ * Mapping a row is then a loop over indexed, typed getters:
+ *
+ * <pre>
+ * RowMapper&lt;Recipe&gt; mapper = RowMapper.forResultSet(rs, Recipe.class);
+ *
+ * while(rs.next()) {
+ *   recipes.add(mapper.map(rs));
+ * }
+ * </pre>
+ *
+ * @param <T> The entity type
+ */
+public final class RowMapper<T> {
+  private static final ClassValue<EntityPlan<?>> PLANS = new ClassValue<>() {
+    @Override
+    protected EntityPlan<?> computeValue(Class<?> classType) {
+      return new EntityPlan<>(classType);
+    }
+  };
+
+  private final EntityPlan<T> plan;
+  private final FieldPlan[] fields;
+  private final int[] columns;
+
+  private RowMapper(EntityPlan<T> plan, FieldPlan[] fields, int[] columns) {
+    this.plan = plan;
+    this.fields = fields;
+    this.columns = columns;
+  }
+
+  /**
+   * Builds a mapper for the columns of the given result set.
+   *
+   * @param <T> The entity type
+   * @param rs The result set that will be mapped. Only its metadata is read.
+   * @param classType The entity class
+   * @return A mapper bound to the result set's column indexes
+   * @throws SQLException Thrown if the metadata cannot be read
+   */
+  public static <T> RowMapper<T> forResultSet(ResultSet rs, Class<T> classType)
+      throws SQLException {
+    return forMetaData(rs.getMetaData(), classType);
+  }
+
+  /**
+   * Builds a mapper for the given result set metadata.
+   *
+   * @param <T> The entity type
+   * @param metaData The metadata of the result set that will be mapped
+   * @param classType The entity class
+   * @return A mapper bound to the metadata's column indexes
+   * @throws SQLException Thrown if the metadata cannot be read
+   */
+  public static <T> RowMapper<T> forMetaData(ResultSetMetaData metaData, Class<T> classType)
+      throws SQLException {
+    EntityPlan<T> plan = planFor(classType);
+    Map<String, Integer> columnIndexes = new HashMap<>();
+
+    for(int column = metaData.getColumnCount(); column >= 1; column--) {
+      /* Iterate backwards so the first column with a given label wins, like getObject(name). */
+      columnIndexes.put(metaData.getColumnLabel(column).toLowerCase(Locale.ROOT), column);
+    }
+
+    List<FieldPlan> bound = new ArrayList<>(plan.fields.length);
+    List<Integer> indexes = new ArrayList<>(plan.fields.length);
+
+    for(FieldPlan field : plan.fields) {
+      Integer column = columnIndexes.get(field.columnName);
+
+      if(Objects.nonNull(column)) {
+        bound.add(field);
+        indexes.add(column);
+      }
+    }
+
+    int[] columns = indexes.stream().mapToInt(Integer::intValue).toArray();
+    return new RowMapper<>(plan, bound.toArray(new FieldPlan[0]), columns);
+  }
+
+  /**
+   * Creates an entity from the current row. The result set must be positioned on the correct row
+   * by the caller.
+   *
+   * @param rs The result set this mapper was built for
+   * @return A populated entity
+   * @throws SQLException Thrown if a column cannot be read
+   */
+  public T map(ResultSet rs) throws SQLException {
+    T obj = plan.newInstance();
+
+    for(int i = 0; i < fields.length; i++) {
+      Object value = fields[i].reader.read(rs, columns[i]);
+
+      /*
+       * Only set non-null values, like extract() does. Null columns leave the field's initial value
+       * in place.
+       */
+      if(Objects.nonNull(value)) {
+        fields[i].set(obj, value);
+      }
+    }
+
+    return obj;
+  }
+
+  /**
+   * @return The entity class this mapper creates
+   */
+  public Class<T> getEntityClass() {
+    return plan.classType;
+  }
+
+  /**
+   * @param <T> The entity type
+   * @param classType The entity class
+   * @return The cached per-class plan
+   */
+  @SuppressWarnings("unchecked")
+  static <T> EntityPlan<T> planFor(Class<T> classType) {
+    return (EntityPlan<T>)PLANS.get(classType);
+  }
+
+  /**
+   * This converts a camel case value (rowInsertTime) to snake case (row_insert_time).
+   *
+   * @param identifier The name in camel case to convert.
+   * @return The name converted to snake case.
+   */
+  static String camelCaseToSnakeCase(String identifier) {
+    StringBuilder nameBuilder = new StringBuilder(identifier.length() + 4);
+
+    for(int i = 0; i < identifier.length(); i++) {
+      char ch = identifier.charAt(i);
+
+      if(Character.isUpperCase(ch)) {
+        nameBuilder.append('_').append(Character.toLowerCase(ch));
+      }
+      else {
+        nameBuilder.append(ch);
+      }
+    }
+
+    return nameBuilder.toString();
+  }
+
+  /**
+   * The reflective work for one entity class, done once.
+   */
+  static final class EntityPlan<T> {
+    private final Class<T> classType;
+    private final MethodHandle constructor;
+    private final FieldPlan[] fields;
+
+    private EntityPlan(Class<T> classType) {
+      this.classType = classType;
+
+      try {
+        Constructor<T> con = classType.getConstructor();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.constructor =
+            lookup.unreflectConstructor(con).asType(MethodType.methodType(Object.class));
+
+        List<FieldPlan> plans = new ArrayList<>();
+
+        for(Field field : classType.getDeclaredFields()) {
+          if(Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+            continue;
+          }
+
+          field.setAccessible(true);
+          MethodHandle setter = lookup.unreflectSetter(field)
+              .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+          plans.add(new FieldPlan(camelCaseToSnakeCase(field.getName()), setter,
+              ColumnReader.forType(field.getType())));
+        }
+
+        this.fields = plans.toArray(new FieldPlan[0]);
+      }
+      catch(ReflectiveOperationException | RuntimeException e) {
+        throw new DaoException("Unable to create object of type " + classType.getName(), e);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+      try {
+        return (T)constructor.invokeExact();
+      }
+      catch(Throwable e) {
+        throw new DaoException("Unable to create object of type " + classType.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * A single entity field: its column name, setter and the getter used to read its column.
+   */
+  private static final class FieldPlan {
+    private final String columnName;
+    private final MethodHandle setter;
+    private final ColumnReader reader;
+
+    private FieldPlan(String columnName, MethodHandle setter, ColumnReader reader) {
+      this.columnName = columnName;
+      this.setter = setter;
+      this.reader = reader;
+    }
+
+    private void set(Object obj, Object value) {
+      try {
+        setter.invokeExact(obj, value);
+      }
+      catch(Throwable e) {
+        throw new DaoException("Unable to set column " + columnName + " to " + value, e);
+      }
+    }
+  }
+
+  /**
+   * Reads one column using the getter that matches the field type.
+   */
+  @FunctionalInterface
+  private interface ColumnReader {
+    Object read(ResultSet rs, int column) throws SQLException;
+
+    static ColumnReader forType(Class<?> fieldType) {
+      if(Integer.class.equals(fieldType)) {
+        return (rs, column) -> {
+          int value = rs.getInt(column);
+          return rs.wasNull() ? null : value;
+        };
+      }
+
+      if(Long.class.equals(fieldType)) {
+        return (rs, column) -> {
+          long value = rs.getLong(column);
+          return rs.wasNull() ? null : value;
+        };
+      }
+
+      if(String.class.equals(fieldType)) {
+        return ResultSet::getString;
+      }
+
+      if(BigDecimal.class.equals(fieldType)) {
+        return ResultSet::getBigDecimal;
+      }
+
+      if(LocalTime.class.equals(fieldType)) {
+        return (rs, column) -> {
+          Time value = rs.getTime(column);
+          return Objects.isNull(value) ? null : value.toLocalTime();
+        };
+      }
+
+      if(LocalDateTime.class.equals(fieldType)) {
+        return (rs, column) -> {
+          Timestamp value = rs.getTimestamp(column);
+          return Objects.isNull(value) ? null : value.toLocalDateTime();
+        };
+      }
+
+      return ResultSet::getObject;
+    }
+  }
+}
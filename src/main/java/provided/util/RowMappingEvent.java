@@ -0,0 +1,28 @@
+package provided.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for the rows of one result set mapped to entities by {@link DaoBase}.
+ * Its duration includes fetching the rows from the driver. The event is disabled by default.
+ */
+@Name("projects.jdbc.RowMapping")
+@Label("Row Mapping")
+@Category({"Projects", "JDBC"})
+@Description("Rows of a result set mapped to entity objects")
+@Enabled(false)
+@StackTrace(false)
+final class RowMappingEvent extends Event {
+  @Label("Entity Class")
+  Class<?> entityClass;
+
+  @Label("Rows")
+  @Description("Number of rows mapped")
+  int rows;
+}
@@ -0,0 +1,55 @@
+package projects.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+class GzipPipeOutputStreamTest {
+
+  @Test
+  void closeFinishesTheGzipStreamAndLeavesTheTargetOpen() throws IOException {
+    TrackingOutputStream target = new TrackingOutputStream();
+    try (GzipPipeOutputStream pipe = new GzipPipeOutputStream(target)) {
+      pipe.write("catalog".getBytes(StandardCharsets.UTF_8));
+    }
+
+    assertFalse(target.closed);
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))) {
+      assertEquals("catalog", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void abortStopsTheCompressorThread() throws IOException {
+    GzipPipeOutputStream pipe = new GzipPipeOutputStream(new TrackingOutputStream());
+    pipe.write(new byte[100_000]);
+
+    pipe.abort();
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (compressorRunning() && System.currentTimeMillis() < deadline) {
+      Thread.onSpinWait();
+    }
+    assertFalse(compressorRunning());
+    pipe.close();
+  }
+
+  private static boolean compressorRunning() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .anyMatch(thread -> thread.getName().equals("projects-export-gzip"));
+  }
+
+  private static class TrackingOutputStream extends ByteArrayOutputStream {
+    private boolean closed;
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
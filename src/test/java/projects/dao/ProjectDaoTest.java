@@ -0,0 +1,29 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import projects.exception.DbException;
+
+class ProjectDaoTest {
+
+  @BeforeAll
+  static void configureDatabase() {
+    DbConnection.configure(EmbeddedDatabase.create("daotest"));
+  }
+
+  @Test
+  void aDuplicateCategoryLinkKeepsTheCategoryCached() {
+    ProjectDao projectDao = new ProjectDao();
+    projectDao.fetchAllCategories();
+    Integer categoryId = ProjectDao.CATEGORIES.getId("fiber arts");
+
+    /* the first sample project is already in fiber arts */
+    assertThrows(DbException.class, () -> projectDao.addCategoryToProject(1, "fiber arts"));
+
+    assertEquals(categoryId, ProjectDao.CATEGORIES.getId("fiber arts"));
+    assertTrue(ProjectDao.CATEGORIES.isComplete());
+  }
+}
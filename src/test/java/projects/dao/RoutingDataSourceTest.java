@@ -0,0 +1,112 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RoutingDataSourceTest {
+  private static final long TIMEOUT = 5_000;
+
+  private volatile boolean replicaDown;
+  private volatile long replicaLag;
+  private RoutingDataSource routing;
+
+  @BeforeEach
+  void openCluster() {
+    RoutingConfig config = EmbeddedDatabase.createCluster("routing", 1);
+    config.setHealthCheckPeriod(20);
+    config.setLagProbe(conn -> {
+      if (replicaDown) {
+        throw new SQLException("The replica is down.");
+      }
+      return replicaLag;
+    });
+    routing = RoutingDataSource.open(config);
+  }
+
+  @AfterEach
+  void closeCluster() {
+    routing.close();
+  }
+
+  @Test
+  void readsGoToAHealthyReplica() throws Exception {
+    awaitReads(true);
+    assertTrue(readsFromReplica());
+  }
+
+  @Test
+  void readsFallBackToThePrimaryWhenTheReplicaIsDown() throws Exception {
+    awaitReads(true);
+
+    replicaDown = true;
+    awaitReads(false);
+    for (int read = 0; read < 10; read++) {
+      assertFalse(readsFromReplica());
+    }
+
+    replicaDown = false;
+    awaitReads(true);
+  }
+
+  @Test
+  void readsFallBackToThePrimaryWhenTheReplicaLags() throws Exception {
+    awaitReads(true);
+
+    replicaLag = 60_000;
+    awaitReads(false);
+    for (int read = 0; read < 10; read++) {
+      assertFalse(readsFromReplica());
+    }
+  }
+
+  @Test
+  void readsAfterAWriteStayOnThePrimaryUntilTheReplicaCatchesUp() throws Exception {
+    awaitReads(true);
+
+    try (Connection conn = routing.getWriteConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("UPDATE project SET notes = 'written' WHERE project_id = 1");
+    }
+    assertFalse(readsFromReplica(), "the read after the write went to the replica");
+    assertTrue(CompletableFuture.supplyAsync(this::readsFromReplicaUnchecked)
+        .get(TIMEOUT, TimeUnit.MILLISECONDS), "a read on another thread went to the primary");
+
+    /* with no lag reported, a check more than a second after the write shows it has caught up */
+    awaitReads(true);
+  }
+
+  /**
+   * reads until they go to the replica, or to the primary, failing after the timeout
+   * @param fromReplica
+   */
+  private void awaitReads(boolean fromReplica) throws Exception {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (readsFromReplica() != fromReplica) {
+      assertTrue(System.currentTimeMillis() < deadline,
+          "reads did not go to the " + (fromReplica ? "replica" : "primary"));
+      Thread.sleep(10);
+    }
+  }
+
+  private boolean readsFromReplica() throws SQLException {
+    try (Connection conn = routing.getReadConnection()) {
+      return conn.getMetaData().getURL().contains("-replica-");
+    }
+  }
+
+  private boolean readsFromReplicaUnchecked() {
+    try {
+      return readsFromReplica();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectSummary;
+import projects.entity.ProjectSummaryPage;
+
+class ShardedProjectDaoTest {
+  /* names that sort differently by code point, ignoring case and with MySQL's default collation */
+  private static final List<String> NAMES = List.of("Zebra crossing", "apple pie", "_underscore",
+      "\u00c9clair", "a-frame", "bird bath", "Build a shed", "zinnia bed");
+
+  private static int databases;
+
+  private ShardedDataSource shards;
+  private ShardedProjectDao projectDao;
+
+  @BeforeEach
+  void openShards() {
+    shards = new ShardedDataSource(EmbeddedDatabase.createShards("sharding-" + ++databases, 3));
+    projectDao = new ShardedProjectDao(shards);
+  }
+
+  @AfterEach
+  void closeShards() {
+    shards.close();
+  }
+
+  @Test
+  void insertedProjectLandsOnItsHashedShard() throws SQLException {
+    Project project = projectDao.insertProject(newProject("hashed"));
+    int projectId = project.getProjectId();
+
+    for (String shard : shards.getShardNames()) {
+      int expected = shard.equals(shards.shardFor(projectId)) ? 1 : 0;
+      assertEquals(expected, countProjects(shards, shard, projectId), shard);
+    }
+    assertEquals("hashed", projectDao.fetchProjectById(projectId).orElseThrow().getProjectName());
+  }
+
+  @Test
+  void listingsMergeShardsInTheUnshardedOrder() {
+    NAMES.forEach(name -> projectDao.insertProject(newProject(name)));
+
+    DbConnection.configure(EmbeddedDatabase.create("unsharded-" + databases));
+    ProjectDao unsharded = new ProjectDao();
+    NAMES.forEach(name -> unsharded.insertProject(newProject(name)));
+    List<String> expected = names(unsharded.fetchAllProjects());
+    assertEquals(expected.stream().sorted().collect(Collectors.toList()), expected);
+
+    assertEquals(expected, names(projectDao.fetchAllProjects()));
+    try (Stream<Project> projects = projectDao.streamAllProjects(2)) {
+      assertEquals(expected, projects.map(Project::getProjectName).collect(Collectors.toList()));
+    }
+    List<ProjectSummary> summaries =
+        projectDao.fetchProjectSummaries(Set.of(SummaryColumn.PROJECT_NAME), null);
+    assertEquals(expected,
+        summaries.stream().map(ProjectSummary::getProjectName).collect(Collectors.toList()));
+  }
+
+  @Test
+  void pagesWalkEveryShardInOrder() {
+    NAMES.forEach(name -> projectDao.insertProject(newProject(name)));
+    List<String> expected = names(projectDao.fetchAllProjects());
+
+    List<String> paged = new ArrayList<>();
+    String pageToken = null;
+    do {
+      ProjectPage page = projectDao.fetchProjectPage(pageToken, 3);
+      assertTrue(page.getProjects().size() <= 3);
+      paged.addAll(names(page.getProjects()));
+      pageToken = page.getNextPageToken();
+    } while (Objects.nonNull(pageToken));
+    assertEquals(expected, paged);
+
+    List<String> summaries = new ArrayList<>();
+    pageToken = null;
+    do {
+      ProjectSummaryPage page = projectDao.fetchProjectSummaryPage(Set.of(), null, pageToken, 2);
+      page.getSummaries().forEach(summary -> summaries.add(summary.getProjectName()));
+      pageToken = page.getNextPageToken();
+    } while (Objects.nonNull(pageToken));
+    assertEquals(expected, summaries);
+  }
+
+  @Test
+  void pagesMustHoldAtLeastOneProject() {
+    for (ProjectDao dao : List.of(projectDao, new ProjectDao())) {
+      assertThrows(IllegalArgumentException.class, () -> dao.fetchProjectPage(null, 0));
+      assertThrows(IllegalArgumentException.class,
+          () -> dao.fetchProjectSummaryPage(Set.of(), null, null, -1));
+    }
+  }
+
+  @Test
+  void rebalancerMovesProjectsToTheNewLayout() throws SQLException {
+    String name = "rebalance-" + ++databases;
+    ShardConfig fromConfig = EmbeddedDatabase.createShards(name, 2);
+    PoolConfig added = EmbeddedDatabase.create(name + "-shard-3");
+    try (Connection conn = DriverManager.getConnection(added.getJdbcUrl(), added.getUsername(),
+        added.getPassword());
+        Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("DELETE FROM project");
+    }
+    ShardConfig toConfig = new ShardConfig();
+    fromConfig.getShards().forEach(toConfig::addShard);
+    RoutingConfig routing = new RoutingConfig(added);
+    routing.setLagProbe(ReplicaLagProbe.NONE);
+    toConfig.addShard(name + "-shard-3", routing);
+
+    try (ShardedDataSource from = new ShardedDataSource(fromConfig);
+        ShardedDataSource to = new ShardedDataSource(toConfig)) {
+      ShardedProjectDao before = new ShardedProjectDao(from);
+      for (int project = 0; project < 30; project++) {
+        before.insertProject(newProject("project " + project));
+      }
+      List<Project> projects = before.fetchAllProjectsWithChildren();
+      Map<Integer, Integer> materials = new HashMap<>();
+      projects.forEach(
+          project -> materials.put(project.getProjectId(), project.getMaterials().size()));
+
+      int moved = new ShardRebalancer(from, to).rebalance();
+      assertTrue(moved > 0, "no project was moved");
+
+      for (Project project : projects) {
+        int projectId = project.getProjectId();
+        for (String shard : to.getShardNames()) {
+          int expected = shard.equals(to.shardFor(projectId)) ? 1 : 0;
+          assertEquals(expected, countProjects(to, shard, projectId), shard + " " + projectId);
+        }
+      }
+      ShardedProjectDao after = new ShardedProjectDao(to);
+      List<Project> rebalanced = after.fetchAllProjectsWithChildren();
+      assertEquals(names(projects), names(rebalanced));
+      rebalanced.forEach(project -> assertEquals((int) materials.get(project.getProjectId()),
+          project.getMaterials().size(), project.getProjectName()));
+    }
+  }
+
+  private static int countProjects(ShardedDataSource shards, String shard, int projectId)
+      throws SQLException {
+    try (Connection conn = shards.getShard(shard).getWriteConnection();
+        PreparedStatement stmt =
+            conn.prepareStatement("SELECT COUNT(*) FROM project WHERE project_id = ?")) {
+      stmt.setInt(1, projectId);
+      try (ResultSet rs = stmt.executeQuery()) {
+        rs.next();
+        return rs.getInt(1);
+      }
+    }
+  }
+
+  private static List<String> names(List<Project> projects) {
+    return projects.stream().map(Project::getProjectName).collect(Collectors.toList());
+  }
+
+  private static Project newProject(String name) {
+    Project project = new Project();
+    project.setProjectName(name);
+    project.setEstimatedHours(new BigDecimal("1.00"));
+    project.setActualHours(new BigDecimal("1.00"));
+    project.setDifficulty(1);
+    project.setNotes("sharding test");
+    return project;
+  }
+}
@@ -0,0 +1,76 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import projects.entity.Material;
+import projects.entity.Project;
+
+class ProjectCacheTest {
+
+  @Test
+  void invalidatingOneProjectKeepsTheLoadOfAnother() {
+    ProjectCache cache = new ProjectCache(10, 60_000);
+    AtomicInteger loads = new AtomicInteger();
+
+    cache.get(1, id -> {
+      cache.invalidate(2);
+      loads.incrementAndGet();
+      return newProject(id, "one");
+    });
+    cache.get(1, id -> {
+      loads.incrementAndGet();
+      return newProject(id, "one");
+    });
+
+    assertEquals(1, loads.get());
+    assertEquals(0, cache.getInvalidatedAt(1));
+    assertTrue(cache.getInvalidatedAt(2) > 0);
+  }
+
+  @Test
+  void aLoadRacingWithItsInvalidationIsNotCached() {
+    ProjectCache cache = new ProjectCache(10, 60_000);
+    AtomicInteger loads = new AtomicInteger();
+
+    cache.get(1, id -> {
+      cache.invalidate(1);
+      loads.incrementAndGet();
+      return newProject(id, "stale");
+    });
+    Project project = cache.get(1, id -> {
+      loads.incrementAndGet();
+      return newProject(id, "fresh");
+    });
+
+    assertEquals(2, loads.get());
+    assertEquals("fresh", project.getProjectName());
+  }
+
+  @Test
+  void callersGetTheirOwnCopies() {
+    ProjectCache cache = new ProjectCache(10, 60_000);
+    Project loaded = newProject(1, "original");
+
+    Project first = cache.get(1, id -> loaded);
+    first.setProjectName("changed");
+    first.getMaterials().clear();
+    loaded.getMaterials().get(0).setMaterialName("changed");
+
+    Project second = cache.get(1, id -> newProject(id, "reloaded"));
+    assertEquals("original", second.getProjectName());
+    assertEquals(1, second.getMaterials().size());
+    assertEquals("yarn", second.getMaterials().get(0).getMaterialName());
+  }
+
+  private static Project newProject(Integer projectId, String name) {
+    Project project = new Project();
+    project.setProjectId(projectId);
+    project.setProjectName(name);
+    Material material = new Material();
+    material.setMaterialName("yarn");
+    project.getMaterials().add(material);
+    return project;
+  }
+}
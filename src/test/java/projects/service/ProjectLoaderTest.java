@@ -0,0 +1,82 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import projects.dao.DbConnection;
+import projects.dao.EmbeddedDatabase;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+
+class ProjectLoaderTest {
+
+  @BeforeAll
+  static void configureDatabase() {
+    DbConnection.configure(EmbeddedDatabase.create("loadertest"));
+  }
+
+  /**
+   * a request made after a change must not share a fetch that may have read the project before it
+   */
+  @Test
+  void loadAfterModifyDoesNotJoinFetchInFlight() throws Exception {
+    CountDownLatch fetched = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean first = new AtomicBoolean(true);
+    ProjectDao projectDao = new ProjectDao() {
+      @Override
+      public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+        List<Project> projects = super.fetchProjectsByIds(projectIds);
+        if (first.getAndSet(false)) {
+          fetched.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return projects;
+      }
+    };
+
+    Project project = projectDao.insertProject(newProject("before"));
+    Integer projectId = project.getProjectId();
+
+    try (ProjectLoader loader = new ProjectLoader(projectDao, 1, 100)) {
+      try {
+        CompletableFuture<Optional<Project>> stale = loader.load(projectId);
+        assertTrue(fetched.await(5, TimeUnit.SECONDS), "first fetch did not start");
+
+        project.setProjectName("after");
+        assertTrue(projectDao.modifyProjectDetails(project));
+
+        Optional<Project> reloaded = loader.load(projectId).get(5, TimeUnit.SECONDS);
+        assertEquals("after", reloaded.orElseThrow().getProjectName());
+
+        release.countDown();
+        assertEquals("before", stale.get(5, TimeUnit.SECONDS).orElseThrow().getProjectName());
+      } finally {
+        release.countDown();
+      }
+    }
+  }
+
+  private static Project newProject(String name) {
+    Project project = new Project();
+    project.setProjectName(name);
+    project.setEstimatedHours(new BigDecimal("1.00"));
+    project.setActualHours(new BigDecimal("1.00"));
+    project.setDifficulty(1);
+    project.setNotes("loader test");
+    return project;
+  }
+}